@@ -0,0 +1,32 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 准入控制配置，默认关闭；开启后由OpenTelemetryWebFilter在请求入口调用
+ */
+@Configuration
+public class AdmissionControlConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.admission")
+    public AdmissionController.AdmissionProperties admissionProperties() {
+        return new AdmissionController.AdmissionProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.admission.enabled", havingValue = "true")
+    public AdmissionController admissionController(AdmissionController.AdmissionProperties properties,
+                                                   MeterRegistry meterRegistry,
+                                                   ObjectProvider<Tracer> tracer) {
+        return new AdmissionController(properties, meterRegistry,
+                tracer.getIfAvailable(() -> OpenTelemetry.noop().getTracer("admission-control")));
+    }
+}
@@ -0,0 +1,240 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import lombok.Data;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于并发数和延迟的准入控制
+ * 记录全局和各路由的在途请求数以及各路由的近期延迟(EWMA，权重1/8)，路由按处理器匹配的路径模式归并，
+ * 没有匹配到处理器的请求归入_other。
+ * 在途请求数达到上限，或关键路由的近期延迟超过阈值时，非关键路由的请求直接拒绝(503)，
+ * 把线程和连接留给关键路由；关键路由本身从不拒绝。
+ * 拒绝的请求记录在当前span(没有服务端span时单独创建一个)和http.server.requests.shed指标上
+ */
+public class AdmissionController {
+
+    static final String OTHER = "_other";
+    static final String REASON_CONCURRENCY = "concurrency";
+    static final String REASON_LATENCY = "latency";
+
+    private static final AttributeKey<Boolean> SHED = AttributeKey.booleanKey("http.request.shed");
+    private static final AttributeKey<String> SHED_REASON = AttributeKey.stringKey("http.request.shed_reason");
+    private static final AttributeKey<String> ROUTE = AttributeKey.stringKey("http.route");
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    // 已登记的非关键路由数(不含_other)，只在创建新路由时原子地增加，并发下也不会超过上限
+    private final AtomicInteger routeCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // 所有关键路由合并的近期延迟和最近一次完成时间
+    private final AtomicLong criticalLatencyNanos = new AtomicLong();
+    private volatile long lastCriticalCompletionNanos;
+    private final long latencyLimitNanos;
+    private final long latencyStaleNanos;
+
+    public AdmissionController(AdmissionProperties properties, MeterRegistry meterRegistry, Tracer tracer) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.latencyLimitNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLatencyLimitMs());
+        this.latencyStaleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLatencyWindowMs());
+        Gauge.builder("http.server.requests.in_flight", inFlight, AtomicInteger::get)
+                .description("HTTP requests currently being processed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 请求进入时调用，返回null表示请求被拒绝；放行的请求处理完成后必须调用complete。
+     * pattern为处理器匹配的路径模式(如/api/users/{id})，未匹配时为null
+     */
+    public Admission tryAdmit(String method, String path, String pattern) {
+        RouteStats route = route(path, pattern);
+        if (!route.critical) {
+            String reason = shedReason();
+            if (reason != null) {
+                shed(method, route, reason);
+                return null;
+            }
+        }
+        inFlight.incrementAndGet();
+        route.inFlight.incrementAndGet();
+        return new Admission(route, System.nanoTime());
+    }
+
+    public void complete(Admission admission) {
+        complete(admission, System.nanoTime() - admission.startNanos);
+    }
+
+    void complete(Admission admission, long latencyNanos) {
+        RouteStats route = admission.route;
+        inFlight.decrementAndGet();
+        route.inFlight.decrementAndGet();
+        updateEwma(route.latencyNanos, latencyNanos);
+        if (route.critical) {
+            updateEwma(criticalLatencyNanos, latencyNanos);
+            lastCriticalCompletionNanos = System.nanoTime();
+        }
+    }
+
+    private String shedReason() {
+        if (properties.getMaxConcurrency() > 0 && inFlight.get() >= properties.getMaxConcurrency()) {
+            return REASON_CONCURRENCY;
+        }
+        // 关键路由一段时间没有完成的请求时不再依据旧的延迟拒绝
+        if (latencyLimitNanos > 0
+                && criticalLatencyNanos.get() > latencyLimitNanos
+                && System.nanoTime() - lastCriticalCompletionNanos < latencyStaleNanos) {
+            return REASON_LATENCY;
+        }
+        return null;
+    }
+
+    private void shed(String method, RouteStats route, String reason) {
+        route.shed(reason).increment();
+        Attributes attributes = Attributes.of(SHED, true, SHED_REASON, reason, ROUTE, route.name);
+        Span current = Span.current();
+        if (current.getSpanContext().isValid()) {
+            current.setAllAttributes(attributes);
+            current.setStatus(StatusCode.ERROR, "request shed: " + reason);
+        } else {
+            // 没有服务端span(关闭opentelemetry.server-span或off模式)时单独记录一个span
+            tracer.spanBuilder(method + " " + route.name)
+                    .setSpanKind(SpanKind.SERVER)
+                    .setAllAttributes(attributes)
+                    .startSpan()
+                    .setStatus(StatusCode.ERROR, "request shed: " + reason)
+                    .end();
+        }
+    }
+
+    private static void updateEwma(AtomicLong ewma, long sample) {
+        long current;
+        long next;
+        do {
+            current = ewma.get();
+            next = current == 0 ? sample : current + (sample - current) / 8;
+        } while (!ewma.compareAndSet(current, next));
+    }
+
+    private RouteStats route(String path, String pattern) {
+        // 关键路由按匹配的关键路径归并；其他路由按处理器模式归并，数量超过上限后归入_other
+        String critical = criticalPattern(path);
+        if (critical != null) {
+            return routes.computeIfAbsent(critical, name -> new RouteStats(name, true));
+        }
+        String key = pattern != null ? pattern : OTHER;
+        RouteStats route = routes.get(key);
+        if (route != null) {
+            return route;
+        }
+        if (!OTHER.equals(key) && routeCount.get() < properties.getMaxRoutes()) {
+            route = routes.computeIfAbsent(key, name -> {
+                if (routeCount.incrementAndGet() > properties.getMaxRoutes()) {
+                    routeCount.decrementAndGet();
+                    return null;
+                }
+                return new RouteStats(name, false);
+            });
+            if (route != null) {
+                return route;
+            }
+        }
+        return routes.computeIfAbsent(OTHER, name -> new RouteStats(name, false));
+    }
+
+    private String criticalPattern(String path) {
+        for (String pattern : properties.getCriticalPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int retryAfterSeconds() {
+        return properties.getRetryAfterSeconds();
+    }
+
+    public static final class Admission {
+        private final RouteStats route;
+        private final long startNanos;
+
+        private Admission(RouteStats route, long startNanos) {
+            this.route = route;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final class RouteStats {
+        private final String name;
+        private final boolean critical;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final Map<String, Counter> shedCounters = new ConcurrentHashMap<>();
+
+        RouteStats(String name, boolean critical) {
+            this.name = name;
+            this.critical = critical;
+            Gauge.builder("http.server.requests.route.in_flight", inFlight, AtomicInteger::get)
+                    .description("In-flight HTTP requests by route")
+                    .tag("route", name)
+                    .register(meterRegistry);
+            Gauge.builder("http.server.requests.route.latency", latencyNanos, v -> v.get() / 1e6)
+                    .description("Recent (EWMA) HTTP request latency by route in milliseconds")
+                    .tag("route", name)
+                    .register(meterRegistry);
+        }
+
+        Counter shed(String reason) {
+            return shedCounters.computeIfAbsent(reason, r -> Counter.builder("http.server.requests.shed")
+                    .description("HTTP requests rejected by admission control")
+                    .tag("route", name)
+                    .tag("reason", r)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * 准入控制属性
+     */
+    @Data
+    public static class AdmissionProperties {
+        private boolean enabled = false;
+        // 全局在途请求数上限，达到后拒绝非关键路由，<=0表示不限制
+        private int maxConcurrency = 150;
+        // 关键路由近期延迟超过该值时拒绝非关键路由，<=0表示不启用
+        private long latencyLimitMs = 500;
+        // 关键路由超过该时间没有完成的请求时，其延迟不再作为拒绝依据
+        private long latencyWindowMs = 5000;
+        // 关键路由(Ant风格路径)，始终放行
+        private List<String> criticalPaths = new ArrayList<>(List.of("/api/send", "/api/send-batch"));
+        // 单独统计的路由数量上限
+        private int maxRoutes = 100;
+        // 拒绝时返回的Retry-After秒数
+        private int retryAfterSeconds = 1;
+    }
+}
@@ -5,7 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 
 @SpringBootApplication
-@EnableAspectJAutoProxy // 启用AOP，用于RQueue instrumentation
+@EnableAspectJAutoProxy // 启用AOP，用于RQueue入队instrumentation
 public class Application {
 
     public static void main(String[] args) {
@@ -13,6 +13,12 @@ public class Application {
         System.setProperty("otel.service.name", "my-spring-boot-app");
         System.setProperty("otel.resource.attributes", "service.version=1.0.0");
 
-        SpringApplication.run(Application.class, args);
+        // MDC跟随Context切换，需在任何Context使用之前安装
+        MdcContextStorage.install();
+
+        SpringApplication application = new SpringApplication(Application.class);
+        // 启动阶段span需要在容器创建之前开始记录
+        application.setApplicationStartup(StartupTracing.applicationStartup(args));
+        application.run(args);
     }
 }
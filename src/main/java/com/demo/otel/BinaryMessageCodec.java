@@ -0,0 +1,106 @@
+package com.demo.otel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 紧凑二进制消息编解码器
+ * 字符串消息直接存原文(省去默认JSON转换器的转义和类名)，其他对象用Smile(二进制JSON)序列化；
+ * 序列化结果达到阈值(UTF-8字节数)时用LZ4压缩，压缩无收益时保留原始字节。
+ * Smile帧不携带类型，未指定目标类型时按Object读取(对象为Map，数组为List)。
+ * 格式: "\u001Erqc1t{text}" 或 "\u001Erqc1b{base64(flags[, 原始长度(4字节)], body)}"
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    static final String PREFIX = "\u001Erqc1";
+
+    private static final char TEXT = 't';
+    private static final char BINARY = 'b';
+    private static final int FLAG_LZ4 = 1;
+    private static final int FLAG_SMILE = 2;
+
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+    private final boolean compression;
+    private final int compressionThreshold;
+
+    public BinaryMessageCodec(boolean compression, int compressionThreshold) {
+        this.compression = compression;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public String encode(Object payload) throws IOException {
+        if (payload instanceof String) {
+            String text = (String) payload;
+            if (!compression || Utf8.encodedLength(text) < compressionThreshold) {
+                return PREFIX + TEXT + text;
+            }
+            return encodeBinary(0, text.getBytes(StandardCharsets.UTF_8));
+        }
+        return encodeBinary(FLAG_SMILE, smileMapper.writeValueAsBytes(payload));
+    }
+
+    @Override
+    public Object decode(String encoded, Class<?> targetType) throws IOException {
+        int offset = PREFIX.length();
+        if (encoded.charAt(offset) == TEXT) {
+            return encoded.substring(offset + 1);
+        }
+
+        byte[] frame = Base64.getDecoder().decode(encoded.substring(offset + 1));
+        int flags = frame[0];
+        byte[] body;
+        if ((flags & FLAG_LZ4) != 0) {
+            int length = ((frame[1] & 0xFF) << 24) | ((frame[2] & 0xFF) << 16)
+                    | ((frame[3] & 0xFF) << 8) | (frame[4] & 0xFF);
+            body = decompressor.decompress(frame, 5, length);
+        } else {
+            body = Arrays.copyOfRange(frame, 1, frame.length);
+        }
+
+        if ((flags & FLAG_SMILE) != 0) {
+            return smileMapper.readValue(body, targetType != null ? targetType : Object.class);
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean canDecode(String encoded) {
+        return encoded != null && encoded.length() > PREFIX.length() && encoded.startsWith(PREFIX);
+    }
+
+    private String encodeBinary(int flags, byte[] body) {
+        if (compression && body.length >= compressionThreshold) {
+            byte[] frame = new byte[5 + compressor.maxCompressedLength(body.length)];
+            int compressedLength = compressor.compress(body, 0, body.length, frame, 5, frame.length - 5);
+            if (compressedLength + 4 < body.length) {
+                frame[0] = (byte) (flags | FLAG_LZ4);
+                frame[1] = (byte) (body.length >>> 24);
+                frame[2] = (byte) (body.length >>> 16);
+                frame[3] = (byte) (body.length >>> 8);
+                frame[4] = (byte) body.length;
+                return toText(frame, 5 + compressedLength);
+            }
+        }
+
+        byte[] frame = new byte[1 + body.length];
+        frame[0] = (byte) flags;
+        System.arraycopy(body, 0, frame, 1, body.length);
+        return toText(frame, frame.length);
+    }
+
+    private static String toText(byte[] frame, int length) {
+        byte[] data = length == frame.length ? frame : Arrays.copyOf(frame, length);
+        return PREFIX + BINARY + Base64.getEncoder().encodeToString(data);
+    }
+}
@@ -0,0 +1,92 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把{@link MessageCodec}适配为RQueue使用的MessageConverter
+ * 解码时总是识别编解码器格式，其余消息交给原转换器，因此新旧格式可以在同一队列中共存、滚动发布；
+ * encode为false时仍按旧格式写入，只具备读取新格式的能力
+ */
+public class CodecMessageConverter implements MessageConverter {
+
+    private final MessageCodec codec;
+    private final MessageConverter legacy;
+    private final boolean encode;
+    private final DistributionSummary encodedSize;
+    private final Timer encodeTimer;
+    private final Timer decodeTimer;
+
+    public CodecMessageConverter(MessageCodec codec, MessageConverter legacy, boolean encode,
+                                 MeterRegistry meterRegistry) {
+        this.codec = codec;
+        this.legacy = legacy;
+        this.encode = encode;
+        String codecName = encode ? codec.getClass().getSimpleName() : "legacy";
+        this.encodedSize = DistributionSummary.builder("rqueue.codec.encoded.size")
+                .description("Encoded RQueue message size")
+                .baseUnit("bytes")
+                .tag("codec", codecName)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.encodeTimer = codecTimer(meterRegistry, codecName, "encode");
+        this.decodeTimer = codecTimer(meterRegistry, codecName, "decode");
+    }
+
+    @Override
+    public Object fromMessage(Message<?> message, Class<?> targetClass) {
+        Object payload = message.getPayload();
+        if (!(payload instanceof String) || !codec.canDecode((String) payload)) {
+            return legacy.fromMessage(message, targetClass);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return codec.decode((String) payload, targetClass);
+        } catch (IOException | RuntimeException e) {
+            // 截断或损坏的帧会在Base64/LZ4/下标访问处抛出运行时异常，统一按转换失败处理
+            throw new MessageConversionException(message, "Failed to decode message", e);
+        } finally {
+            decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Message<?> toMessage(Object payload, MessageHeaders headers) {
+        long start = System.nanoTime();
+        Message<?> message;
+        if (encode) {
+            try {
+                message = MessageBuilder.withPayload(codec.encode(payload)).copyHeaders(headers).build();
+            } catch (IOException e) {
+                throw new MessageConversionException("Failed to encode message", e);
+            }
+        } else {
+            message = legacy.toMessage(payload, headers);
+        }
+        encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (message != null && message.getPayload() instanceof String) {
+            // Redis中按UTF-8存储，非ASCII文本的字节数大于字符数
+            encodedSize.record(Utf8.encodedLength((String) message.getPayload()));
+        }
+        return message;
+    }
+
+    private static Timer codecTimer(MeterRegistry meterRegistry, String codecName, String operation) {
+        return Timer.builder("rqueue.codec.time")
+                .description("RQueue message codec time")
+                .tag("codec", codecName)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
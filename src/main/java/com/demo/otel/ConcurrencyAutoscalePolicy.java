@@ -0,0 +1,117 @@
+package com.demo.otel;
+
+/**
+ * 基于队列积压的并发度调整策略(无状态依赖外部，便于单独测试)
+ * 以"每个工作线程平均积压条数"为信号，超过上阈值连续requiredSamples次才扩容，
+ * 低于下阈值连续requiredSamples次才缩容，上下阈值之间保持不变，避免来回抖动；
+ * 处理耗时超过maxLatencyMs时说明下游已饱和，不再扩容
+ */
+public class ConcurrencyAutoscalePolicy {
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final int step;
+    private final double scaleUpBacklogPerWorker;
+    private final double scaleDownBacklogPerWorker;
+    private final int requiredSamples;
+    private final double maxLatencyMs;
+
+    private int upStreak;
+    private int downStreak;
+
+    public ConcurrencyAutoscalePolicy(int minConcurrency, int maxConcurrency, int step,
+                                      double scaleUpBacklogPerWorker, double scaleDownBacklogPerWorker,
+                                      int requiredSamples, double maxLatencyMs) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("Invalid concurrency range: " + minConcurrency + "-" + maxConcurrency);
+        }
+        if (scaleDownBacklogPerWorker >= scaleUpBacklogPerWorker) {
+            throw new IllegalArgumentException("scale-down threshold must be below scale-up threshold");
+        }
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.step = Math.max(1, step);
+        this.scaleUpBacklogPerWorker = scaleUpBacklogPerWorker;
+        this.scaleDownBacklogPerWorker = scaleDownBacklogPerWorker;
+        this.requiredSamples = Math.max(1, requiredSamples);
+        this.maxLatencyMs = maxLatencyMs;
+    }
+
+    /**
+     * 根据一次采样计算目标并发度
+     *
+     * @param current      当前并发度
+     * @param depth        队列积压条数
+     * @param avgLatencyMs 采样周期内平均处理耗时，没有数据时传负数
+     */
+    public synchronized Decision evaluate(int current, long depth, double avgLatencyMs) {
+        double backlogPerWorker = (double) depth / Math.max(1, current);
+
+        if (backlogPerWorker > scaleUpBacklogPerWorker) {
+            upStreak++;
+            downStreak = 0;
+        } else if (backlogPerWorker < scaleDownBacklogPerWorker) {
+            downStreak++;
+            upStreak = 0;
+        } else {
+            upStreak = 0;
+            downStreak = 0;
+        }
+
+        if (upStreak >= requiredSamples && current < maxConcurrency) {
+            if (maxLatencyMs > 0 && avgLatencyMs > maxLatencyMs) {
+                return new Decision(current, current, "latency_saturated");
+            }
+            upStreak = 0;
+            return new Decision(current, Math.min(maxConcurrency, current + step), "backlog_high");
+        }
+        if (downStreak >= requiredSamples && current > minConcurrency) {
+            downStreak = 0;
+            return new Decision(current, Math.max(minConcurrency, current - step), "backlog_low");
+        }
+        return new Decision(current, current, "steady");
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * 一次调整决策
+     */
+    public static final class Decision {
+        private final int from;
+        private final int to;
+        private final String reason;
+
+        Decision(int from, int to, String reason) {
+            this.from = from;
+            this.to = to;
+            this.reason = reason;
+        }
+
+        public int getFrom() {
+            return from;
+        }
+
+        public int getTo() {
+            return to;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public boolean isChange() {
+            return from != to;
+        }
+
+        public String getDirection() {
+            return to > from ? "up" : to < from ? "down" : "none";
+        }
+    }
+}
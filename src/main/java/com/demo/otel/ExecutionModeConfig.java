@@ -0,0 +1,61 @@
+package com.demo.otel;
+
+import lombok.Data;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 请求处理/消息消费的执行模式配置
+ * platform: 使用Tomcat和RQueue默认的有界平台线程池
+ * virtual:  运行时支持时改用虚拟线程，阻塞I/O不再占用平台线程
+ */
+@Configuration
+public class ExecutionModeConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeConfig.class);
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.execution")
+    public ExecutionProperties executionProperties() {
+        return new ExecutionProperties();
+    }
+
+    /**
+     * Tomcat请求处理切换到虚拟线程
+     * 每个请求都在新线程上开始，OpenTelemetry Context和MDC不会残留上一个请求的数据
+     */
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.execution.mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        if (!VirtualThreads.isSupported()) {
+            log.warn("Virtual thread execution requested but not supported on JDK {}, keeping platform threads",
+                    System.getProperty("java.version"));
+            return protocolHandler -> {
+            };
+        }
+        log.info("Tomcat request handling runs on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newExecutor("tomcat-vt-"));
+    }
+
+    /**
+     * 执行模式属性
+     */
+    @Data
+    public static class ExecutionProperties {
+        // platform / virtual
+        private String mode = "platform";
+
+        // 虚拟线程模式下RQueue同时处理的最大消息数
+        private int maxRqueueWorkers = 200;
+
+        public boolean isVirtual() {
+            return "virtual".equalsIgnoreCase(mode) && VirtualThreads.isSupported();
+        }
+    }
+}
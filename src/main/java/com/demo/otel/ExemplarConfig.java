@@ -0,0 +1,46 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.prometheus.client.exemplars.DefaultExemplarSampler;
+import io.prometheus.client.exemplars.ExemplarSampler;
+import io.prometheus.client.exemplars.tracer.common.SpanContextSupplier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Prometheus直方图exemplar
+ * 记录耗时时取当前span的traceId/spanId作为所在桶的exemplar，从分位数尖刺可以直接跳转到代表性链路。
+ * 只有被采样器抽中(会导出)的span才作为exemplar，RECORD_ONLY的span在后端查不到，不予使用。
+ * HTTP服务端指标记录时的当前span在agent模式下由agent创建，sdk模式下由OpenTelemetryWebFilter创建
+ * (opentelemetry.server-span.enabled)，关闭后HTTP直方图没有exemplar。
+ * exemplar只在OpenMetrics格式中输出，Prometheus需开启exemplar-storage
+ */
+@Configuration
+public class ExemplarConfig {
+
+    @Bean
+    public ExemplarSampler exemplarSampler() {
+        return new DefaultExemplarSampler(new CurrentSpanContextSupplier());
+    }
+
+    static final class CurrentSpanContextSupplier implements SpanContextSupplier {
+
+        @Override
+        public String getTraceId() {
+            SpanContext spanContext = Span.current().getSpanContext();
+            return spanContext.isSampled() ? spanContext.getTraceId() : null;
+        }
+
+        @Override
+        public String getSpanId() {
+            SpanContext spanContext = Span.current().getSpanContext();
+            return spanContext.isSampled() ? spanContext.getSpanId() : null;
+        }
+
+        @Override
+        public boolean isSampled() {
+            return Span.current().getSpanContext().isSampled();
+        }
+    }
+}
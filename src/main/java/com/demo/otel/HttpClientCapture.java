@@ -0,0 +1,297 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import lombok.Data;
+import okio.Buffer;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 出站HTTP请求的请求头/请求体采集
+ * 读取opentelemetry.http-client配置，供OkHttp、WebClient和Hutool三种客户端共用。
+ * 属性名(http.request.header.&lt;小写名称&gt;)在启动时预先生成；请求体/响应体最多采集max-body-size字节，
+ * 写入Okio的池化Buffer，不会重新读取或缓存完整内容。采集关闭或主机未启用时只做一次判断。
+ * 采集结果写在客户端自己的span上: OkHttp/WebClient的span由{@link HttpClientSpans}创建，
+ * Hutool的span由TracedHutoolHttpUtil创建；agent模式下二者都是只为采集创建的capture span，
+ * 在响应体读完后才结束，Agent的客户端span上不写采集内容
+ */
+public class HttpClientCapture {
+
+    static final AttributeKey<String> REQUEST_BODY = AttributeKey.stringKey("http.request.body");
+    static final AttributeKey<String> RESPONSE_BODY = AttributeKey.stringKey("http.response.body");
+    static final AttributeKey<Boolean> REQUEST_BODY_TRUNCATED = AttributeKey.booleanKey("http.request.body.truncated");
+    static final AttributeKey<Boolean> RESPONSE_BODY_TRUNCATED = AttributeKey.booleanKey("http.response.body.truncated");
+
+    private static final List<String> REDACTED = List.of("[REDACTED]");
+    private static final int MAX_CACHED_HOSTS = 1024;
+
+    private final CaptureProperties properties;
+    private final boolean active;
+    private final Map<String, AttributeKey<List<String>>> requestHeaderKeys;
+    private final Map<String, AttributeKey<List<String>>> responseHeaderKeys;
+    private final Set<String> redactedHeaders;
+    private final Map<String, Boolean> hostDecisions = new ConcurrentHashMap<>();
+
+    public HttpClientCapture(CaptureProperties properties) {
+        this.properties = properties;
+        this.requestHeaderKeys = headerKeys("http.request.header.", properties.getCaptureRequestHeaders());
+        this.responseHeaderKeys = headerKeys("http.response.header.", properties.getCaptureResponseHeaders());
+        this.redactedHeaders = properties.getRedactedHeaders().stream()
+                .map(name -> name.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        this.active = properties.isCaptureEnabled()
+                && (!requestHeaderKeys.isEmpty() || !responseHeaderKeys.isEmpty()
+                || properties.isCaptureRequestBody() || properties.isCaptureResponseBody());
+    }
+
+    /**
+     * 不采集任何内容的实例
+     */
+    public static HttpClientCapture disabled() {
+        return new HttpClientCapture(new CaptureProperties());
+    }
+
+    private static Map<String, AttributeKey<List<String>>> headerKeys(String prefix, List<String> names) {
+        Map<String, AttributeKey<List<String>>> keys = new LinkedHashMap<>();
+        for (String name : names) {
+            String lowerCase = name.toLowerCase(Locale.ROOT);
+            keys.put(lowerCase, AttributeKey.stringArrayKey(prefix + lowerCase));
+        }
+        return keys;
+    }
+
+    /**
+     * 对该主机是否需要采集
+     */
+    public boolean isEnabledFor(String host) {
+        if (!active) {
+            return false;
+        }
+        if (host == null) {
+            return properties.getEnabledHosts().isEmpty();
+        }
+        Boolean decision = hostDecisions.get(host);
+        if (decision != null) {
+            return decision;
+        }
+        boolean enabled = (properties.getEnabledHosts().isEmpty() || matchesAny(host, properties.getEnabledHosts()))
+                && !matchesAny(host, properties.getDisabledHosts());
+        if (hostDecisions.size() < MAX_CACHED_HOSTS) {
+            hostDecisions.put(host, enabled);
+        }
+        return enabled;
+    }
+
+    // 支持精确匹配和*.example.com形式的后缀匹配
+    private static boolean matchesAny(String host, List<String> patterns) {
+        for (String pattern : patterns) {
+            if (pattern.startsWith("*.")
+                    ? host.regionMatches(true, host.length() - pattern.length() + 1, pattern, 1, pattern.length() - 1)
+                    : host.equalsIgnoreCase(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isCaptureRequestBody() {
+        return properties.isCaptureRequestBody();
+    }
+
+    public boolean isCaptureResponseBody() {
+        return properties.isCaptureResponseBody();
+    }
+
+    public int maxBodySize() {
+        return properties.getMaxBodySize();
+    }
+
+    public void captureRequestHeaders(Span span, Function<String, List<String>> headers) {
+        captureHeaders(span, requestHeaderKeys, headers);
+    }
+
+    public void captureResponseHeaders(Span span, Function<String, List<String>> headers) {
+        captureHeaders(span, responseHeaderKeys, headers);
+    }
+
+    private void captureHeaders(Span span, Map<String, AttributeKey<List<String>>> keys,
+                                Function<String, List<String>> headers) {
+        for (Map.Entry<String, AttributeKey<List<String>>> entry : keys.entrySet()) {
+            List<String> values = headers.apply(entry.getKey());
+            if (values != null && !values.isEmpty()) {
+                span.setAttribute(entry.getValue(), redactedHeaders.contains(entry.getKey()) ? REDACTED : values);
+            }
+        }
+    }
+
+    /**
+     * 创建有上限的请求体/响应体缓冲
+     */
+    public CapturedBody newBody() {
+        return new CapturedBody(properties.getMaxBodySize());
+    }
+
+    /**
+     * 流式采集的内容在读写完成时才记录，span已经结束(如调用方放弃了未读完的响应)时丢弃
+     */
+    public void recordRequestBody(Span span, CapturedBody body) {
+        if (!span.isRecording()) {
+            body.discard();
+            return;
+        }
+        span.setAttribute(REQUEST_BODY, body.text());
+        if (body.isTruncated()) {
+            span.setAttribute(REQUEST_BODY_TRUNCATED, true);
+        }
+    }
+
+    public void recordResponseBody(Span span, CapturedBody body) {
+        if (!span.isRecording()) {
+            body.discard();
+            return;
+        }
+        span.setAttribute(RESPONSE_BODY, body.text());
+        if (body.isTruncated()) {
+            span.setAttribute(RESPONSE_BODY_TRUNCATED, true);
+        }
+    }
+
+    /**
+     * 已在内存中的请求体/响应体(Hutool)，只解码前max-body-size字节
+     */
+    public void recordRequestBody(Span span, byte[] body) {
+        if (body != null) {
+            record(span, REQUEST_BODY, REQUEST_BODY_TRUNCATED, body, body.length);
+        }
+    }
+
+    public void recordRequestBody(Span span, String body) {
+        if (body != null) {
+            record(span, REQUEST_BODY, REQUEST_BODY_TRUNCATED, head(body), Utf8.encodedLength(body));
+        }
+    }
+
+    public void recordResponseBody(Span span, byte[] body) {
+        if (body != null) {
+            record(span, RESPONSE_BODY, RESPONSE_BODY_TRUNCATED, body, body.length);
+        }
+    }
+
+    public void recordResponseBody(Span span, String body) {
+        if (body != null) {
+            record(span, RESPONSE_BODY, RESPONSE_BODY_TRUNCATED, head(body), Utf8.encodedLength(body));
+        }
+    }
+
+    // 每个字符至少1字节，只编码前max-body-size个字符
+    private byte[] head(String body) {
+        int chars = Math.min(body.length(), maxBodySize());
+        return body.substring(0, chars).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void record(Span span, AttributeKey<String> key, AttributeKey<Boolean> truncatedKey,
+                        byte[] bytes, long totalLength) {
+        span.setAttribute(key, new String(bytes, 0, Math.min(bytes.length, maxBodySize()), StandardCharsets.UTF_8));
+        if (totalLength > maxBodySize()) {
+            span.setAttribute(truncatedKey, true);
+        }
+    }
+
+    /**
+     * 有上限的采集缓冲，数据存放在Okio Buffer中(段来自SegmentPool)，text()之后归还
+     */
+    public static final class CapturedBody {
+
+        private final int limit;
+        private final Buffer buffer = new Buffer();
+        private boolean truncated;
+
+        CapturedBody(int limit) {
+            this.limit = limit;
+        }
+
+        public boolean isFull() {
+            return buffer.size() >= limit;
+        }
+
+        /**
+         * 从source的offset处复制最多count字节，超出上限的部分只标记截断
+         */
+        public void append(Buffer source, long offset, long count) {
+            long take = Math.min(count, limit - buffer.size());
+            if (take > 0) {
+                source.copyTo(buffer, offset, take);
+            }
+            if (take < count) {
+                truncated = true;
+            }
+        }
+
+        /**
+         * 复制DataBuffer可读部分的前若干字节，不移动其读位置
+         */
+        public void append(DataBuffer source) {
+            int count = source.readableByteCount();
+            int take = (int) Math.min(count, limit - buffer.size());
+            int start = source.readPosition();
+            for (int i = 0; i < take; i++) {
+                buffer.writeByte(source.getByte(start + i));
+            }
+            if (take < count) {
+                truncated = true;
+            }
+        }
+
+        public void markTruncated() {
+            truncated = true;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public void discard() {
+            buffer.clear();
+        }
+
+        public String text() {
+            // 截断处可能切在多字节字符中间，解码时替换为U+FFFD
+            String text = buffer.readString(StandardCharsets.UTF_8);
+            buffer.clear();
+            return text;
+        }
+    }
+
+    /**
+     * 出站HTTP采集属性，对应opentelemetry.http-client
+     */
+    @Data
+    public static class CaptureProperties {
+        // 总开关，关闭时以下配置都不生效
+        private boolean captureEnabled = false;
+        private List<String> captureRequestHeaders = new ArrayList<>();
+        private List<String> captureResponseHeaders = new ArrayList<>();
+        private boolean captureRequestBody = false;
+        private boolean captureResponseBody = false;
+        // 最大记录的body大小(字节)
+        private int maxBodySize = 1024;
+        // 只对这些主机采集，为空表示全部主机；支持*.example.com
+        private List<String> enabledHosts = new ArrayList<>();
+        // 不采集的主机，优先于enabledHosts
+        private List<String> disabledHosts = new ArrayList<>();
+        // 只记录是否存在、不记录值的请求头
+        private List<String> redactedHeaders = new ArrayList<>(
+                List.of("Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie"));
+    }
+}
@@ -1,8 +1,8 @@
 package com.demo.otel;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -14,6 +14,7 @@ import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -32,7 +33,14 @@ public class HttpClientExampleService {
     private TracedHutoolHttpUtil tracedHutoolHttpUtil;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private JsonRequestBodies jsonRequestBodies;
+
+    // 下游地址，压测时指向本地模拟服务
+    @Value("${http.client.downstream.base-url:https://api.example.com}")
+    private String baseUrl;
+
+    @Value("${http.client.downstream.concurrent-base-urls:https://api1.example.com,https://api2.example.com,https://api3.example.com}")
+    private List<String> concurrentBaseUrls;
 
     /**
      * 使用RestTemplate发送HTTP请求 (推荐用于同步调用)
@@ -48,7 +56,7 @@ public class HttpClientExampleService {
         HttpEntity<Map<String, String>> entity = new HttpEntity<>(requestBody, headers);
 
         ResponseEntity<String> response = restTemplate.exchange(
-                "https://api.example.com/data",
+                baseUrl + "/data",
                 HttpMethod.POST,
                 entity,
                 String.class
@@ -66,9 +74,9 @@ public class HttpClientExampleService {
 
         return webClient
                 .post()
-                .uri("https://api.example.com/data")
+                .uri(baseUrl + "/data")
                 .header("Authorization", "Bearer token")
-                .bodyValue(requestBody)
+                .body(jsonRequestBodies.webClient(requestBody))
                 .retrieve()
                 .bodyToMono(String.class);
     }
@@ -80,16 +88,11 @@ public class HttpClientExampleService {
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("key", "value");
 
-        RequestBody body = RequestBody.create(
-                objectMapper.writeValueAsString(requestBody),
-                MediaType.parse("application/json")
-        );
-
+        // Jackson直接写入OkHttp的BufferedSink，不生成中间String
         Request request = new Request.Builder()
-                .url("https://api.example.com/data")
-                .post(body)
+                .url(baseUrl + "/data")
+                .post(jsonRequestBodies.okHttp(requestBody))
                 .addHeader("Authorization", "Bearer token")
-                .addHeader("Content-Type", "application/json")
                 .build();
 
         try (Response response = okHttpClient.newCall(request).execute()) {
@@ -105,19 +108,21 @@ public class HttpClientExampleService {
      */
     public String callExternalApiWithHutool() {
         // 简单GET请求
-        String getResult = tracedHutoolHttpUtil.get("https://api.example.com/data");
+        String getResult = tracedHutoolHttpUtil.get(baseUrl + "/data");
 
         // POST请求带参数
         Map<String, Object> params = new HashMap<>();
         params.put("key", "value");
-        String postResult = tracedHutoolHttpUtil.post("https://api.example.com/data", params);
+        String postResult = tracedHutoolHttpUtil.post(baseUrl + "/data", params);
 
         // 复杂请求构建
+        Map<String, String> requestBody = new HashMap<>();
+        requestBody.put("key", "value");
         String complexResult = tracedHutoolHttpUtil
-                .createRequest("POST", "https://api.example.com/data")
+                .createRequest("POST", baseUrl + "/data")
                 .header("Authorization", "Bearer token")
                 .header("Content-Type", "application/json")
-                .body("{\"key\":\"value\"}")
+                .body(jsonRequestBodies.bytes(requestBody))
                 .timeout(30000)
                 .execute();
 
@@ -130,17 +135,17 @@ public class HttpClientExampleService {
     public Map<String, String> callMultipleApisAsync() {
         // 使用WebClient进行并发调用
         Mono<String> api1 = webClient.get()
-                .uri("https://api1.example.com/data")
+                .uri(concurrentBaseUrls.get(0) + "/data")
                 .retrieve()
                 .bodyToMono(String.class);
 
         Mono<String> api2 = webClient.get()
-                .uri("https://api2.example.com/data")
+                .uri(concurrentBaseUrls.get(1) + "/data")
                 .retrieve()
                 .bodyToMono(String.class);
 
         Mono<String> api3 = webClient.get()
-                .uri("https://api3.example.com/data")
+                .uri(concurrentBaseUrls.get(2) + "/data")
                 .retrieve()
                 .bodyToMono(String.class);
 
@@ -162,7 +167,7 @@ public class HttpClientExampleService {
     public String callApiWithRetry() {
         return webClient
                 .get()
-                .uri("https://api.example.com/data")
+                .uri(baseUrl + "/data")
                 .retrieve()
                 .bodyToMono(String.class)
                 .retry(3) // 重试3次
@@ -176,7 +181,7 @@ public class HttpClientExampleService {
     public Mono<Void> streamLargeResponse() {
         return webClient
                 .get()
-                .uri("https://api.example.com/large-data")
+                .uri(baseUrl + "/large-data")
                 .retrieve()
                 .bodyToFlux(String.class)
                 .doOnNext(chunk -> {
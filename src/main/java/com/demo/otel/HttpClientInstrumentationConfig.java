@@ -1,9 +1,10 @@
 package com.demo.otel;
 
 import io.opentelemetry.api.OpenTelemetry;
-import io.opentelemetry.instrumentation.okhttp.v3_0.OkHttpTelemetry;
 import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -19,18 +20,47 @@ public class HttpClientInstrumentationConfig {
     @Autowired
     private OpenTelemetry openTelemetry;
 
+    @Value("${opentelemetry.mode.effective:sdk}")
+    private String mode;
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.http-client")
+    public HttpClientCapture.CaptureProperties httpClientCaptureProperties() {
+        return new HttpClientCapture.CaptureProperties();
+    }
+
+    /**
+     * 出站HTTP请求头/请求体采集，OkHttp、WebClient和Hutool共用
+     */
+    @Bean
+    public HttpClientCapture httpClientCapture(HttpClientCapture.CaptureProperties properties) {
+        return new HttpClientCapture(properties);
+    }
+
+    /**
+     * OkHttp/WebClient的出站span，sdk模式为CLIENT span，agent模式只为采集创建capture span
+     */
+    @Bean
+    public HttpClientSpans httpClientSpans(HttpClientCapture capture) {
+        return new HttpClientSpans(openTelemetry, mode, capture);
+    }
+
     /**
      * 配置原生OkHttp客户端
-     * OpenTelemetry Java Agent会自动为其添加追踪功能
+     * sdk模式下由OkHttpTracingInterceptor创建客户端span，agent模式下由Java Agent自动追踪
      */
     @Bean
     @Primary
-    public OkHttpClient instrumentedOkHttpClient() {
-        return new OkHttpClient.Builder()
+    public OkHttpClient instrumentedOkHttpClient(HttpClientSpans spans, HttpClientCapture capture) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .readTimeout(Duration.ofSeconds(30))
-                .writeTimeout(Duration.ofSeconds(30))
-                .build();
+                .writeTimeout(Duration.ofSeconds(30));
+        if (spans.isEnabled()) {
+            builder.addInterceptor(new OkHttpTracingInterceptor(spans))
+                    .addInterceptor(new OkHttpCaptureInterceptor(capture));
+        }
+        return builder.build();
     }
 
     /**
@@ -48,12 +78,17 @@ public class HttpClientInstrumentationConfig {
      * 配置WebClient - 响应式HTTP客户端
      */
     @Bean
-    public WebClient instrumentedWebClient(OkHttpClient okHttpClient) {
-        return WebClient.builder()
+    @Primary
+    public WebClient instrumentedWebClient(HttpClientSpans spans, HttpClientCapture capture) {
+        WebClient.Builder builder = WebClient.builder()
                 .codecs(configurer -> {
                     // 配置最大内存大小
                     configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024); // 10MB
-                })
-                .build();
+                });
+        if (spans.isEnabled()) {
+            builder.filter(new WebClientTracingFilter(spans))
+                    .filter(new WebClientCaptureFilter(capture));
+        }
+        return builder.build();
     }
 }
@@ -1,6 +1,5 @@
 package com.demo.otel;
 
-import io.opentelemetry.api.OpenTelemetry;
 import lombok.Data;
 import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
@@ -16,7 +15,6 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
 
 import java.time.Duration;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -30,11 +28,18 @@ public class HttpClientPerformanceConfig {
 
     /**
      * 高性能OkHttp客户端配置 - 使用原生API
-     * OpenTelemetry Java Agent会自动添加追踪功能
+     * sdk模式下由OkHttpTracingInterceptor创建客户端span，agent模式下由Java Agent自动追踪
      */
     @Bean("highPerformanceOkHttpClient")
-    public OkHttpClient highPerformanceOkHttpClient(HttpClientProperties properties) {
-        return new OkHttpClient.Builder()
+    public OkHttpClient highPerformanceOkHttpClient(HttpClientProperties properties,
+                                                    HttpClientSpans spans,
+                                                    HttpClientCapture capture) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        if (spans.isEnabled()) {
+            // 放在最外层，大小检查失败也记录在span上
+            builder.addInterceptor(new OkHttpTracingInterceptor(spans));
+        }
+        builder
                 // 连接池配置 - 重用连接提高性能
                 .connectionPool(new ConnectionPool(
                         properties.getMaxIdleConnections(),    // 最大空闲连接数
@@ -64,8 +69,11 @@ public class HttpClientPerformanceConfig {
                         }
                     }
                     return response;
-                })
-                .build();
+                });
+        if (spans.isEnabled()) {
+            builder.addInterceptor(new OkHttpCaptureInterceptor(capture));
+        }
+        return builder.build();
     }
 
     /**
@@ -91,8 +99,10 @@ public class HttpClientPerformanceConfig {
      * 高性能WebClient配置
      */
     @Bean
-    public WebClient highPerformanceWebClient(HttpClientProperties properties) {
-        return WebClient.builder()
+    public WebClient highPerformanceWebClient(HttpClientProperties properties,
+                                              HttpClientSpans spans,
+                                              HttpClientCapture capture) {
+        WebClient.Builder builder = WebClient.builder()
                 .clientConnector(
                         new ReactorClientHttpConnector(
                                 HttpClient.create()
@@ -105,8 +115,12 @@ public class HttpClientPerformanceConfig {
                 )
                 .codecs(configurer -> {
                     configurer.defaultCodecs().maxInMemorySize(properties.getMaxResponseSize());
-                })
-                .build();
+                });
+        if (spans.isEnabled()) {
+            builder.filter(new WebClientTracingFilter(spans))
+                    .filter(new WebClientCaptureFilter(capture));
+        }
+        return builder.build();
     }
 
     /**
@@ -132,13 +146,7 @@ public class HttpClientPerformanceConfig {
         // 大小限制
         private int maxResponseSize = 10 * 1024 * 1024; // 10MB
 
-        // 追踪配置
-        private List<String> capturedRequestHeaders = List.of(
-                "Authorization", "Content-Type", "Accept", "User-Agent"
-        );
-        private List<String> capturedResponseHeaders = List.of(
-                "Content-Type", "Content-Length", "Cache-Control"
-        );
+        // 请求头/请求体采集见opentelemetry.http-client(HttpClientCapture.CaptureProperties)
     }
 
     /**
@@ -0,0 +1,104 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+
+/**
+ * OkHttp/WebClient的出站span
+ * sdk模式下这两种客户端没有插桩，这里创建CLIENT span并注入追踪头；
+ * agent模式下客户端span由Agent创建且在收到响应头时结束，只对开启采集的主机创建INTERNAL的&lt;client&gt;.capture span，
+ * 承载请求头/请求体和响应体；off模式不创建。
+ * span在响应体读完或关闭时结束，采集到的响应体此时已经写入，调用方需要按客户端的要求关闭或消费响应体
+ */
+public class HttpClientSpans {
+
+    // WebClient的span放在请求属性中传给采集过滤器，响应式调用链上Span.current()不可靠
+    static final String SPAN_ATTRIBUTE = HttpClientSpans.class.getName() + ".SPAN";
+
+    private static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.request.method");
+    private static final AttributeKey<String> URL_FULL = AttributeKey.stringKey("url.full");
+    private static final AttributeKey<String> SERVER_ADDRESS = AttributeKey.stringKey("server.address");
+    private static final AttributeKey<Long> SERVER_PORT = AttributeKey.longKey("server.port");
+    private static final AttributeKey<Long> HTTP_STATUS = AttributeKey.longKey("http.response.status_code");
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+    private final HttpClientCapture capture;
+    private final boolean clientSpans;
+    private final boolean captureSpans;
+
+    public HttpClientSpans(OpenTelemetry openTelemetry, String mode, HttpClientCapture capture) {
+        this.tracer = openTelemetry.getTracer("http-client", "1.0.0");
+        this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+        this.capture = capture;
+        this.clientSpans = "sdk".equals(mode);
+        this.captureSpans = "agent".equals(mode);
+    }
+
+    /**
+     * OkHttp/WebClient在该模式下是否有客户端span(sdk模式由本类创建，agent模式由Agent创建)
+     */
+    public static boolean hasClientSpan(String effectiveMode) {
+        return "sdk".equals(effectiveMode) || "agent".equals(effectiveMode);
+    }
+
+    /**
+     * 当前模式下是否可能创建span，用于决定是否注册拦截器/过滤器
+     */
+    public boolean isEnabled() {
+        return clientSpans || captureSpans;
+    }
+
+    /**
+     * 以当前Context为父span开始，不需要span时返回null
+     */
+    public Span start(String client, String method, String url, String host, int port) {
+        String name;
+        SpanKind kind;
+        if (clientSpans) {
+            name = method;
+            kind = SpanKind.CLIENT;
+        } else if (captureSpans && capture.isEnabledFor(host)) {
+            name = client + ".capture";
+            kind = SpanKind.INTERNAL;
+        } else {
+            return null;
+        }
+        return tracer.spanBuilder(name)
+                .setSpanKind(kind)
+                .setAttribute(HTTP_METHOD, method)
+                .setAttribute(URL_FULL, url)
+                .setAttribute(SERVER_ADDRESS, host)
+                .setAttribute(SERVER_PORT, (long) port)
+                .setAttribute("http.client", client)
+                .startSpan();
+    }
+
+    /**
+     * 追踪头只在sdk模式下注入，agent模式由Agent注入
+     */
+    public <C> void inject(Context context, C carrier, TextMapSetter<C> setter) {
+        if (clientSpans) {
+            propagator.inject(context, carrier, setter);
+        }
+    }
+
+    public void onResponse(Span span, int status) {
+        span.setAttribute(HTTP_STATUS, (long) status);
+        if (status >= 400) {
+            span.setStatus(StatusCode.ERROR);
+        }
+    }
+
+    public void onError(Span span, Throwable error) {
+        span.recordException(error);
+        span.setStatus(StatusCode.ERROR, error.getMessage());
+    }
+}
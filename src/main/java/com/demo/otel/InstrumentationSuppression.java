@@ -0,0 +1,47 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.internal.InstrumentationUtil;
+import io.opentelemetry.context.Context;
+
+/**
+ * 在插桩层抑制追踪
+ * 被抑制的操作在Context中带上OpenTelemetry的抑制标记，JDBC/HTTP等插桩的Instrumenter在创建span之前检查该标记，
+ * 因此不会构建span、也不会填充属性；相比由采样器丢弃，省去了每次构建span的分配
+ */
+public final class InstrumentationSuppression {
+
+    private InstrumentationSuppression() {
+    }
+
+    public static boolean isSuppressed() {
+        return InstrumentationUtil.shouldSuppressInstrumentation(Context.current());
+    }
+
+    /**
+     * 在抑制追踪的Context中执行，异常原样抛出
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, E extends Throwable> T callSuppressed(SuppressedCall<T, E> call) throws E {
+        if (isSuppressed()) {
+            return call.call();
+        }
+        Object[] result = new Object[1];
+        Throwable[] error = new Throwable[1];
+        InstrumentationUtil.suppressInstrumentation(() -> {
+            try {
+                result[0] = call.call();
+            } catch (Throwable t) {
+                error[0] = t;
+            }
+        });
+        if (error[0] != null) {
+            throw (E) error[0];
+        }
+        return (T) result[0];
+    }
+
+    @FunctionalInterface
+    public interface SuppressedCall<T, E extends Throwable> {
+        T call() throws E;
+    }
+}
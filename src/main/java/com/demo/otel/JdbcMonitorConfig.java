@@ -0,0 +1,87 @@
+package com.demo.otel;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * JDBC语句监控配置
+ * 包装容器中的DataSource，MyBatis等上层组件无需改动；语句监控关闭时包装仍负责抑制校验语句的追踪
+ */
+@Configuration
+public class JdbcMonitorConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.jdbc.monitor")
+    public JdbcQueryMonitor.JdbcMonitorProperties jdbcMonitorProperties() {
+        return new JdbcQueryMonitor.JdbcMonitorProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.jdbc.monitor.enabled", havingValue = "true", matchIfMissing = true)
+    public JdbcQueryMonitor jdbcQueryMonitor(JdbcQueryMonitor.JdbcMonitorProperties properties,
+                                             MeterRegistry meterRegistry) {
+        return new JdbcQueryMonitor(properties, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.jdbc.monitor.enabled", havingValue = "true", matchIfMissing = true)
+    public SqlStatsEndpoint sqlStatsEndpoint(JdbcQueryMonitor jdbcQueryMonitor) {
+        return new SqlStatsEndpoint(jdbcQueryMonitor);
+    }
+
+    /**
+     * static方法声明，避免提前初始化配置类；监控组件在DataSource初始化完成后才延迟获取
+     */
+    @Bean
+    public static BeanPostProcessor jdbcMonitorDataSourcePostProcessor(
+            ObjectProvider<JdbcQueryMonitor> monitor,
+            ObjectProvider<SpanFilterConfig.ExcludedOperations> excludedOperations) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    suppressPoolValidation((HikariDataSource) bean, excludedOperations.getObject());
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof MonitoringDataSource)) {
+                    return new MonitoringDataSource((DataSource) bean, monitor.getIfAvailable(),
+                            excludedOperations.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Hikari的连接校验(isValid、connection-test-query)在池中的原始连接上执行，不经过外层的MonitoringDataSource；
+     * 在Hikari和驱动之间再包一层只做追踪抑制的MonitoringDataSource，必须在连接池启动前调用
+     */
+    static void suppressPoolValidation(HikariDataSource hikari, SpanFilterConfig.ExcludedOperations excludedOperations) {
+        DataSource target = hikari.getDataSource();
+        if (target instanceof MonitoringDataSource) {
+            return;
+        }
+        if (target == null) {
+            if (hikari.getJdbcUrl() == null) {
+                return;
+            }
+            // 与Hikari未指定dataSource时自行创建的一致
+            target = new DriverDataSource(hikari.getJdbcUrl(), hikari.getDriverClassName(),
+                    hikari.getDataSourceProperties(), hikari.getUsername(), hikari.getPassword());
+        }
+        hikari.setDataSource(new MonitoringDataSource(target, null, excludedOperations));
+    }
+}
@@ -0,0 +1,184 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC语句耗时统计
+ * 按归一化后的语句形状记录耗时直方图，采集超过阈值的慢语句(脱敏SQL + traceId)，
+ * 并在同一条链路内同一形状的语句执行超过N次时给当前span加上N+1事件。
+ * 结果通过actuator的sqlstats端点查看，不需要查询追踪后端
+ */
+public class JdbcQueryMonitor {
+
+    static final String OTHER_STATEMENT = "_other";
+
+    private static final AttributeKey<String> STATEMENT_SHAPE = AttributeKey.stringKey("db.statement.shape");
+    private static final AttributeKey<Long> EXECUTION_COUNT = AttributeKey.longKey("db.n_plus_one.count");
+
+    private final JdbcMonitorProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Deque<SlowStatement> slowStatements = new ArrayDeque<>();
+    private final Deque<NPlusOneFinding> nPlusOneFindings = new ArrayDeque<>();
+    private final Map<String, Map<String, Integer>> executionsByTrace;
+
+    public JdbcQueryMonitor(JdbcMonitorProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        int maxTraces = properties.getMaxTrackedTraces();
+        this.executionsByTrace = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Integer>> eldest) {
+                return size() > maxTraces;
+            }
+        };
+    }
+
+    /**
+     * 记录一次语句执行
+     */
+    public void record(String shape, long durationNanos) {
+        timer(shape).record(durationNanos, TimeUnit.NANOSECONDS);
+
+        SpanContext spanContext = Span.current().getSpanContext();
+        String traceId = spanContext.isValid() ? spanContext.getTraceId() : null;
+
+        if (durationNanos >= TimeUnit.MILLISECONDS.toNanos(properties.getSlowThresholdMs())) {
+            addBounded(slowStatements, new SlowStatement(Instant.now(), shape,
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos), traceId), properties.getMaxSlowStatements());
+        }
+
+        if (traceId != null) {
+            detectNPlusOne(traceId, shape);
+        }
+    }
+
+    private void detectNPlusOne(String traceId, String shape) {
+        int count;
+        synchronized (executionsByTrace) {
+            count = executionsByTrace.computeIfAbsent(traceId, id -> new ConcurrentHashMap<>())
+                    .merge(shape, 1, Integer::sum);
+        }
+        // 只在第一次超过阈值时标记，避免同一链路重复产生事件
+        if (count == properties.getNPlusOneThreshold() + 1) {
+            Span.current().addEvent("db.n_plus_one", Attributes.of(
+                    STATEMENT_SHAPE, shape,
+                    EXECUTION_COUNT, (long) count));
+            addBounded(nPlusOneFindings, new NPlusOneFinding(Instant.now(), traceId, shape),
+                    properties.getMaxSlowStatements());
+        }
+    }
+
+    private Timer timer(String shape) {
+        Timer timer = timers.get(shape);
+        if (timer != null) {
+            return timer;
+        }
+        // 限制语句形状数量，超出部分归入_other，避免指标基数失控
+        String key = timers.size() < properties.getMaxStatements() ? shape : OTHER_STATEMENT;
+        return timers.computeIfAbsent(key, statement -> Timer.builder("jdbc.statement.duration")
+                .description("JDBC statement execution time by normalized statement")
+                .tag("statement", statement.length() > 200 ? statement.substring(0, 200) : statement)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static <T> void addBounded(Deque<T> deque, T value, int max) {
+        synchronized (deque) {
+            deque.addFirst(value);
+            while (deque.size() > max) {
+                deque.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 按总耗时排序的语句统计
+     */
+    public List<Map<String, Object>> topStatements(int limit) {
+        return timers.entrySet().stream()
+                .sorted(Comparator.comparingDouble(
+                        (Map.Entry<String, Timer> e) -> e.getValue().totalTime(TimeUnit.MILLISECONDS)).reversed())
+                .limit(limit)
+                .map(e -> {
+                    Timer timer = e.getValue();
+                    Map<String, Object> stats = new LinkedHashMap<>();
+                    stats.put("statement", e.getKey());
+                    stats.put("count", timer.count());
+                    stats.put("totalMs", timer.totalTime(TimeUnit.MILLISECONDS));
+                    stats.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+                    stats.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+                    for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                        stats.put("p" + Math.round(percentile.percentile() * 100) + "Ms",
+                                percentile.value(TimeUnit.MILLISECONDS));
+                    }
+                    return stats;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public List<SlowStatement> slowStatements() {
+        synchronized (slowStatements) {
+            return new ArrayList<>(slowStatements);
+        }
+    }
+
+    public List<NPlusOneFinding> nPlusOneFindings() {
+        synchronized (nPlusOneFindings) {
+            return new ArrayList<>(nPlusOneFindings);
+        }
+    }
+
+    @Data
+    public static class SlowStatement {
+        private final Instant timestamp;
+        private final String statement;
+        private final long durationMs;
+        private final String traceId;
+    }
+
+    @Data
+    public static class NPlusOneFinding {
+        private final Instant timestamp;
+        private final String traceId;
+        private final String statement;
+    }
+
+    /**
+     * JDBC监控属性
+     */
+    @Data
+    public static class JdbcMonitorProperties {
+        private boolean enabled = true;
+        // 慢语句阈值
+        private long slowThresholdMs = 500;
+        // 同一链路同一语句形状执行超过该次数视为N+1
+        private int nPlusOneThreshold = 10;
+        // 语句形状数量上限
+        private int maxStatements = 200;
+        // 保留的慢语句/N+1记录条数
+        private int maxSlowStatements = 100;
+        // 同时跟踪的链路数量
+        private int maxTrackedTraces = 10000;
+    }
+}
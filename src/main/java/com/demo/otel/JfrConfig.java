@@ -0,0 +1,39 @@
+package com.demo.otel;
+
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JFR与span关联，默认关闭
+ * span事件由SpanProcessor产生，只在sdk模式下可用；录制端点在各模式下都可用
+ */
+@Configuration
+@ConditionalOnProperty(name = "opentelemetry.jfr.enabled", havingValue = "true")
+public class JfrConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.jfr")
+    public JfrTraceRecorder.JfrProperties jfrProperties() {
+        return new JfrTraceRecorder.JfrProperties();
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${opentelemetry.mode.effective:sdk}' == 'sdk'")
+    public SpanProcessor jfrSpanProcessor(JfrTraceRecorder.JfrProperties properties) {
+        return new JfrSpanProcessor(properties.getMaxOpenSpans());
+    }
+
+    @Bean
+    public JfrTraceRecorder jfrTraceRecorder(JfrTraceRecorder.JfrProperties properties) {
+        return new JfrTraceRecorder(properties);
+    }
+
+    @Bean
+    public JfrEndpoint jfrEndpoint(JfrTraceRecorder jfrTraceRecorder) {
+        return new JfrEndpoint(jfrTraceRecorder);
+    }
+}
@@ -0,0 +1,55 @@
+package com.demo.otel;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * JFR录制端点: /actuator/jfr
+ * POST开始录制(durationSeconds，受max-duration限制)，GET查看状态，
+ * GET /actuator/jfr/{traceId}导出录制并返回该trace的span及关联的采样，DELETE停止并丢弃录制
+ */
+@Endpoint(id = "jfr")
+public class JfrEndpoint {
+
+    private final JfrTraceRecorder recorder;
+
+    public JfrEndpoint(JfrTraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return recorder.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable Integer durationSeconds) {
+        try {
+            return recorder.start(durationSeconds);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @ReadOperation
+    public Map<String, Object> dump(@Selector String traceId) {
+        try {
+            return recorder.dump(traceId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DeleteOperation
+    public Map<String, Object> stop() {
+        return recorder.stop();
+    }
+}
@@ -0,0 +1,74 @@
+package com.demo.otel;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import jdk.jfr.EventType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在span开始和结束时记录JFR事件
+ * 覆盖同一TracerProvider下的全部tracer(custom-tracer、rqueue-instrumentation、hutool-http-client等)。
+ * 没有JFR录制启用该事件时只做一次volatile读，不分配对象；
+ * 未结束的span数量超过上限时不再记录，避免span泄漏时占用内存
+ */
+public class JfrSpanProcessor implements SpanProcessor {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(SpanJfrEvent.class);
+
+    private final int maxOpenSpans;
+    private final Map<ReadableSpan, SpanJfrEvent> openEvents = new ConcurrentHashMap<>();
+
+    public JfrSpanProcessor(int maxOpenSpans) {
+        this.maxOpenSpans = maxOpenSpans;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        if (!EVENT_TYPE.isEnabled() || openEvents.size() >= maxOpenSpans) {
+            return;
+        }
+        SpanJfrEvent event = new SpanJfrEvent();
+        event.traceId = span.getSpanContext().getTraceId();
+        event.spanId = span.getSpanContext().getSpanId();
+        event.parentSpanId = span.getParentSpanContext().isValid() ? span.getParentSpanContext().getSpanId() : null;
+        event.name = span.getName();
+        event.kind = span.getKind().name();
+        event.scope = span.getInstrumentationScopeInfo().getName();
+        // 异步span可能在其他线程结束，导出时只关联开始和结束在同一线程的span
+        event.startThreadId = Thread.currentThread().getId();
+        event.begin();
+        openEvents.put(span, event);
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return true;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (openEvents.isEmpty()) {
+            return;
+        }
+        SpanJfrEvent event = openEvents.remove(span);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            // span名称可能在开始后被修改
+            event.name = span.getName();
+            event.status = span.toSpanData().getStatus().getStatusCode().name();
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+}
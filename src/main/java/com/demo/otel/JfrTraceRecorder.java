@@ -0,0 +1,276 @@
+package com.demo.otel;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.Data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 有时间上限的JFR录制，按traceId导出
+ * start开启一次带span事件的录制，到达时长后自动停止；dump把录制写到文件，
+ * 再找出该trace的span事件，并按span的线程和时间窗口挑出期间的CPU采样和锁/等待事件。
+ * 开始和结束在不同线程的异步span，开始线程在窗口内还会执行其他请求，这类span不做关联，结果中correlated为false。
+ * 完整的.jfr文件保留在输出目录，可以用JMC打开查看；同一trace重复导出时覆盖，
+ * 目录中只保留最近的maxDumpFiles个文件
+ */
+public class JfrTraceRecorder {
+
+    private static final Set<String> CORRELATED_EVENTS = Set.of(
+            "jdk.ExecutionSample", "jdk.JavaMonitorEnter", "jdk.JavaMonitorWait",
+            "jdk.ThreadPark", "jdk.SocketRead", "jdk.SocketWrite");
+    private static final int TOP_FRAMES = 10;
+    private static final Pattern TRACE_ID = Pattern.compile("[0-9a-f]{32}");
+    private static final Pattern DUMP_FILE = Pattern.compile("trace-[0-9a-f]{32}(-\\d+)?\\.jfr");
+
+    private final JfrProperties properties;
+    private Recording recording;
+
+    public JfrTraceRecorder(JfrProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 开始录制；已有录制在进行时直接返回其状态
+     */
+    public synchronized Map<String, Object> start(Integer durationSeconds) throws IOException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return status();
+        }
+        close();
+        Duration duration = durationSeconds != null && durationSeconds > 0
+                ? Duration.ofSeconds(durationSeconds) : properties.getMaxDuration();
+        if (duration.compareTo(properties.getMaxDuration()) > 0) {
+            duration = properties.getMaxDuration();
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(properties.getSettings());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid JFR settings: " + properties.getSettings(), e);
+        }
+        Recording newRecording = new Recording(configuration);
+        newRecording.setName("otel-trace-recording");
+        newRecording.enable(SpanJfrEvent.NAME).withThreshold(Duration.ZERO);
+        newRecording.setToDisk(true);
+        newRecording.setDuration(duration);
+        newRecording.start();
+        recording = newRecording;
+        return status();
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState().name());
+        status.put("settings", properties.getSettings());
+        status.put("startTime", String.valueOf(recording.getStartTime()));
+        status.put("duration", String.valueOf(recording.getDuration()));
+        return status;
+    }
+
+    public synchronized Map<String, Object> stop() {
+        close();
+        return status();
+    }
+
+    /**
+     * 导出当前(或最近一次)录制，返回指定trace的span及期间同线程的采样和锁事件
+     */
+    public Map<String, Object> dump(String traceId) throws IOException {
+        // traceId会拼进文件名
+        if (!TRACE_ID.matcher(traceId).matches()) {
+            throw new IllegalArgumentException("Invalid trace id: " + traceId);
+        }
+        Path file;
+        synchronized (this) {
+            if (recording == null || recording.getState() == RecordingState.CLOSED) {
+                throw new IllegalStateException("No JFR recording, start one first");
+            }
+            Path directory = Paths.get(properties.getOutputDirectory());
+            Files.createDirectories(directory);
+            file = directory.resolve("trace-" + traceId + ".jfr");
+            Files.deleteIfExists(file);
+            recording.dump(file);
+            pruneDumps(directory, file);
+        }
+
+        // 录制文件可能较大，两遍流式读取: 先找span，再关联其他事件
+        List<SpanWindow> spans = new ArrayList<>();
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                if (SpanJfrEvent.NAME.equals(event.getEventType().getName())
+                        && traceId.equals(event.getString("traceId"))) {
+                    spans.add(new SpanWindow(event));
+                }
+            }
+        }
+
+        if (!spans.isEmpty()) {
+            try (RecordingFile recordingFile = new RecordingFile(file)) {
+                while (recordingFile.hasMoreEvents()) {
+                    RecordedEvent event = recordingFile.readEvent();
+                    if (!CORRELATED_EVENTS.contains(event.getEventType().getName())) {
+                        continue;
+                    }
+                    RecordedThread thread = event.getEventType().getName().equals("jdk.ExecutionSample")
+                            ? event.getThread("sampledThread") : event.getThread();
+                    if (thread == null) {
+                        continue;
+                    }
+                    for (SpanWindow span : spans) {
+                        if (span.contains(thread.getJavaThreadId(), event.getStartTime())) {
+                            span.add(event);
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("traceId", traceId);
+        result.put("file", file.toAbsolutePath().toString());
+        result.put("spans", spans.stream().map(SpanWindow::describe).collect(Collectors.toList()));
+        return result;
+    }
+
+    /**
+     * 删除最旧的导出文件，只保留maxDumpFiles个
+     */
+    private void pruneDumps(Path directory, Path current) throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(directory)) {
+            dumps = files.filter(path -> !path.equals(current))
+                    .filter(path -> DUMP_FILE.matcher(path.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing(JfrTraceRecorder::lastModified).reversed())
+                    .collect(Collectors.toList());
+        }
+        int keep = Math.max(properties.getMaxDumpFiles() - 1, 0);
+        for (Path old : dumps.subList(Math.min(keep, dumps.size()), dumps.size())) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * 一个span在某个线程上的时间窗口及期间的事件
+     */
+    private static final class SpanWindow {
+        private final RecordedEvent span;
+        // 异步span为-1，不关联任何事件
+        private final long threadId;
+        private final Map<String, Integer> topFrames = new LinkedHashMap<>();
+        private final Map<String, Long> blockedNanos = new LinkedHashMap<>();
+        private int samples;
+
+        SpanWindow(RecordedEvent span) {
+            this.span = span;
+            // 事件线程为结束span的线程；旧录制中没有startThreadId时按同一线程处理
+            long endThreadId = span.getThread() != null ? span.getThread().getJavaThreadId() : -1;
+            if (span.hasField("startThreadId") && span.getLong("startThreadId") != endThreadId) {
+                this.threadId = -1;
+            } else {
+                this.threadId = endThreadId;
+            }
+        }
+
+        boolean contains(long eventThreadId, Instant time) {
+            return threadId != -1 && eventThreadId == threadId
+                    && !time.isBefore(span.getStartTime()) && !time.isAfter(span.getEndTime());
+        }
+
+        void add(RecordedEvent event) {
+            String type = event.getEventType().getName();
+            if ("jdk.ExecutionSample".equals(type)) {
+                samples++;
+                RecordedStackTrace stackTrace = event.getStackTrace();
+                if (stackTrace != null && !stackTrace.getFrames().isEmpty()) {
+                    RecordedFrame frame = stackTrace.getFrames().get(0);
+                    topFrames.merge(frame.getMethod().getType().getName() + "." + frame.getMethod().getName(),
+                            1, Integer::sum);
+                }
+            } else {
+                blockedNanos.merge(type, event.getDuration().toNanos(), Long::sum);
+            }
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("name", span.getString("name"));
+            result.put("spanId", span.getString("spanId"));
+            result.put("parentSpanId", span.getString("parentSpanId"));
+            result.put("status", span.getString("status"));
+            result.put("thread", span.getThread() != null ? span.getThread().getJavaName() : null);
+            result.put("start", span.getStartTime().toString());
+            result.put("durationMs", span.getDuration().toNanos() / 1e6);
+            result.put("correlated", threadId != -1);
+            result.put("cpuSamples", samples);
+            result.put("topFrames", topFrames.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .limit(TOP_FRAMES)
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new)));
+            Map<String, Double> blocked = new LinkedHashMap<>();
+            blockedNanos.forEach((type, nanos) -> blocked.put(type, nanos / 1e6));
+            result.put("blockedMs", blocked);
+            return result;
+        }
+    }
+
+    /**
+     * JFR属性
+     */
+    @Data
+    public static class JfrProperties {
+        private boolean enabled = false;
+        // JFR内置配置: default(开销约1%) / profile(采样更密，开销约2%)
+        private String settings = "profile";
+        // 单次录制的最长时间
+        private Duration maxDuration = Duration.ofMinutes(5);
+        // .jfr文件输出目录
+        private String outputDirectory = System.getProperty("java.io.tmpdir") + "/otel-jfr";
+        // 输出目录中保留的导出文件数量
+        private int maxDumpFiles = 20;
+        // 未结束的span事件数量上限
+        private int maxOpenSpans = 10000;
+    }
+}
@@ -0,0 +1,155 @@
+package com.demo.otel;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.opentelemetry.api.trace.Span;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 流式JSON请求体
+ * Jackson直接写到OkHttp的BufferedSink或Netty的DataBuffer，不生成中间String/byte[]：
+ * Jackson内部缓冲来自BufferRecycler，Okio使用SegmentPool，Netty使用池化的ByteBuf分配器。
+ * 写出的字节数记录在OkHttp客户端span的http.request.body.size上；off模式下OkHttp没有客户端span，
+ * 当前span是外层span，不记录(见{@link HttpClientSpans#hasClientSpan})
+ */
+@Component
+public class JsonRequestBodies {
+
+    static final String BODY_SIZE = "http.request.body.size";
+
+    private static final okhttp3.MediaType OKHTTP_JSON = okhttp3.MediaType.get("application/json; charset=utf-8");
+
+    // 由OkHttp/Netty负责关闭输出流
+    private final ObjectWriter writer;
+    private final boolean recordBodySize;
+
+    public JsonRequestBodies(ObjectMapper objectMapper,
+                             @Value("${opentelemetry.mode.effective:sdk}") String mode) {
+        this.writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.recordBodySize = HttpClientSpans.hasClientSpan(mode);
+    }
+
+    /**
+     * OkHttp请求体，分块传输；OkHttp重试时会重新序列化
+     */
+    public JsonRequestBody okHttp(Object value) {
+        return new JsonRequestBody(writer, value, recordBodySize);
+    }
+
+    /**
+     * WebClient请求体，序列化到一个池化DataBuffer后设置准确的Content-Length
+     */
+    public BodyInserter<Object, ReactiveHttpOutputMessage> webClient(Object value) {
+        // 与Spring的EncoderHttpMessageWriter一致: 先序列化，再在提交请求头之前设置Content-Length
+        return (message, context) -> Mono.fromCallable(() -> serialize(message.bufferFactory(), value))
+                .flatMap(buffer -> {
+                    message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    message.getHeaders().setContentLength(buffer.readableByteCount());
+                    return message.writeWith(Mono.just(buffer)
+                            .doOnDiscard(DataBuffer.class, DataBufferUtils::release));
+                });
+    }
+
+    private DataBuffer serialize(DataBufferFactory bufferFactory, Object value) throws IOException {
+        DataBuffer buffer = bufferFactory.allocateBuffer(256);
+        boolean release = true;
+        try (OutputStream out = buffer.asOutputStream()) {
+            writer.writeValue(out, value);
+            release = false;
+            return buffer;
+        } finally {
+            if (release) {
+                DataBufferUtils.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * 序列化为UTF-8字节，供只接受完整请求体的客户端(Hutool)使用，仍然跳过中间String
+     */
+    public byte[] bytes(Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static final class JsonRequestBody extends RequestBody {
+
+        private final ObjectWriter writer;
+        private final Object value;
+        private final boolean recordBodySize;
+        private volatile long bytesWritten = -1;
+
+        JsonRequestBody(ObjectWriter writer, Object value, boolean recordBodySize) {
+            this.writer = writer;
+            this.value = value;
+            this.recordBodySize = recordBodySize;
+        }
+
+        @Override
+        public okhttp3.MediaType contentType() {
+            return OKHTTP_JSON;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            CountingOutputStream out = new CountingOutputStream(sink.outputStream());
+            writer.writeValue(out, value);
+            bytesWritten = out.count;
+            if (recordBodySize) {
+                // 写请求体时OkHttp客户端span是当前span
+                Span span = Span.current();
+                if (span.isRecording()) {
+                    span.setAttribute(BODY_SIZE, out.count);
+                }
+            }
+        }
+
+        /**
+         * 最近一次写出的字节数，尚未发送时为-1
+         */
+        public long bytesWritten() {
+            return bytesWritten;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        // FilterOutputStream默认逐字节转发，这里整块写出
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
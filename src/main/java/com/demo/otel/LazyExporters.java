@@ -0,0 +1,110 @@
+package com.demo.otel;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 延迟初始化的OTLP导出器
+ * 导出器(gRPC/HTTP客户端、TLS上下文)在后台线程中创建，与Spring容器启动并行，不阻塞就绪。
+ * 创建完成前产生的span/日志留在BatchSpanProcessor/BatchLogRecordProcessor的队列中，
+ * 第一次导出等待创建完成(受导出超时限制)；创建失败时导出返回失败，批处理器按原逻辑丢弃该批
+ */
+final class LazyExporters {
+
+    private static final Logger log = LoggerFactory.getLogger(LazyExporters.class);
+
+    private LazyExporters() {
+    }
+
+    static SpanExporter spanExporter(Supplier<SpanExporter> factory) {
+        Lazy<SpanExporter> lazy = new Lazy<>("span", factory);
+        return new SpanExporter() {
+            @Override
+            public CompletableResultCode export(Collection<SpanData> spans) {
+                return lazy.apply(exporter -> exporter.export(spans));
+            }
+
+            @Override
+            public CompletableResultCode flush() {
+                return lazy.apply(SpanExporter::flush);
+            }
+
+            @Override
+            public CompletableResultCode shutdown() {
+                return lazy.apply(SpanExporter::shutdown);
+            }
+        };
+    }
+
+    static LogRecordExporter logRecordExporter(Supplier<LogRecordExporter> factory) {
+        Lazy<LogRecordExporter> lazy = new Lazy<>("log", factory);
+        return new LogRecordExporter() {
+            @Override
+            public CompletableResultCode export(Collection<LogRecordData> logs) {
+                return lazy.apply(exporter -> exporter.export(logs));
+            }
+
+            @Override
+            public CompletableResultCode flush() {
+                return lazy.apply(LogRecordExporter::flush);
+            }
+
+            @Override
+            public CompletableResultCode shutdown() {
+                return lazy.apply(LogRecordExporter::shutdown);
+            }
+        };
+    }
+
+    private static final class Lazy<T> {
+
+        private final CompletableFuture<T> delegate = new CompletableFuture<>();
+
+        Lazy(String name, Supplier<T> factory) {
+            Thread thread = new Thread(() -> {
+                try {
+                    delegate.complete(factory.get());
+                } catch (Throwable e) {
+                    log.warn("Failed to create OTLP {} exporter: {}", name, e.getMessage());
+                    delegate.completeExceptionally(e);
+                }
+            }, "otel-" + name + "-exporter-init");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        CompletableResultCode apply(Function<T, CompletableResultCode> action) {
+            if (delegate.isDone()) {
+                return delegate.isCompletedExceptionally()
+                        ? CompletableResultCode.ofFailure()
+                        : action.apply(delegate.join());
+            }
+            CompletableResultCode result = new CompletableResultCode();
+            delegate.whenComplete((exporter, error) -> {
+                if (error != null) {
+                    result.fail();
+                    return;
+                }
+                CompletableResultCode inner = action.apply(exporter);
+                inner.whenComplete(() -> {
+                    if (inner.isSuccess()) {
+                        result.succeed();
+                    } else {
+                        result.fail();
+                    }
+                });
+            });
+            return result;
+        }
+    }
+}
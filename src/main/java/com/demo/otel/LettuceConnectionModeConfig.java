@@ -0,0 +1,160 @@
+package com.demo.otel;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.event.command.CommandFailedEvent;
+import io.lettuce.core.event.command.CommandListener;
+import io.lettuce.core.event.command.CommandStartedEvent;
+import io.lettuce.core.event.command.CommandSucceededEvent;
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.lettuce.core.resource.NettyCustomizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.ClientResourcesBuilderCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lettuce连接模式和命令指标
+ * default: 不改动LettuceConnectionFactory，保持Spring Boot默认行为: 普通命令共享一条原生连接，
+ *          阻塞命令(BLPOP等)和事务从spring.data.redis.lettuce.pool借用独占连接
+ * pooled:  关闭原生连接共享，每次操作都从连接池借用连接，并发上限即pool.max-active(Rqueue的命令也在其中)
+ * shared:  在default的基础上由Netty层合并flush，高并发时多个命令在一次写出中发送
+ * 所有模式都发布每个命令的耗时直方图(lettuce.command.completion/firstresponse)和在途命令数
+ */
+@Configuration
+public class LettuceConnectionModeConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(LettuceConnectionModeConfig.class);
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.redis")
+    public RedisConnectionProperties redisConnectionProperties() {
+        return new RedisConnectionProperties();
+    }
+
+    /**
+     * 覆盖Spring Boot默认的MicrometerOptions，开启直方图以便计算分位数
+     */
+    @Bean
+    public MicrometerOptions micrometerOptions(RedisConnectionProperties properties) {
+        return MicrometerOptions.builder()
+                .histogram(true)
+                .targetPercentiles(new double[]{0.5, 0.95, 0.99})
+                .maxLatency(properties.getMaxExpectedLatency())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.redis.connection-mode", havingValue = "shared")
+    public ClientResourcesBuilderCustomizer flushConsolidationCustomizer(RedisConnectionProperties properties) {
+        int explicitFlushAfterFlushes = properties.getFlushConsolidationLimit();
+        return builder -> builder.nettyCustomizer(new NettyCustomizer() {
+            @Override
+            public void afterChannelInitialized(Channel channel) {
+                // 非I/O线程写入的flush交给事件循环合并执行，连续的命令在一次系统调用中写出
+                channel.pipeline().addFirst(new FlushConsolidationHandler(explicitFlushAfterFlushes, true));
+            }
+        });
+    }
+
+    /**
+     * 仅在模式明确要求时修改连接共享方式，并在客户端创建后注册在途命令计数
+     */
+    @Bean
+    public static BeanPostProcessor lettuceConnectionModePostProcessor(
+            ObjectProvider<RedisConnectionProperties> properties,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof LettuceConnectionFactory) {
+                    RedisConnectionProperties connection = properties.getObject();
+                    if (connection.isPooled()) {
+                        ((LettuceConnectionFactory) bean).setShareNativeConnection(false);
+                    } else if (connection.isShared()) {
+                        // 只影响显式的executePipelined: 管道内的命令每N条flush一次，普通命令不受影响
+                        ((LettuceConnectionFactory) bean).setPipeliningFlushPolicy(
+                                LettuceConnection.PipeliningFlushPolicy.buffered(connection.getFlushConsolidationLimit()));
+                    }
+                    log.info("Lettuce connection mode: {}", connection.getConnectionMode());
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof LettuceConnectionFactory) {
+                    AbstractRedisClient client = ((LettuceConnectionFactory) bean).getNativeClient();
+                    if (client != null) {
+                        client.addListener(new InFlightCommandListener(meterRegistry.getObject()));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 在途命令数：已写出、尚未收到响应的命令
+     */
+    static final class InFlightCommandListener implements CommandListener {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        InFlightCommandListener(MeterRegistry meterRegistry) {
+            Gauge.builder("lettuce.command.in_flight", inFlight, AtomicInteger::get)
+                    .description("Redis commands sent and awaiting a response")
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            inFlight.incrementAndGet();
+        }
+
+        @Override
+        public void commandSucceeded(CommandSucceededEvent event) {
+            inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void commandFailed(CommandFailedEvent event) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Redis连接属性
+     */
+    @Data
+    public static class RedisConnectionProperties {
+        // default / pooled / shared
+        private String connectionMode = "default";
+        // shared模式: 累计多少次flush后强制写出，避免低并发时命令被延迟；同时作为executePipelined的flush批量
+        private int flushConsolidationLimit = 256;
+        // 直方图覆盖的最大耗时
+        private Duration maxExpectedLatency = Duration.ofSeconds(5);
+
+        public boolean isPooled() {
+            return "pooled".equalsIgnoreCase(connectionMode);
+        }
+
+        public boolean isShared() {
+            return "shared".equalsIgnoreCase(connectionMode);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.instrumentation.lettuce.v5_1.LettuceTelemetry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.ClientResourcesBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lettuce客户端追踪配置
+ * Spring Boot创建的ClientResources使用OpenTelemetry的Lettuce追踪，PING等命令在插桩层跳过；
+ * agent模式下由Agent插桩Lettuce，这里不再装配
+ */
+@Configuration
+@ConditionalOnProperty(name = "opentelemetry.instrumentation.lettuce.enabled", havingValue = "true", matchIfMissing = true)
+public class LettuceTracingConfig {
+
+    @Bean
+    public ClientResourcesBuilderCustomizer lettuceTracingCustomizer(
+            OpenTelemetry openTelemetry,
+            SpanFilterConfig.ExcludedOperations excludedOperations) {
+        SuppressingLettuceTracing tracing = new SuppressingLettuceTracing(
+                LettuceTelemetry.create(openTelemetry).newTracing(), excludedOperations);
+        return builder -> builder.tracing(tracing);
+    }
+}
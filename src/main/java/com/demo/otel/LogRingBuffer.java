@@ -0,0 +1,94 @@
+package com.demo.otel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁环形队列(多生产者、单消费者)
+ * 每个槽位带序号，生产者CAS抢占写入位置，不使用锁；队列满时offer直接返回false，调用线程不会阻塞。
+ * 低优先级元素只能使用容量的一部分，剩余空间留给高优先级元素，队列接近满时优先保留后者
+ */
+public class LogRingBuffer<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final int lowPriorityLimit;
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity      容量，向上取整为2的幂
+     * @param reservedRatio 为高优先级元素保留的容量比例
+     */
+    public LogRingBuffer(int capacity, double reservedRatio) {
+        int size = Math.max(2, Integer.highestOneBit(capacity));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.lowPriorityLimit = Math.max(1, (int) (size * (1 - reservedRatio)));
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(T item, boolean highPriority) {
+        int limit = highPriority ? capacity : lowPriorityLimit;
+        while (true) {
+            long position = tail.get();
+            if (position - head.get() >= limit) {
+                return false;
+            }
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, item);
+                    // 序号+1表示槽位已写好，消费者可以读取
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // 消费者还没腾出该槽位
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 只能由单个消费线程调用
+     */
+    public int drain(Consumer<T> consumer, int max) {
+        int drained = 0;
+        long position = head.get();
+        while (drained < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            T item = items.get(index);
+            items.set(index, null);
+            sequences.set(index, position + capacity);
+            position++;
+            head.set(position);
+            consumer.accept(item);
+            drained++;
+        }
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,67 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextStorage;
+import io.opentelemetry.context.Scope;
+import org.slf4j.MDC;
+
+/**
+ * 让MDC中的traceId/spanId始终跟随当前OpenTelemetry Context
+ * 不使用Java Agent时没有组件负责填充MDC，日志格式中的[%X{traceId},%X{spanId}]会为空；
+ * 在Context切换时同步MDC，平台线程和虚拟线程下都能得到正确的关联信息
+ */
+public class MdcContextStorage implements ContextStorage {
+
+    static final String TRACE_ID = "traceId";
+    static final String SPAN_ID = "spanId";
+
+    private final ContextStorage delegate;
+
+    public MdcContextStorage(ContextStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 必须在第一次使用Context之前调用
+     */
+    public static void install() {
+        ContextStorage.addWrapper(MdcContextStorage::new);
+    }
+
+    @Override
+    public Scope attach(Context toAttach) {
+        String previousTraceId = MDC.get(TRACE_ID);
+        String previousSpanId = MDC.get(SPAN_ID);
+
+        SpanContext spanContext = Span.fromContext(toAttach).getSpanContext();
+        if (spanContext.isValid()) {
+            MDC.put(TRACE_ID, spanContext.getTraceId());
+            MDC.put(SPAN_ID, spanContext.getSpanId());
+        } else {
+            MDC.remove(TRACE_ID);
+            MDC.remove(SPAN_ID);
+        }
+
+        Scope scope = delegate.attach(toAttach);
+        return () -> {
+            scope.close();
+            restore(TRACE_ID, previousTraceId);
+            restore(SPAN_ID, previousSpanId);
+        };
+    }
+
+    @Override
+    public Context current() {
+        return delegate.current();
+    }
+
+    private static void restore(String key, String value) {
+        if (value != null) {
+            MDC.put(key, value);
+        } else {
+            MDC.remove(key);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RQueue批量消费聚合器
+ * 每次监听方法调用提交一条消息并阻塞等待，凑满maxSize条或等待maxWaitMs后整批交给处理器。
+ * 每条消息的结果单独返回给各自的监听调用，因此ACK和重试仍然按消息进行；
+ * 整批只产生一个处理span，并通过span link关联每条消息的生产者上下文(批量队列的中间件不再为每条消息创建span)。
+ * 第一个到达的线程超时或被中断时都会刷新批次。
+ * 批次开始处理前等待超过resultTimeoutMs的消息从批次中撤回，抛出TimeoutException由RQueue重试；
+ * 已开始处理的消息继续等待批次结果，不会在处理过程中被RQueue重试而重复处理
+ */
+public class MessageBatcher<T> {
+
+    private static final int PENDING = 0;
+    private static final int CLAIMED = 1;
+    private static final int WITHDRAWN = 2;
+
+    private final Tracer tracer;
+    private final String queueName;
+    private final int maxSize;
+    private final long maxWaitMs;
+    private final long resultTimeoutMs;
+    private final BatchHandler<T> handler;
+
+    private Batch<T> current = new Batch<>();
+
+    public MessageBatcher(Tracer tracer, String queueName, int maxSize, long maxWaitMs, long resultTimeoutMs,
+                          BatchHandler<T> handler) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.tracer = tracer;
+        this.queueName = queueName;
+        this.maxSize = maxSize;
+        this.maxWaitMs = maxWaitMs;
+        this.resultTimeoutMs = resultTimeoutMs;
+        this.handler = handler;
+    }
+
+    /**
+     * 提交一条消息并等待所在批次处理完成，处理失败时抛出该消息对应的异常
+     */
+    public void submit(T payload) throws Exception {
+        // 优先关联生产者上下文，没有时退化为当前span
+        SpanContext parent = Context.current().get(RqueueTracingMiddleware.PRODUCER_CONTEXT);
+        Item<T> item = new Item<>(payload, parent != null ? parent : Span.current().getSpanContext());
+
+        Batch<T> batch;
+        int position;
+        synchronized (this) {
+            batch = current;
+            position = batch.items.size();
+            batch.items.add(item);
+            if (batch.items.size() >= maxSize) {
+                current = new Batch<>();
+            }
+        }
+
+        boolean interrupted = false;
+        if (position == maxSize - 1) {
+            // 凑满一批，由最后到达的线程负责处理
+            batch.sealed.countDown();
+            process(batch);
+        } else if (position == 0) {
+            // 第一个到达的线程负责超时刷新；被中断时同样要刷新，否则同批的其他线程等不到结果
+            boolean sealed = false;
+            try {
+                sealed = batch.sealed.await(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } finally {
+                if (!sealed) {
+                    flush(batch);
+                }
+            }
+        }
+
+        try {
+            // 本条消息已随批次处理，被中断时仍取回结果，之后恢复中断标记
+            try {
+                item.result.get(resultTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (item.state.compareAndSet(PENDING, WITHDRAWN)) {
+                    throw new TimeoutException("Batch did not start within " + resultTimeoutMs
+                            + "ms, message withdrawn for retry");
+                }
+                // 已在处理中，此时抛出会让RQueue在处理完成前重试同一条消息
+                item.result.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 批次仍在接收消息时摘下并处理；已被凑满的线程摘下时由该线程处理
+     */
+    private void flush(Batch<T> batch) {
+        boolean detached;
+        synchronized (this) {
+            detached = current == batch;
+            if (detached) {
+                current = new Batch<>();
+            }
+        }
+        if (detached) {
+            process(batch);
+        }
+    }
+
+    private void process(Batch<T> batch) {
+        // 已超时撤回的消息由RQueue重试，不再处理
+        List<Item<T>> items = new ArrayList<>(batch.items.size());
+        for (Item<T> item : batch.items) {
+            if (item.state.compareAndSet(PENDING, CLAIMED)) {
+                items.add(item);
+            }
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+
+        SpanBuilder spanBuilder = tracer.spanBuilder("rqueue.batch.process")
+                .setNoParent()
+                .setSpanKind(SpanKind.CONSUMER)
+                .setAttribute("component", "rqueue")
+                .setAttribute("operation", "batch.process")
+                .setAttribute("rqueue.queue.name", queueName)
+                .setAttribute("messaging.batch.message_count", items.size());
+        for (Item<T> item : items) {
+            if (item.parent.isValid()) {
+                spanBuilder.addLink(item.parent);
+            }
+        }
+
+        Span span = spanBuilder.startSpan();
+        try (Scope scope = span.makeCurrent()) {
+            handler.handle(Collections.unmodifiableList(items));
+
+            long failed = items.stream().filter(item -> item.result.isCompletedExceptionally()).count();
+            span.setAttribute("rqueue.batch.failed_count", failed);
+            span.setStatus(failed == 0 ? StatusCode.OK : StatusCode.ERROR);
+        } catch (Throwable e) {
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            span.recordException(e);
+            for (Item<T> item : items) {
+                item.result.completeExceptionally(e);
+            }
+        } finally {
+            for (Item<T> item : items) {
+                item.result.complete(null);
+            }
+            span.end();
+        }
+    }
+
+    /**
+     * 批量处理器，单条失败时调用{@link BatchItem#fail(Exception)}，只会重试该条消息
+     */
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+        void handle(List<? extends BatchItem<T>> batch) throws Exception;
+    }
+
+    public interface BatchItem<T> {
+        T getPayload();
+
+        void fail(Exception e);
+    }
+
+    private static final class Batch<T> {
+        private final List<Item<T>> items = new ArrayList<>();
+        private final CountDownLatch sealed = new CountDownLatch(1);
+    }
+
+    private static final class Item<T> implements BatchItem<T> {
+        private final T payload;
+        private final SpanContext parent;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Item(T payload, SpanContext parent) {
+            this.payload = payload;
+            this.parent = parent;
+        }
+
+        @Override
+        public T getPayload() {
+            return payload;
+        }
+
+        @Override
+        public void fail(Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
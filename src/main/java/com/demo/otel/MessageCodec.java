@@ -0,0 +1,19 @@
+package com.demo.otel;
+
+import java.io.IOException;
+
+/**
+ * RQueue消息体编解码器
+ * RQueue以字符串形式存储消息体，编码结果需要能与旧格式区分，以便兼容队列中已有的消息
+ */
+public interface MessageCodec {
+
+    String encode(Object payload) throws IOException;
+
+    Object decode(String encoded, Class<?> targetType) throws IOException;
+
+    /**
+     * 是否为本编解码器生成的格式
+     */
+    boolean canDecode(String encoded);
+}
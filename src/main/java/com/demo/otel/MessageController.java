@@ -4,6 +4,9 @@ import io.opentelemetry.api.trace.Span;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api")
 public class MessageController {
@@ -20,4 +23,17 @@ public class MessageController {
         messageService.sendMessage(queue, message);
         return "Message sent successfully";
     }
+
+    @PostMapping("/send-batch")
+    public Map<String, Object> sendMessages(@RequestParam String queue, @RequestBody List<String> messages) {
+        Span.current().setAttribute("queue.name", queue);
+        Span.current().setAttribute("message.count", messages.size());
+
+        // 超过上限时抛出BatchTooLargeException，返回413
+        RqueueBatchEnqueuer.BatchResult result = messageService.sendMessages(queue, messages);
+        // messageIds与请求中的消息一一对应，入队失败的位置为null
+        return Map.of("count", result.getEnqueuedCount(),
+                "failed", result.getFailedCount(),
+                "messageIds", result.getMessageIds());
+    }
 }
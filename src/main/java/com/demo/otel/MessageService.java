@@ -2,28 +2,75 @@ package com.demo.otel;
 
 import com.github.sonus21.rqueue.annotation.RqueueListener;
 import com.github.sonus21.rqueue.core.RqueueMessageEnqueuer;
+import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class MessageService {
 
+    private static final Logger log = LoggerFactory.getLogger(MessageService.class);
+
     @Autowired
     private RqueueMessageEnqueuer rqueueMessageEnqueuer;
 
+    @Autowired
+    private RqueueBatchEnqueuer rqueueBatchEnqueuer;
+
     @Autowired
     private Tracer tracer;
 
+    @Autowired
+    private OpenTelemetry openTelemetry;
+
+    @Autowired
+    private RqueueListenerConfig.RqueueBatchProperties batchProperties;
+
+    // 批量模式下的聚合器，未开启时为null
+    private MessageBatcher<String> messageBatcher;
+
+    @PostConstruct
+    void initBatcher() {
+        if (batchProperties.isBatched("my-queue")) {
+            messageBatcher = new MessageBatcher<>(
+                    openTelemetry.getTracer("rqueue-instrumentation", "1.0.0"),
+                    "my-queue",
+                    batchProperties.getMaxSize(),
+                    batchProperties.getMaxWaitMs(),
+                    batchProperties.getResultTimeoutMs(),
+                    this::processBatch);
+        }
+    }
+
     // 发送消息 - 会被自动instrumented
     public void sendMessage(String queueName, Object message) {
         rqueueMessageEnqueuer.enqueue(queueName, message);
     }
 
+    // 批量发送消息 - 一次Redis pipeline，整批一个PRODUCER span
+    public RqueueBatchEnqueuer.BatchResult sendMessages(String queueName, List<?> messages) {
+        return rqueueBatchEnqueuer.enqueueAll(queueName, messages);
+    }
+
     // 处理消息 - 会被自动instrumented
-    @RqueueListener(value = "my-queue", numRetries = "3")
-    public void processMessage(String message) {
+    // 批量模式下需要调大concurrency，batchSize让每次轮询Redis取回多条消息
+    @RqueueListener(value = "my-queue", numRetries = "3",
+            concurrency = "${opentelemetry.rqueue.listeners.my-queue.concurrency:-1}",
+            batchSize = "${opentelemetry.rqueue.listeners.my-queue.batch-size:-1}")
+    public void processMessage(String message) throws Exception {
+        if (messageBatcher != null) {
+            // 阻塞到所在批次处理完成，失败时抛出该消息自己的异常，由RQueue单独重试
+            messageBatcher.submit(message);
+            return;
+        }
+
         // 业务逻辑处理
         System.out.println("Processing message: " + message);
 
@@ -42,4 +89,24 @@ public class MessageService {
             span.end();
         }
     }
+
+    // 批量处理消息 - 整批共用一次业务处理
+    void processBatch(List<? extends MessageBatcher.BatchItem<String>> batch) {
+        log.info("Processing batch of {} messages", batch.size());
+
+        Span span = tracer.spanBuilder("custom.business.logic")
+                .setAttribute("message.count", batch.size())
+                .startSpan();
+
+        try {
+            // 模拟批量业务处理
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            span.recordException(e);
+            Thread.currentThread().interrupt();
+            batch.forEach(item -> item.fail(e));
+        } finally {
+            span.end();
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package com.demo.otel;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * 记录语句耗时的DataSource包装
+ * 连接和语句通过JDK动态代理包装，execute*调用按归一化后的SQL计入{@link JdbcQueryMonitor}；
+ * 位于OpenTelemetry JDBC驱动之上，测得的耗时包含驱动层追踪开销。
+ * 校验语句(SELECT 1等)、Connection.isValid和会触发驱动内部会话查询的isReadOnly/setReadOnly在抑制追踪的Context中执行，
+ * 驱动层不会为其创建span，也不计入统计。
+ * 连接池的校验直接作用在池中的原始连接上，需要再包一层放在连接池之下，见{@link JdbcMonitorConfig#suppressPoolValidation}
+ */
+public class MonitoringDataSource extends DelegatingDataSource {
+
+    // MySQL驱动在isReadOnly/setReadOnly中执行SELECT @@session.tx_read_only等语句
+    private static final Set<String> SUPPRESSED_CONNECTION_METHODS = Set.of("isValid", "isReadOnly", "setReadOnly");
+
+    private final JdbcQueryMonitor monitor;
+    private final SpanFilterConfig.ExcludedOperations excludedOperations;
+
+    /**
+     * @param monitor 语句监控关闭时为null，只做追踪抑制
+     */
+    public MonitoringDataSource(DataSource targetDataSource, JdbcQueryMonitor monitor,
+                                SpanFilterConfig.ExcludedOperations excludedOperations) {
+        super(targetDataSource);
+        this.monitor = monitor;
+        this.excludedOperations = excludedOperations;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (SUPPRESSED_CONNECTION_METHODS.contains(method.getName())) {
+                return InstrumentationSuppression.callSuppressed(() -> MonitoringDataSource.invoke(target, method, args));
+            }
+            Object result = MonitoringDataSource.invoke(target, method, args);
+            if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                // prepareStatement/prepareCall的第一个参数是SQL，createStatement则在execute时才知道
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return Proxy.newProxyInstance(MonitoringDataSource.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return MonitoringDataSource.invoke(target, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            if (excludedOperations.matches(sql)) {
+                return InstrumentationSuppression.callSuppressed(() -> MonitoringDataSource.invoke(target, method, args));
+            }
+            if (monitor == null) {
+                return MonitoringDataSource.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return MonitoringDataSource.invoke(target, method, args);
+            } finally {
+                if (sql != null) {
+                    monitor.record(SqlStatementNormalizer.normalize(sql), System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mybatis.spring.boot.autoconfigure.ConfigurationCustomizer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * MyBatis两级二级缓存配置
+ * 为opentelemetry.mybatis.cache.namespaces中的namespace创建{@link TwoTierMybatisCache}并注册到MyBatis Configuration，
+ * 共享同一个存储和失效通知；mapper通过cache-ref引用
+ */
+@Configuration
+public class MybatisCacheConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.mybatis.cache")
+    public MybatisCacheManager.MybatisCacheProperties mybatisCacheProperties() {
+        return new MybatisCacheManager.MybatisCacheProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.mybatis.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public MybatisCacheManager mybatisCacheManager(MybatisCacheManager.MybatisCacheProperties properties,
+                                                   RedisConnectionFactory connectionFactory,
+                                                   MeterRegistry meterRegistry) {
+        RedisTemplate<String, byte[]> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.afterPropertiesSet();
+        return new MybatisCacheManager(properties, redisTemplate, meterRegistry);
+    }
+
+    /**
+     * 没有配置namespace时不订阅失效通知，不占用Redis连接
+     */
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.mybatis.cache.enabled", havingValue = "true", matchIfMissing = true)
+    @Conditional(NamespacesConfigured.class)
+    public RedisMessageListenerContainer mybatisCacheInvalidationListener(
+            RedisConnectionFactory connectionFactory,
+            MybatisCacheManager mybatisCacheManager,
+            MybatisCacheManager.MybatisCacheProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(mybatisCacheManager, new ChannelTopic(properties.getInvalidationChannel()));
+        return container;
+    }
+
+    /**
+     * 在解析mapper之前注册缓存；缓存关闭时仍注册穿透的缓存，mapper中的cache-ref不受影响
+     */
+    @Bean
+    public ConfigurationCustomizer twoTierMybatisCacheCustomizer(MybatisCacheManager.MybatisCacheProperties properties,
+                                                                 ObjectProvider<MybatisCacheManager> mybatisCacheManager) {
+        return configuration -> {
+            MybatisCacheManager manager = mybatisCacheManager.getIfAvailable();
+            MybatisResultTypeFilter filter = new MybatisResultTypeFilter(configuration);
+            for (String namespace : properties.getNamespaces()) {
+                configuration.addCache(new TwoTierMybatisCache(namespace, manager, filter));
+            }
+        };
+    }
+
+    /**
+     * opentelemetry.mybatis.cache.namespaces中至少有一个namespace
+     */
+    static class NamespacesConfigured extends SpringBootCondition {
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            List<String> namespaces = Binder.get(context.getEnvironment())
+                    .bind("opentelemetry.mybatis.cache.namespaces", Bindable.listOf(String.class))
+                    .orElse(List.of());
+            return namespaces.stream().anyMatch(StringUtils::hasText)
+                    ? ConditionOutcome.match("MyBatis cache namespaces configured")
+                    : ConditionOutcome.noMatch("No MyBatis cache namespaces configured");
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.demo.otel;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MyBatis二级缓存的两级存储
+ * 本地为Caffeine(W-TinyLFU淘汰 + TTL)近缓存，下层为Redis。每个namespace有一个Redis中的代数(generation)，
+ * Redis键中带代数，clear时只需递增代数并通过pub/sub通知其他节点：旧代数的本地条目在读取时判定为stale，
+ * 旧代数的Redis键不再被访问，随TTL过期。
+ * {@link TwoTierMybatisCache}由{@link MybatisCacheConfig}创建并注册到MyBatis Configuration中，构造时传入本实例；
+ * 缓存值用Java序列化存储，读取时按{@link MybatisResultTypeFilter}白名单过滤
+ */
+public class MybatisCacheManager implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MybatisCacheManager.class);
+
+    private static final AttributeKey<String> CACHE_NAMESPACE = AttributeKey.stringKey("mybatis.cache.namespace");
+    private static final AttributeKey<String> CACHE_STATUS = AttributeKey.stringKey("mybatis.cache.status");
+
+    private final MybatisCacheProperties properties;
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+
+    public MybatisCacheManager(MybatisCacheProperties properties, RedisTemplate<String, byte[]> redisTemplate,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param filter 反序列化白名单，拒绝时按未命中处理
+     */
+    public Object get(String namespaceId, Object key, ObjectInputFilter filter) {
+        Namespace namespace = namespace(namespaceId);
+        long generation = namespace.generation.get();
+        String field = String.valueOf(key);
+
+        LocalEntry local = namespace.local.getIfPresent(field);
+        if (local != null) {
+            if (local.generation == generation) {
+                return hit(namespace, CacheStatus.HIT_LOCAL, field, local.value, filter);
+            }
+            namespace.local.invalidate(field);
+            record(namespace, CacheStatus.STALE);
+        }
+
+        byte[] remote;
+        try {
+            remote = redisTemplate.opsForValue().get(redisKey(namespaceId, generation, field));
+        } catch (DataAccessException e) {
+            log.debug("Redis read failed for cache {}, falling back to database", namespaceId, e);
+            remote = null;
+        }
+        if (remote == null) {
+            if (local == null) {
+                record(namespace, CacheStatus.MISS);
+            }
+            return null;
+        }
+        namespace.local.put(field, new LocalEntry(generation, remote));
+        return hit(namespace, CacheStatus.HIT_REDIS, field, remote, filter);
+    }
+
+    public void put(String namespaceId, Object key, Object value) {
+        if (!(value == null || value instanceof Serializable)) {
+            log.warn("Skipping non-serializable cache value in {}: {}", namespaceId, value.getClass().getName());
+            return;
+        }
+        Namespace namespace = namespace(namespaceId);
+        long generation = namespace.generation.get();
+        String field = String.valueOf(key);
+        byte[] bytes = serialize(value);
+
+        namespace.local.put(field, new LocalEntry(generation, bytes));
+        try {
+            redisTemplate.opsForValue().set(redisKey(namespaceId, generation, field), bytes, properties.getRedisTtl());
+        } catch (DataAccessException e) {
+            log.debug("Redis write failed for cache {}", namespaceId, e);
+        }
+    }
+
+    public void remove(String namespaceId, Object key) {
+        Namespace namespace = namespace(namespaceId);
+        String field = String.valueOf(key);
+        namespace.local.invalidate(field);
+        try {
+            redisTemplate.delete(redisKey(namespaceId, namespace.generation.get(), field));
+        } catch (DataAccessException e) {
+            log.debug("Redis delete failed for cache {}", namespaceId, e);
+        }
+    }
+
+    /**
+     * 递增代数使本namespace的所有条目失效，并通知其他节点
+     */
+    public void clear(String namespaceId) {
+        Namespace namespace = namespace(namespaceId);
+        namespace.local.invalidateAll();
+        try {
+            Long generation = redisTemplate.opsForValue().increment(generationKey(namespaceId));
+            if (generation != null) {
+                namespace.advanceTo(generation);
+                redisTemplate.convertAndSend(properties.getInvalidationChannel(), namespaceId + "\n" + generation);
+            }
+        } catch (DataAccessException e) {
+            // Redis不可用时本地仍失效，其他节点依靠本地TTL收敛
+            log.warn("Failed to propagate cache invalidation for {}", namespaceId, e);
+        }
+    }
+
+    public int size(String namespaceId) {
+        return (int) namespace(namespaceId).local.estimatedSize();
+    }
+
+    /**
+     * 其他节点的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf('\n');
+        if (separator < 0) {
+            return;
+        }
+        Namespace namespace = namespaces.get(body.substring(0, separator));
+        if (namespace != null && namespace.advanceTo(Long.parseLong(body.substring(separator + 1)))) {
+            namespace.local.invalidateAll();
+        }
+    }
+
+    private Namespace namespace(String namespaceId) {
+        return namespaces.computeIfAbsent(namespaceId, id -> {
+            Namespace namespace = new Namespace(id, loadGeneration(id));
+            Gauge.builder("mybatis.cache.local.size", namespace.local, Cache::estimatedSize)
+                    .description("MyBatis near-cache entries")
+                    .tag("namespace", id)
+                    .register(meterRegistry);
+            return namespace;
+        });
+    }
+
+    private long loadGeneration(String namespaceId) {
+        try {
+            byte[] value = redisTemplate.opsForValue().get(generationKey(namespaceId));
+            return value != null ? Long.parseLong(new String(value, StandardCharsets.UTF_8)) : 0L;
+        } catch (DataAccessException e) {
+            log.warn("Failed to load cache generation for {}, starting from 0", namespaceId, e);
+            return 0L;
+        }
+    }
+
+    private Object hit(Namespace namespace, CacheStatus status, String field, byte[] value, ObjectInputFilter filter) {
+        Object result = deserialize(value, filter);
+        if (result == null) {
+            // 被白名单拒绝或数据损坏: 丢弃本地条目，由数据库结果覆盖
+            namespace.local.invalidate(field);
+            record(namespace, CacheStatus.MISS);
+            return null;
+        }
+        record(namespace, status);
+        return result;
+    }
+
+    private void record(Namespace namespace, CacheStatus status) {
+        namespace.counters.get(status).increment();
+        Span span = Span.current();
+        if (span.isRecording()) {
+            // 一个请求内可能有多次查找，逐次记录为事件
+            span.addEvent("mybatis.cache.lookup", Attributes.of(
+                    CACHE_NAMESPACE, namespace.id,
+                    CACHE_STATUS, status.tag));
+        }
+    }
+
+    private String redisKey(String namespaceId, long generation, String field) {
+        return properties.getKeyPrefix() + namespaceId + ":" + generation + ":" + field;
+    }
+
+    private String generationKey(String namespaceId) {
+        return properties.getKeyPrefix() + namespaceId + ":generation";
+    }
+
+    private static byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize cache value", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] value, ObjectInputFilter filter) {
+        // 每次返回新的反序列化副本，与MyBatis默认读写缓存的语义一致
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value))) {
+            in.setObjectInputFilter(filter);
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            log.warn("Discarding unreadable cache value: {}", e.toString());
+            return null;
+        }
+    }
+
+    enum CacheStatus {
+        HIT_LOCAL("hit_local"),
+        HIT_REDIS("hit_redis"),
+        MISS("miss"),
+        STALE("stale");
+
+        private final String tag;
+
+        CacheStatus(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final class Namespace {
+        private final String id;
+        private final AtomicLong generation;
+        private final Cache<String, LocalEntry> local;
+        private final Map<CacheStatus, Counter> counters = new ConcurrentHashMap<>();
+
+        Namespace(String id, long generation) {
+            this.id = id;
+            this.generation = new AtomicLong(generation);
+            this.local = Caffeine.newBuilder()
+                    .maximumSize(properties.getLocalMaxSize())
+                    .expireAfterWrite(properties.getLocalTtl())
+                    .build();
+            for (CacheStatus status : CacheStatus.values()) {
+                counters.put(status, Counter.builder("mybatis.cache.requests")
+                        .description("MyBatis second-level cache lookups")
+                        .tag("namespace", id)
+                        .tag("status", status.tag)
+                        .register(meterRegistry));
+            }
+        }
+
+        /**
+         * 只前进不后退，乱序到达的旧通知被忽略
+         */
+        boolean advanceTo(long newGeneration) {
+            long current;
+            do {
+                current = generation.get();
+                if (newGeneration <= current) {
+                    return false;
+                }
+            } while (!generation.compareAndSet(current, newGeneration));
+            return true;
+        }
+    }
+
+    private static final class LocalEntry {
+        private final long generation;
+        private final byte[] value;
+
+        LocalEntry(long generation, byte[] value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 二级缓存属性
+     */
+    @Data
+    public static class MybatisCacheProperties {
+        // 关闭时已声明的缓存直接穿透到数据库
+        private boolean enabled = true;
+        // 每个namespace的本地条目上限
+        private long localMaxSize = 10000;
+        // 本地条目存活时间，也是丢失失效通知时的最长不一致时间
+        private Duration localTtl = Duration.ofSeconds(30);
+        private Duration redisTtl = Duration.ofMinutes(10);
+        private String keyPrefix = "mybatis:cache:";
+        private String invalidationChannel = "mybatis:cache:invalidation";
+        // 启用两级缓存的mapper namespace，mapper中通过cache-ref引用
+        private List<String> namespaces = new ArrayList<>();
+    }
+}
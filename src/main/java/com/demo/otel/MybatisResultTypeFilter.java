@@ -0,0 +1,86 @@
+package com.demo.otel;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+
+import java.io.ObjectInputFilter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 二级缓存值的反序列化白名单
+ * 只允许MyBatis已映射的结果类型(resultMap/resultType及其属性类型)和java.lang/java.util等基础类型，
+ * 其他类(反序列化利用链中的类)在读取类描述时即被拒绝；嵌套深度、对象引用数和数组长度超过上限的流同样拒绝，
+ * 防止构造的数据耗尽内存或栈。
+ * 映射在mapper解析过程中陆续注册，resultMap数量变化时重新收集
+ */
+final class MybatisResultTypeFilter implements ObjectInputFilter {
+
+    private static final Set<String> JDK_PACKAGES = Set.of(
+            "java.lang", "java.util", "java.math", "java.time", "java.sql");
+    // 结果列表按行嵌套: 列表 -> 实体 -> 属性，正常的缓存值远小于这些上限
+    static final int MAX_DEPTH = 32;
+    static final long MAX_REFERENCES = 1_000_000;
+    static final long MAX_ARRAY_LENGTH = 1_000_000;
+
+    private final Configuration configuration;
+    private volatile Snapshot snapshot = new Snapshot(-1, Set.of());
+
+    MybatisResultTypeFilter(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public Status checkInput(FilterInfo info) {
+        if (info.depth() > MAX_DEPTH || info.references() > MAX_REFERENCES
+                || info.arrayLength() > MAX_ARRAY_LENGTH) {
+            return Status.REJECTED;
+        }
+        Class<?> type = info.serialClass();
+        if (type == null) {
+            return Status.UNDECIDED;
+        }
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || JDK_PACKAGES.contains(type.getPackageName())) {
+            return Status.ALLOWED;
+        }
+        return resultTypes().contains(type) ? Status.ALLOWED : Status.REJECTED;
+    }
+
+    private Set<Class<?>> resultTypes() {
+        Collection<ResultMap> resultMaps = configuration.getResultMaps();
+        Snapshot current = snapshot;
+        if (current.resultMapCount == resultMaps.size()) {
+            return current.types;
+        }
+        Set<Class<?>> types = new HashSet<>();
+        // 短名称重复时StrictMap中存放的是Ambiguity占位对象，不能直接按ResultMap遍历
+        for (Object value : resultMaps) {
+            if (!(value instanceof ResultMap resultMap)) {
+                continue;
+            }
+            types.add(resultMap.getType());
+            for (ResultMapping mapping : resultMap.getResultMappings()) {
+                if (mapping.getJavaType() != null) {
+                    types.add(mapping.getJavaType());
+                }
+            }
+        }
+        snapshot = new Snapshot(resultMaps.size(), types);
+        return types;
+    }
+
+    private static final class Snapshot {
+        private final int resultMapCount;
+        private final Set<Class<?>> types;
+
+        Snapshot(int resultMapCount, Set<Class<?>> types) {
+            this.resultMapCount = resultMapCount;
+            this.types = types;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * OkHttp请求头/请求体采集
+ * 作为应用拦截器注册在OkHttpTracingInterceptor之后，写入它创建的span(sdk模式的CLIENT span或agent模式的capture span)；
+ * 请求头是应用设置的请求头，不含BridgeInterceptor补充的Host、Accept-Encoding等。
+ * 请求体在写出时边写边复制前max-body-size字节；响应体在业务代码读取时边读边复制，不预读、不阻塞，
+ * 读完或关闭时写入span，外层span随后才结束
+ */
+public class OkHttpCaptureInterceptor implements Interceptor {
+
+    private final HttpClientCapture capture;
+
+    public OkHttpCaptureInterceptor(HttpClientCapture capture) {
+        this.capture = capture;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!capture.isEnabledFor(request.url().host())) {
+            return chain.proceed(request);
+        }
+
+        Span span = Span.current();
+        capture.captureRequestHeaders(span, request::headers);
+        if (capture.isCaptureRequestBody() && request.body() != null) {
+            request = request.newBuilder()
+                    .method(request.method(), new TeeRequestBody(request.body(), capture, span))
+                    .build();
+        }
+
+        Response response = chain.proceed(request);
+        capture.captureResponseHeaders(span, response::headers);
+        // BridgeInterceptor透明解压后会去掉Content-Encoding；调用方自己声明Accept-Encoding时仍是压缩字节，不采集
+        if (capture.isCaptureResponseBody() && response.body() != null
+                && response.header("Content-Encoding") == null) {
+            response = response.newBuilder()
+                    .body(new TeeResponseBody(response.body(), capture, span))
+                    .build();
+        }
+        return response;
+    }
+
+    /**
+     * 写出时复制前max-body-size字节，不改变写出内容
+     */
+    private static final class TeeRequestBody extends RequestBody {
+
+        private final RequestBody delegate;
+        private final HttpClientCapture capture;
+        private final Span span;
+
+        TeeRequestBody(RequestBody delegate, HttpClientCapture capture, Span span) {
+            this.delegate = delegate;
+            this.capture = capture;
+            this.span = span;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return delegate.isOneShot();
+        }
+
+        @Override
+        public void writeTo(@NotNull BufferedSink sink) throws IOException {
+            HttpClientCapture.CapturedBody body = capture.newBody();
+            BufferedSink tee = Okio.buffer(new ForwardingSink(sink) {
+                @Override
+                public void write(@NotNull Buffer source, long byteCount) throws IOException {
+                    if (!body.isFull()) {
+                        body.append(source, 0, byteCount);
+                    } else {
+                        body.markTruncated();
+                    }
+                    super.write(source, byteCount);
+                }
+            });
+            delegate.writeTo(tee);
+            tee.emit();
+            capture.recordRequestBody(span, body);
+        }
+    }
+
+    /**
+     * 读取时复制前max-body-size字节，不改变读取内容
+     */
+    private static final class TeeResponseBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        TeeResponseBody(ResponseBody delegate, HttpClientCapture capture, Span span) {
+            this.delegate = delegate;
+            HttpClientCapture.CapturedBody body = capture.newBody();
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                private boolean recorded;
+
+                @Override
+                public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read == -1) {
+                        record();
+                    } else {
+                        body.append(sink, sink.size() - read, read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (!recorded) {
+                        // 未读完就关闭
+                        body.markTruncated();
+                        record();
+                    }
+                    super.close();
+                }
+
+                private void record() {
+                    if (!recorded) {
+                        recorded = true;
+                        capture.recordResponseBody(span, body);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @NotNull
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * OkHttp出站span，作为第一个应用拦截器注册
+ * 后续拦截器在span的Context中执行，OkHttpCaptureInterceptor采集的内容写在这个span上；
+ * 没有响应体时收到响应即结束，否则在响应体读完或关闭时结束，见{@link HttpClientSpans}
+ */
+public class OkHttpTracingInterceptor implements Interceptor {
+
+    private final HttpClientSpans spans;
+
+    public OkHttpTracingInterceptor(HttpClientSpans spans) {
+        this.spans = spans;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url();
+        Span span = spans.start("okhttp", request.method(), url.toString(), url.host(), url.port());
+        if (span == null) {
+            return chain.proceed(request);
+        }
+
+        Context context = Context.current().with(span);
+        Request.Builder traced = request.newBuilder();
+        spans.inject(context, traced, (carrier, key, value) -> carrier.header(key, value));
+        Response response;
+        try (Scope ignored = context.makeCurrent()) {
+            response = chain.proceed(traced.build());
+        } catch (IOException | RuntimeException e) {
+            spans.onError(span, e);
+            span.end();
+            throw e;
+        }
+
+        spans.onResponse(span, response.code());
+        ResponseBody body = response.body();
+        if (body == null) {
+            span.end();
+            return response;
+        }
+        return response.newBuilder()
+                .body(new SpanEndingResponseBody(body, span))
+                .build();
+    }
+
+    /**
+     * 读到末尾或关闭时结束span，内层采集的响应体先于此写入
+     */
+    private static final class SpanEndingResponseBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        SpanEndingResponseBody(ResponseBody delegate, Span span) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                private boolean ended;
+
+                @Override
+                public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+                    long read;
+                    try {
+                        read = super.read(sink, byteCount);
+                    } catch (IOException e) {
+                        span.recordException(e);
+                        end();
+                        throw e;
+                    }
+                    if (read == -1) {
+                        end();
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        end();
+                    }
+                }
+
+                private void end() {
+                    if (!ended) {
+                        ended = true;
+                        span.end();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @NotNull
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package com.demo.otel;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.exporter.otlp.http.logs.OtlpHttpLogRecordExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.exporter.otlp.logs.OtlpGrpcLogRecordExporter;
 import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.OpenTelemetrySdkBuilder;
+import io.opentelemetry.sdk.logs.LogRecordProcessor;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.export.BatchLogRecordProcessor;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
 import io.opentelemetry.sdk.trace.SpanProcessor;
 import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
 import io.opentelemetry.semconv.resource.attributes.ResourceAttributes;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 
 import java.time.Duration;
 
@@ -23,42 +41,130 @@ public class OpenTelemetryConfig {
     @Value("${opentelemetry.exporter.otlp.endpoint:http://localhost:4317}")
     private String otlpEndpoint;
 
+    @Value("${opentelemetry.exporter.otlp.protocol:grpc}")
+    private String otlpProtocol;
+
+    // 在后台线程创建导出器，不阻塞启动
+    @Value("${opentelemetry.exporter.otlp.lazy-init:true}")
+    private boolean lazyInit;
+
     @Value("${spring.application.name:spring-boot-app}")
     private String serviceName;
 
     @Value("${opentelemetry.service.version:1.0.0}")
     private String serviceVersion;
 
+    @Value("${opentelemetry.logs.enabled:true}")
+    private boolean logsEnabled;
+
+    // 由OpenTelemetryModeEnvironmentPostProcessor在启动时确定
+    @Value("${opentelemetry.mode.effective:sdk}")
+    private String mode;
+
+    /**
+     * agent模式使用Agent注册的GlobalOpenTelemetry，off模式使用no-op实现，
+     * sdk模式把容器中所有SpanProcessor(RED指标、批量导出等)注册到自建的TracerProvider
+     */
     @Bean
-    public OpenTelemetry openTelemetry() {
+    public OpenTelemetry openTelemetry(ObjectProvider<SpanProcessor> spanProcessors, Sampler customSampler) {
+        if ("agent".equals(mode)) {
+            OpenTelemetry agent = GlobalOpenTelemetry.get();
+            // 只在关闭了Agent的logback插桩时appender才会启动，避免日志导出两次
+            OtlpLogAppender.install(agent);
+            return agent;
+        }
+        if ("off".equals(mode)) {
+            OtlpLogAppender.install(OpenTelemetry.noop());
+            return OpenTelemetry.noop();
+        }
+
         Resource resource = Resource.getDefault()
                 .merge(Resource.builder()
                         .put(ResourceAttributes.SERVICE_NAME, serviceName)
                         .put(ResourceAttributes.SERVICE_VERSION, serviceVersion)
                         .build());
 
-        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
-                .addSpanProcessor(batchSpanProcessor())
-                .setResource(resource)
+        SdkTracerProviderBuilder tracerProviderBuilder = SdkTracerProvider.builder()
+                .setSampler(customSampler)
+                .setResource(resource);
+        spanProcessors.orderedStream().forEach(tracerProviderBuilder::addSpanProcessor);
+        SdkTracerProvider tracerProvider = tracerProviderBuilder.build();
+
+        OpenTelemetrySdkBuilder sdkBuilder = OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider);
+        if (logsEnabled) {
+            sdkBuilder.setLoggerProvider(SdkLoggerProvider.builder()
+                    .setResource(resource)
+                    .addLogRecordProcessor(batchLogRecordProcessor())
+                    .build());
+        }
+        OpenTelemetrySdk sdk = sdkBuilder.buildAndRegisterGlobal();
+
+        // logback先于Spring初始化，SDK就绪后再交给日志appender
+        OtlpLogAppender.install(sdk);
+        return sdk;
+    }
+
+    private LogRecordProcessor batchLogRecordProcessor() {
+        LogRecordExporter exporter = lazyInit
+                ? LazyExporters.logRecordExporter(this::otlpLogRecordExporter)
+                : otlpLogRecordExporter();
+        return BatchLogRecordProcessor.builder(exporter)
+                .setMaxExportBatchSize(512)
+                .setExporterTimeout(Duration.ofSeconds(30))
+                .setScheduleDelay(Duration.ofSeconds(1))
                 .build();
+    }
 
-        return OpenTelemetrySdk.builder()
-                .setTracerProvider(tracerProvider)
-                .buildAndRegisterGlobal();
+    private LogRecordExporter otlpLogRecordExporter() {
+        return isHttpProtocol()
+                ? OtlpHttpLogRecordExporter.builder().setEndpoint(otlpEndpoint + "/v1/logs").build()
+                : OtlpGrpcLogRecordExporter.builder().setEndpoint(otlpEndpoint).build();
     }
 
+    /**
+     * lazy-init时导出器在后台创建，创建完成前的span留在批处理队列中(max-queue-size 2048)
+     */
     @Bean
+    @ConditionalOnProperty(name = "opentelemetry.mode.effective", havingValue = "sdk", matchIfMissing = true)
     public SpanProcessor batchSpanProcessor() {
-        return BatchSpanProcessor.builder(
-                        OtlpGrpcSpanExporter.builder()
-                                .setEndpoint(otlpEndpoint)
-                                .build())
+        SpanExporter exporter = lazyInit
+                ? LazyExporters.spanExporter(this::otlpSpanExporter)
+                : otlpSpanExporter();
+        return BatchSpanProcessor.builder(exporter)
                 .setMaxExportBatchSize(512)
                 .setExporterTimeout(Duration.ofSeconds(30))
                 .setScheduleDelay(Duration.ofSeconds(5))
                 .build();
     }
 
+    private SpanExporter otlpSpanExporter() {
+        return isHttpProtocol()
+                ? OtlpHttpSpanExporter.builder().setEndpoint(otlpEndpoint + "/v1/traces").build()
+                : OtlpGrpcSpanExporter.builder().setEndpoint(otlpEndpoint).build();
+    }
+
+    private boolean isHttpProtocol() {
+        return "http/protobuf".equalsIgnoreCase(otlpProtocol);
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.red-metrics")
+    public RedMetricsSpanProcessor.RedMetricsProperties redMetricsProperties() {
+        return new RedMetricsSpanProcessor.RedMetricsProperties();
+    }
+
+    /**
+     * 在采样之前统计全部span的RED指标
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @ConditionalOnExpression("'${opentelemetry.mode.effective:sdk}' == 'sdk' and ${opentelemetry.red-metrics.enabled:true}")
+    public SpanProcessor redMetricsSpanProcessor(RedMetricsSpanProcessor.RedMetricsProperties properties,
+                                                 MeterRegistry meterRegistry) {
+        return new RedMetricsSpanProcessor(properties, meterRegistry);
+    }
+
     @Bean
     public Tracer tracer(OpenTelemetry openTelemetry) {
         return openTelemetry.getTracer("custom-tracer", "1.0.0");
@@ -0,0 +1,115 @@
+package com.demo.otel;
+
+import org.apache.commons.logging.Log;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLogFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 启动时确定追踪模式，避免Java Agent与应用内SDK重复插桩
+ * opentelemetry.mode: auto(默认，检测到Agent时为agent，否则为sdk) / sdk / agent / off
+ * agent: 使用Agent注册的GlobalOpenTelemetry，关闭与Agent自动插桩重叠的手动插桩
+ *        (Hutool包装、Lettuce追踪、JDBC驱动包装)；RQueue消息span没有对应的Agent插桩，继续保留
+ * off:   使用no-op实现，同样关闭JDBC驱动包装
+ * 结果写入opentelemetry.mode.effective，各配置按该属性装配；
+ * 是否启用OtlpLogAppender写入opentelemetry.logs.appender.effective，由logback-spring.xml读取
+ */
+public class OpenTelemetryModeEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    static final String AGENT_CLASS = "io.opentelemetry.javaagent.OpenTelemetryAgent";
+
+    private static final String JDBC_DRIVER_WRAPPER = "io.opentelemetry.instrumentation.jdbc.OpenTelemetryDriver";
+
+    private final Log log;
+
+    public OpenTelemetryModeEnvironmentPostProcessor(DeferredLogFactory logFactory) {
+        this.log = logFactory.getLog(OpenTelemetryModeEnvironmentPostProcessor.class);
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        String configured = environment.getProperty("opentelemetry.mode", "auto").toLowerCase();
+        boolean agentDetected = isAgentAttached();
+        String mode = resolveMode(configured, agentDetected);
+        if ("sdk".equals(mode) && agentDetected) {
+            log.warn("OpenTelemetry Java agent is attached but opentelemetry.mode=sdk, spans will be duplicated");
+        }
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("opentelemetry.mode.effective", mode);
+        properties.put("opentelemetry.agent.detected", agentDetected);
+        if (!"sdk".equals(mode)) {
+            properties.put("opentelemetry.instrumentation.hutool.enabled", false);
+            properties.put("opentelemetry.instrumentation.lettuce.enabled", false);
+            unwrapJdbcDriver(environment, properties);
+        }
+        properties.put("opentelemetry.logs.appender.effective", isLogAppenderEnabled(environment, mode));
+        environment.getPropertySources().addFirst(new MapPropertySource("opentelemetryMode", properties));
+        log.info("OpenTelemetry mode: " + mode + " (configured " + configured + ", agent detected " + agentDetected + ")");
+    }
+
+    static String resolveMode(String configured, boolean agentDetected) {
+        switch (configured) {
+            case "sdk":
+            case "agent":
+            case "off":
+                return configured;
+            default:
+                return agentDetected ? "agent" : "sdk";
+        }
+    }
+
+    /**
+     * Agent的logback插桩默认开启并自行导出日志，此时再经OtlpLogAppender导出会重复；
+     * 只有通过otel.instrumentation.logback-appender.enabled(或common.default-enabled)关闭后才启用
+     */
+    static boolean isLogAppenderEnabled(ConfigurableEnvironment environment, String mode) {
+        if (!environment.getProperty("opentelemetry.enabled", Boolean.class, true)) {
+            return false;
+        }
+        if (!"agent".equals(mode)) {
+            return true;
+        }
+        boolean defaultEnabled = environment.getProperty("otel.instrumentation.common.default-enabled", Boolean.class, true);
+        return !environment.getProperty("otel.instrumentation.logback-appender.enabled", Boolean.class, defaultEnabled);
+    }
+
+    /**
+     * Agent的jar会加入系统类路径；同时检查启动参数，覆盖JAVA_TOOL_OPTIONS方式挂载的情况
+     */
+    static boolean isAgentAttached() {
+        try {
+            Class.forName(AGENT_CLASS, false, ClassLoader.getSystemClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                    .anyMatch(arg -> arg.startsWith("-javaagent:") && arg.contains("opentelemetry"));
+        }
+    }
+
+    /**
+     * 去掉JDBC URL中的otel:前缀并改由URL推断驱动，JDBC span只由Agent产生
+     */
+    private void unwrapJdbcDriver(ConfigurableEnvironment environment, Map<String, Object> properties) {
+        String url = environment.getProperty("spring.datasource.url");
+        if (url != null && url.contains("otel:")) {
+            properties.put("spring.datasource.url", url.replaceFirst("^(jdbc:)?otel:", "jdbc:"));
+        }
+        if (JDBC_DRIVER_WRAPPER.equals(environment.getProperty("spring.datasource.driver-class-name"))) {
+            properties.put("spring.datasource.driver-class-name", "");
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // 在application.yml加载之后执行
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
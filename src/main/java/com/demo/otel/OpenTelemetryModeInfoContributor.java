@@ -0,0 +1,53 @@
+package com.demo.otel;
+
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 在/actuator/info中报告当前追踪模式和各手动插桩是否生效
+ */
+@Component
+public class OpenTelemetryModeInfoContributor implements InfoContributor {
+
+    private final Environment environment;
+
+    public OpenTelemetryModeInfoContributor(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("mode", environment.getProperty("opentelemetry.mode.effective", "sdk"));
+        details.put("configuredMode", environment.getProperty("opentelemetry.mode", "auto"));
+        details.put("agentDetected", environment.getProperty("opentelemetry.agent.detected", Boolean.class, false));
+        String agentVersion = agentVersion();
+        if (agentVersion != null) {
+            details.put("agentVersion", agentVersion);
+        }
+
+        Map<String, Object> manual = new LinkedHashMap<>();
+        manual.put("hutool", environment.getProperty("opentelemetry.instrumentation.hutool.enabled", Boolean.class, true));
+        manual.put("lettuce", environment.getProperty("opentelemetry.instrumentation.lettuce.enabled", Boolean.class, true));
+        manual.put("jdbcDriverWrapper", String.valueOf(environment.getProperty("spring.datasource.url")).contains("otel:"));
+        manual.put("rqueue", true);
+        details.put("manualInstrumentation", manual);
+
+        builder.withDetail("opentelemetry", details);
+    }
+
+    private static String agentVersion() {
+        try {
+            Class<?> agent = Class.forName(OpenTelemetryModeEnvironmentPostProcessor.AGENT_CLASS, false,
+                    ClassLoader.getSystemClassLoader());
+            return agent.getPackage() != null ? agent.getPackage().getImplementationVersion() : null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -1,24 +1,83 @@
 package com.demo.otel;
 
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 排除的端点不产生追踪
+ * 需要排在服务端追踪过滤器之前，抑制标记才能在创建span前生效；
+ * sdk模式下为其余请求创建SERVER span(agent模式由agent创建)，并排在http.server.requests观测过滤器之前，
+ * 指标记录时当前span有效，直方图exemplar才能取到traceId；
+ * 开启准入控制时，其余请求先经过AdmissionController，被拒绝的请求直接返回503；
+ * 路由按处理器匹配的路径模式统计，异步请求(返回Mono等)在AsyncListener中响应完成时才结束计数和span；
+ * 匹配到不含路径变量的模式时按方法和URI缓存，这类请求不再每次查找处理器
+ */
 @Component
-@Order(1)
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class OpenTelemetryWebFilter extends OncePerRequestFilter {
 
+    private static final String SERVER_SPAN_ATTRIBUTE = OpenTelemetryWebFilter.class.getName() + ".SERVER_SPAN";
+    private static final AttributeKey<String> HTTP_ROUTE = AttributeKey.stringKey("http.route");
+    private static final AttributeKey<Long> HTTP_STATUS = AttributeKey.longKey("http.response.status_code");
+
+    private static final TextMapGetter<HttpServletRequest> HEADER_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(HttpServletRequest carrier) {
+            return Collections.list(carrier.getHeaderNames());
+        }
+
+        @Override
+        public String get(HttpServletRequest carrier, String key) {
+            return carrier == null ? null : carrier.getHeader(key);
+        }
+    };
+
+    // 缓存的路由数上限，超出后照常查找
+    private static final int MAX_CACHED_ROUTES = 1024;
+
     private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    // "方法 URI" -> 路径模式
+    private final Map<String, String> routeCache = new ConcurrentHashMap<>();
+    private final AtomicInteger cachedRoutes = new AtomicInteger();
+
+    // 未开启准入控制时为null
+    private final AdmissionController admissionController;
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMapping;
+    // 非sdk模式或关闭服务端span时为null
+    private final Tracer serverTracer;
+    private final TextMapPropagator propagator;
 
     // 不需要追踪的端点
     private final Set<String> excludePaths = Set.of(
@@ -29,11 +88,43 @@ public class OpenTelemetryWebFilter extends OncePerRequestFilter {
             "/favicon.ico"
     );
 
+    public OpenTelemetryWebFilter(ObjectProvider<AdmissionController> admissionController,
+                                  @Qualifier("requestMappingHandlerMapping")
+                                  ObjectProvider<RequestMappingHandlerMapping> handlerMapping,
+                                  ObjectProvider<OpenTelemetry> openTelemetry,
+                                  @Value("${opentelemetry.mode.effective:sdk}") String mode,
+                                  @Value("${opentelemetry.server-span.enabled:true}") boolean serverSpanEnabled) {
+        this.admissionController = admissionController.getIfAvailable();
+        this.handlerMapping = handlerMapping;
+        OpenTelemetry otel = openTelemetry.getIfAvailable(OpenTelemetry::noop);
+        this.serverTracer = "sdk".equals(mode) && serverSpanEnabled
+                ? otel.getTracer("servlet-server", "1.0.0") : null;
+        this.propagator = otel.getPropagators().getTextMapPropagator();
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // 异步分派时也要进入，恢复服务端span
+        return false;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
+        if (isAsyncDispatch(request)) {
+            // 异步结果在分派线程上写回并结束http.server.requests观测，此时服务端span需要是当前span
+            if (request.getAttribute(SERVER_SPAN_ATTRIBUTE) instanceof Span serverSpan) {
+                try (Scope ignored = serverSpan.makeCurrent()) {
+                    filterChain.doFilter(request, response);
+                }
+            } else {
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+
         String requestUri = request.getRequestURI();
 
         // 检查是否需要跳过追踪
@@ -41,22 +132,179 @@ public class OpenTelemetryWebFilter extends OncePerRequestFilter {
                 .anyMatch(pattern -> pathMatcher.match(pattern, requestUri));
 
         if (shouldSkip) {
-            // 如果当前存在span，标记为不记录
-            Span currentSpan = Span.current();
-            if (currentSpan != null && !currentSpan.getSpanContext().isValid()) {
-                // 这里可以选择结束span或者设置为不采样
-                currentSpan.setStatus(StatusCode.OK);
-                currentSpan.setAttribute("otel.sampling.rule", "excluded_endpoint");
+            // 在抑制追踪的Context中处理请求，服务端span和请求内的JDBC/Redis span都不会创建
+            try {
+                InstrumentationSuppression.<Void, Exception>callSuppressed(() -> {
+                    filterChain.doFilter(request, response);
+                    return null;
+                });
+            } catch (ServletException | IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ServletException(e);
+            }
+            return;
+        }
+
+        if (admissionController == null && serverTracer == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Span serverSpan = startServerSpan(request);
+        AdmissionController.Admission admission = null;
+        boolean async = false;
+        try (Scope ignored = serverSpan != null ? serverSpan.makeCurrent() : Scope.noop()) {
+            if (admissionController != null) {
+                admission = admissionController.tryAdmit(request.getMethod(), requestUri, matchedPattern(request));
+                if (admission == null) {
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    response.setHeader("Retry-After", String.valueOf(admissionController.retryAfterSeconds()));
+                    return;
+                }
+            }
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // 异步处理时doFilter返回早于响应完成，超时和出错后也会回调onComplete
+                request.getAsyncContext()
+                        .addListener(new CompletionListener(request, response, admission, serverSpan));
+                async = true;
+            }
+        } catch (ServletException | IOException | RuntimeException e) {
+            if (serverSpan != null) {
+                serverSpan.recordException(e);
+                serverSpan.setStatus(StatusCode.ERROR, e.getMessage());
+            }
+            throw e;
+        } finally {
+            if (!async) {
+                complete(request, response, admission, serverSpan);
             }
         }
+    }
 
-        filterChain.doFilter(request, response);
+    private Span startServerSpan(HttpServletRequest request) {
+        if (serverTracer == null) {
+            return null;
+        }
+        Context parent = propagator.extract(Context.current(), request, HEADER_GETTER);
+        Span span = serverTracer.spanBuilder(request.getMethod())
+                .setParent(parent)
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("http.request.method", request.getMethod())
+                .setAttribute("url.path", request.getRequestURI())
+                .setAttribute("url.scheme", request.getScheme())
+                .startSpan();
+        request.setAttribute(SERVER_SPAN_ATTRIBUTE, span);
+        return span;
     }
 
-    @Override
-    protected boolean shouldNotFilter(HttpServletRequest request) {
-        String requestUri = request.getRequestURI();
-        return excludePaths.stream()
-                .anyMatch(pattern -> pathMatcher.match(pattern, requestUri));
+    private void complete(HttpServletRequest request, HttpServletResponse response,
+                          AdmissionController.Admission admission, Span serverSpan) {
+        if (admission != null) {
+            admissionController.complete(admission);
+        }
+        if (serverSpan == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            serverSpan.updateName(request.getMethod() + " " + pattern);
+            serverSpan.setAttribute(HTTP_ROUTE, pattern.toString());
+        }
+        int status = response.getStatus();
+        serverSpan.setAttribute(HTTP_STATUS, (long) status);
+        if (status >= 500) {
+            serverSpan.setStatus(StatusCode.ERROR);
+        }
+        serverSpan.end();
+    }
+
+    /**
+     * 按处理器匹配的路径模式确定路由，没有匹配的处理器时返回null
+     */
+    private String matchedPattern(HttpServletRequest request) {
+        String key = request.getMethod() + ' ' + request.getRequestURI();
+        String cached = routeCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String pattern = lookupPattern(request);
+        // 带路径变量或通配符的模式对应无数URI，不缓存；未匹配和匹配出错的请求同样不缓存
+        if (pattern != null && pattern.indexOf('{') < 0 && pattern.indexOf('*') < 0
+                && cachedRoutes.get() < MAX_CACHED_ROUTES) {
+            routeCache.computeIfAbsent(key, k -> {
+                if (cachedRoutes.incrementAndGet() > MAX_CACHED_ROUTES) {
+                    cachedRoutes.decrementAndGet();
+                    return null;
+                }
+                return pattern;
+            });
+        }
+        return pattern;
+    }
+
+    private String lookupPattern(HttpServletRequest request) {
+        RequestMappingHandlerMapping mapping = handlerMapping.getIfAvailable();
+        if (mapping == null) {
+            return null;
+        }
+        boolean parsed = ServletRequestPathUtils.hasParsedRequestPath(request);
+        if (!parsed) {
+            ServletRequestPathUtils.parseAndCache(request);
+        }
+        try {
+            // 匹配成功时会在请求上设置BEST_MATCHING_PATTERN_ATTRIBUTE，DispatcherServlet随后会重新设置
+            if (mapping.getHandler(request) == null) {
+                return null;
+            }
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return pattern != null ? pattern.toString() : null;
+        } catch (Exception e) {
+            // 方法或媒体类型不匹配等情况交给DispatcherServlet处理
+            return null;
+        } finally {
+            if (!parsed) {
+                ServletRequestPathUtils.clearParsedRequestPath(request);
+            }
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final AdmissionController.Admission admission;
+        private final Span serverSpan;
+
+        CompletionListener(HttpServletRequest request, HttpServletResponse response,
+                           AdmissionController.Admission admission, Span serverSpan) {
+            this.request = request;
+            this.response = response;
+            this.admission = admission;
+            this.serverSpan = serverSpan;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(request, response, admission, serverSpan);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (serverSpan != null && event.getThrowable() != null) {
+                serverSpan.recordException(event.getThrowable());
+                serverSpan.setStatus(StatusCode.ERROR, event.getThrowable().getMessage());
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 异步再次开始时需要重新注册才能收到完成回调
+            event.getAsyncContext().addListener(this);
+        }
     }
 }
@@ -0,0 +1,225 @@
+package com.demo.otel;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.logs.LogRecordBuilder;
+import io.opentelemetry.api.logs.Logger;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 异步OTLP日志appender
+ * 调用线程格式化消息(参数可能是之后会被修改的对象)，连同当前SpanContext放入{@link LogRingBuffer}，
+ * 不把traceId转成字符串；后台线程批量取出后交给OpenTelemetry SDK的LogRecordProcessor批量导出。
+ * 队列满时丢弃日志并计数，WARN及以上级别可以使用为其保留的容量；单条日志导出失败时记入logback状态并计数，不影响后台线程。
+ * SDK由Spring创建，在{@link #install(OpenTelemetry)}之前的日志先留在队列中；超过installWaitMs仍未install
+ * (测试切片等没有加载OpenTelemetryConfig)时清空队列、结束后台线程，之后的日志直接丢弃。
+ * opentelemetry.enabled=false或Agent的logback插桩已在导出日志时不启动后台线程，
+ * 见{@link OpenTelemetryModeEnvironmentPostProcessor#isLogAppenderEnabled}
+ */
+public class OtlpLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final AttributeKey<String> THREAD_NAME = AttributeKey.stringKey("thread.name");
+    private static final AttributeKey<String> LOGGER_NAME = AttributeKey.stringKey("logger.name");
+    private static final AttributeKey<String> EXCEPTION_TYPE = AttributeKey.stringKey("exception.type");
+    private static final AttributeKey<String> EXCEPTION_MESSAGE = AttributeKey.stringKey("exception.message");
+    private static final AttributeKey<String> EXCEPTION_STACKTRACE = AttributeKey.stringKey("exception.stacktrace");
+
+    private static volatile OpenTelemetry openTelemetry;
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private final Supplier<OpenTelemetry> installed;
+    private int ringBufferSize = 8192;
+    private double warnReservedRatio = 0.25;
+    private int maxBatchSize = 512;
+    private boolean enabled = true;
+    private long installWaitMs = 60_000;
+    private LogRingBuffer<PendingLog> ringBuffer;
+    private Thread worker;
+    private volatile boolean running;
+    // 等待install超时后不再接收日志
+    private volatile boolean discarding;
+
+    public OtlpLogAppender() {
+        this(() -> openTelemetry);
+    }
+
+    // 测试中替换install的来源，不影响全局状态
+    OtlpLogAppender(Supplier<OpenTelemetry> installed) {
+        this.installed = installed;
+    }
+
+    /**
+     * 由OpenTelemetryConfig在SDK创建后调用
+     */
+    public static void install(OpenTelemetry sdk) {
+        openTelemetry = sdk;
+    }
+
+    public static long droppedCount() {
+        return DROPPED.get();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            super.start();
+            return;
+        }
+        ringBuffer = new LogRingBuffer<>(ringBufferSize, warnReservedRatio);
+        running = true;
+        worker = new Thread(this::drainLoop, "otlp-log-appender");
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        super.stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!enabled || discarding) {
+            return;
+        }
+        // traceId/spanId在后台线程转换；线程名和消息由logback延迟获取，必须在调用线程上取
+        SpanContext spanContext = Span.current().getSpanContext();
+        PendingLog log = new PendingLog(event, event.getFormattedMessage(), event.getThreadName(),
+                spanContext.isValid() ? spanContext : null);
+        if (!ringBuffer.offer(log, event.getLevel().isGreaterOrEqual(Level.WARN))) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        long installDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(installWaitMs);
+        while (running || ringBuffer.size() > 0) {
+            OpenTelemetry sdk = installed.get();
+            if (sdk == null) {
+                if (System.nanoTime() - installDeadline >= 0) {
+                    discarding = true;
+                    int discarded = ringBuffer.drain(log -> { }, Integer.MAX_VALUE);
+                    addWarn("OpenTelemetry was not installed within " + installWaitMs + "ms, discarded "
+                            + discarded + " log events and stopped exporting");
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            Logger logger = sdk.getLogsBridge().get("logback-appender");
+            int drained = ringBuffer.drain(log -> {
+                try {
+                    emit(logger, log);
+                } catch (RuntimeException e) {
+                    // 异常对象的toString/getMessage或SDK抛出的异常
+                    DROPPED.incrementAndGet();
+                    addError("Failed to export log event from " + log.event.getLoggerName(), e);
+                }
+            }, maxBatchSize);
+            if (drained == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+
+    private void emit(Logger logger, PendingLog log) {
+        ILoggingEvent event = log.event;
+        LogRecordBuilder builder = logger.logRecordBuilder()
+                .setTimestamp(event.getTimeStamp(), TimeUnit.MILLISECONDS)
+                .setSeverity(severity(event.getLevel()))
+                .setSeverityText(event.getLevel().levelStr)
+                .setBody(log.message)
+                .setAttribute(THREAD_NAME, log.threadName)
+                .setAttribute(LOGGER_NAME, event.getLoggerName());
+        if (log.spanContext != null) {
+            builder.setContext(Context.root().with(Span.wrap(log.spanContext)));
+        }
+        IThrowableProxy throwableProxy = event.getThrowableProxy();
+        if (throwableProxy instanceof ThrowableProxy) {
+            Throwable throwable = ((ThrowableProxy) throwableProxy).getThrowable();
+            StringWriter stackTrace = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(stackTrace));
+            builder.setAttribute(EXCEPTION_TYPE, throwable.getClass().getName())
+                    .setAttribute(EXCEPTION_MESSAGE, String.valueOf(throwable.getMessage()))
+                    .setAttribute(EXCEPTION_STACKTRACE, stackTrace.toString());
+        }
+        builder.emit();
+    }
+
+    private static Severity severity(Level level) {
+        switch (level.levelInt) {
+            case Level.ERROR_INT:
+                return Severity.ERROR;
+            case Level.WARN_INT:
+                return Severity.WARN;
+            case Level.INFO_INT:
+                return Severity.INFO;
+            case Level.DEBUG_INT:
+                return Severity.DEBUG;
+            default:
+                return Severity.TRACE;
+        }
+    }
+
+    public void setRingBufferSize(int ringBufferSize) {
+        this.ringBufferSize = ringBufferSize;
+    }
+
+    public void setWarnReservedRatio(double warnReservedRatio) {
+        this.warnReservedRatio = warnReservedRatio;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setInstallWaitMs(long installWaitMs) {
+        this.installWaitMs = installWaitMs;
+    }
+
+    private static final class PendingLog {
+        private final ILoggingEvent event;
+        private final String message;
+        private final String threadName;
+        private final SpanContext spanContext;
+
+        PendingLog(ILoggingEvent event, String message, String threadName, SpanContext spanContext) {
+            this.event = event;
+            this.message = message;
+            this.threadName = threadName;
+            this.spanContext = spanContext;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 由span派生RED指标(请求数、错误数、耗时分布)
+ * 采样器对未抽中的span返回RECORD_ONLY，这些span仍经过SpanProcessor但不会导出，
+ * 因此这里统计的是全部span，不受采样率影响；结果通过Micrometer由/actuator/prometheus暴露。
+ * 按span名称、类型、路由区分，组合数超过上限后归入_other
+ */
+public class RedMetricsSpanProcessor implements SpanProcessor {
+
+    static final String OTHER = "_other";
+
+    private final RedMetricsProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public RedMetricsSpanProcessor(RedMetricsProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        String route = span.getAttribute(SemanticAttributes.HTTP_ROUTE);
+        // 错误状态只能经toSpanData读取，开销见TracezSpanProcessor的类注释
+        boolean error = span.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR;
+        timers(span.getName(), span.getKind().name(), route != null ? route : "")[error ? 1 : 0]
+                .record(span.getLatencyNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    private Timer[] timers(String name, String kind, String route) {
+        String key = name + '\u0000' + kind + '\u0000' + route;
+        Timer[] existing = timers.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (timers.size() >= properties.getMaxSeries()) {
+            return timers.computeIfAbsent(OTHER, k -> register(OTHER, OTHER, OTHER));
+        }
+        return timers.computeIfAbsent(key, k -> register(name, kind, route));
+    }
+
+    // 每个组合固定两个Timer(ok/error)，请求率和错误率都由计数得出
+    private Timer[] register(String name, String kind, String route) {
+        return new Timer[]{timer(name, kind, route, "ok"), timer(name, kind, route, "error")};
+    }
+
+    private Timer timer(String name, String kind, String route, String status) {
+        return Timer.builder("otel.span.duration")
+                .description("Duration of all spans, before sampling")
+                .tag("span.name", name)
+                .tag("span.kind", kind)
+                .tag("http.route", route)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * RED指标属性
+     */
+    @Data
+    public static class RedMetricsProperties {
+        private boolean enabled = true;
+        // span名称/类型/路由组合数上限
+        private int maxSeries = 1000;
+    }
+}
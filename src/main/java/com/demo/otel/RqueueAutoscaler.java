@@ -0,0 +1,269 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.core.Job;
+import com.github.sonus21.rqueue.core.middleware.Middleware;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RQueue监听并发度自动伸缩
+ * RQueue启动后无法修改监听线程数，因此监听并发按上限配置，在出队之前控制实际并发：
+ * 本中间件只统计在途消息数和处理耗时，不阻塞已出队的消息；后台按gateIntervalMs检查在途数，
+ * 达到目标并发时暂停队列轮询，回落到目标以下时恢复，未取走的消息留在Redis中，积压统计也保持准确。
+ * 目标并发按{@link ConcurrencyAutoscalePolicy}根据积压条数和处理耗时定时调整，每次调整都记录为指标和span事件。
+ * 暂停在下一次检查和暂停生效之前仍可能多取一批消息，实际并发最多超出目标一个检查周期，但不会超过监听concurrency；
+ * RQueue的队列暂停对所有消费实例生效，多实例部署时只应在一个实例上开启
+ */
+public class RqueueAutoscaler implements Middleware, InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RqueueAutoscaler.class);
+
+    private final AutoscaleProperties properties;
+    private final QueueDepthSource depthSource;
+    private final QueuePauser pauser;
+    private final Tracer tracer;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, QueueState> queues = new LinkedHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public RqueueAutoscaler(AutoscaleProperties properties, QueueDepthSource depthSource,
+                            QueuePauser pauser, Tracer tracer, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.depthSource = depthSource;
+        this.pauser = pauser;
+        this.tracer = tracer;
+        this.meterRegistry = meterRegistry;
+
+        for (String queueName : properties.getQueues()) {
+            ConcurrencyAutoscalePolicy policy = new ConcurrencyAutoscalePolicy(
+                    properties.getMinConcurrency(), properties.getMaxConcurrency(), properties.getStep(),
+                    properties.getScaleUpBacklogPerWorker(), properties.getScaleDownBacklogPerWorker(),
+                    properties.getRequiredSamples(), properties.getMaxLatencyMs());
+            QueueState state = new QueueState(policy);
+            Gauge.builder("rqueue.listener.concurrency", state, QueueState::getConcurrency)
+                    .description("Current autoscaled listener concurrency")
+                    .tag("queue", queueName)
+                    .register(meterRegistry);
+            Gauge.builder("rqueue.listener.in_flight", state.inFlight, AtomicInteger::get)
+                    .description("Messages of the autoscaled queue currently being processed")
+                    .tag("queue", queueName)
+                    .register(meterRegistry);
+            queues.put(queueName, state);
+        }
+    }
+
+    @Override
+    public void handle(Job job, Callable<Void> next) throws Exception {
+        QueueState state = queues.get(job.getRqueueMessage().getQueueName());
+        if (state == null) {
+            next.call();
+            return;
+        }
+
+        state.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            next.call();
+        } finally {
+            state.latencyNanos.add(System.nanoTime() - start);
+            state.completed.increment();
+            state.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 按在途消息数暂停或恢复队列轮询，只在状态变化时调用RQueue
+     */
+    public void gate() {
+        for (Map.Entry<String, QueueState> entry : queues.entrySet()) {
+            String queueName = entry.getKey();
+            QueueState state = entry.getValue();
+            boolean pause = state.inFlight.get() >= state.concurrency;
+            if (pause == state.paused) {
+                continue;
+            }
+            try {
+                pauser.pause(queueName, pause);
+                state.paused = pause;
+            } catch (Exception e) {
+                log.warn("Failed to {} queue {}: {}", pause ? "pause" : "resume", queueName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 采样所有队列并执行调整，定时任务和测试共用
+     */
+    public void sample() {
+        for (Map.Entry<String, QueueState> entry : queues.entrySet()) {
+            String queueName = entry.getKey();
+            QueueState state = entry.getValue();
+            try {
+                long depth = depthSource.depth(queueName);
+                long completed = state.completed.sumThenReset();
+                long latencyNanos = state.latencyNanos.sumThenReset();
+                double avgLatencyMs = completed == 0 ? -1 : latencyNanos / 1_000_000.0 / completed;
+
+                ConcurrencyAutoscalePolicy.Decision decision =
+                        state.policy.evaluate(state.concurrency, depth, avgLatencyMs);
+                if (decision.isChange()) {
+                    apply(queueName, state, decision, depth, avgLatencyMs);
+                }
+            } catch (Exception e) {
+                log.warn("Autoscale sampling failed for queue {}: {}", queueName, e.getMessage());
+            }
+        }
+    }
+
+    public int getConcurrency(String queueName) {
+        QueueState state = queues.get(queueName);
+        return state == null ? -1 : state.concurrency;
+    }
+
+    public boolean isPaused(String queueName) {
+        QueueState state = queues.get(queueName);
+        return state != null && state.paused;
+    }
+
+    private void apply(String queueName, QueueState state, ConcurrencyAutoscalePolicy.Decision decision,
+                       long depth, double avgLatencyMs) {
+        state.concurrency = decision.getTo();
+
+        Counter.builder("rqueue.autoscale.decisions")
+                .description("Listener concurrency scaling decisions")
+                .tag("queue", queueName)
+                .tag("direction", decision.getDirection())
+                .tag("reason", decision.getReason())
+                .register(meterRegistry)
+                .increment();
+
+        Span span = tracer.spanBuilder("rqueue.autoscale")
+                .setNoParent()
+                .setSpanKind(SpanKind.INTERNAL)
+                .setAttribute("rqueue.queue.name", queueName)
+                .startSpan();
+        span.addEvent("rqueue.concurrency.scaled", Attributes.builder()
+                .put("rqueue.concurrency.from", decision.getFrom())
+                .put("rqueue.concurrency.to", decision.getTo())
+                .put("rqueue.autoscale.reason", decision.getReason())
+                .put("rqueue.queue.depth", depth)
+                .put("rqueue.processing.avg_ms", avgLatencyMs)
+                .build());
+        span.end();
+
+        log.info("Scaled queue {} concurrency {} -> {} (depth={}, avgLatencyMs={}, reason={})",
+                queueName, decision.getFrom(), decision.getTo(), depth, avgLatencyMs, decision.getReason());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rqueue-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sample,
+                properties.getIntervalMs(), properties.getIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::gate,
+                properties.getGateIntervalMs(), properties.getGateIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        // 暂停状态保存在Redis中，退出前恢复，避免队列一直停在暂停状态
+        for (Map.Entry<String, QueueState> entry : queues.entrySet()) {
+            if (entry.getValue().paused) {
+                try {
+                    pauser.pause(entry.getKey(), false);
+                    entry.getValue().paused = false;
+                } catch (Exception e) {
+                    log.warn("Failed to resume queue {} on shutdown: {}", entry.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 队列积压数据源，生产环境读取RQueue在Redis中的待处理条数
+     */
+    @FunctionalInterface
+    public interface QueueDepthSource {
+        long depth(String queueName) throws Exception;
+    }
+
+    /**
+     * 暂停或恢复队列轮询，生产环境使用RqueueEndpointManager
+     */
+    @FunctionalInterface
+    public interface QueuePauser {
+        void pause(String queueName, boolean pause) throws Exception;
+    }
+
+    private static final class QueueState {
+        private final ConcurrencyAutoscalePolicy policy;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private volatile int concurrency;
+        // 只由调度线程修改
+        private volatile boolean paused;
+
+        private QueueState(ConcurrencyAutoscalePolicy policy) {
+            this.policy = policy;
+            this.concurrency = policy.getMinConcurrency();
+        }
+
+        private double getConcurrency() {
+            return concurrency;
+        }
+    }
+
+    /**
+     * 自动伸缩属性
+     * 被伸缩队列的监听concurrency需要配置为不小于maxConcurrency，batchSize宜配置为1，减少暂停生效前多取的消息
+     */
+    @Data
+    public static class AutoscaleProperties {
+        private boolean enabled = false;
+        private List<String> queues = List.of("my-queue");
+        private int minConcurrency = 2;
+        private int maxConcurrency = 20;
+        private int step = 2;
+        // 每个工作线程平均积压超过该值时扩容
+        private double scaleUpBacklogPerWorker = 50;
+        // 每个工作线程平均积压低于该值时缩容
+        private double scaleDownBacklogPerWorker = 5;
+        // 连续满足条件的采样次数
+        private int requiredSamples = 3;
+        // 平均处理耗时超过该值时不再扩容，<=0表示不限制
+        private double maxLatencyMs = 0;
+        private long intervalMs = 5000;
+        // 按在途数暂停/恢复轮询的检查间隔
+        private long gateIntervalMs = 100;
+    }
+}
@@ -0,0 +1,156 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.config.RqueueConfig;
+import com.github.sonus21.rqueue.core.RqueueMessageEnqueuer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * RQueue批量入队
+ * 在一次Redis pipeline中完成多条消息的入队：pipeline建立在RQueue自己的连接工厂上，期间连接按工厂绑定在当前线程，
+ * RQueue内部的RedisTemplate取连接时拿到的就是这条连接，命令被缓冲后一次性发送，消息格式仍由RQueue生成。
+ * 整批只产生一个PRODUCER span，消息信封中携带的也是这个span的上下文。
+ * pipeline中的命令在关闭时才发送，enqueue在此之前就返回了本地生成的消息ID，返回null只表示同步阶段的失败
+ * (如消息转换失败、队列未注册)，这些位置计为失败；Redis执行失败在pipeline关闭时整体抛出，
+ * 无法对应到具体消息，此时整批计为失败并抛出异常，其中部分消息可能已经入队
+ */
+@Component
+public class RqueueBatchEnqueuer {
+
+    // span上最多记录的消息ID数量，避免超大批次撑大span
+    static final int MAX_RECORDED_IDS = 100;
+
+    private static final AttributeKey<List<String>> MESSAGE_IDS = AttributeKey.stringArrayKey("rqueue.message.ids");
+    private static final AttributeKey<Long> FAILED_COUNT = AttributeKey.longKey("rqueue.batch.failed_count");
+
+    private final RqueueMessageEnqueuer rqueueMessageEnqueuer;
+    private final StringRedisTemplate redisTemplate;
+    private final Tracer tracer;
+    private final int maxBatchSize;
+
+    @Autowired
+    public RqueueBatchEnqueuer(RqueueMessageEnqueuer rqueueMessageEnqueuer,
+                               RqueueConfig rqueueConfig,
+                               OpenTelemetry openTelemetry,
+                               @Value("${opentelemetry.rqueue.send-batch.max-size:1000}") int maxBatchSize) {
+        this.rqueueMessageEnqueuer = rqueueMessageEnqueuer;
+        // 与RQueue内部的RedisTemplate使用同一个连接工厂，pipeline绑定的连接才会被其复用
+        this.redisTemplate = new StringRedisTemplate(rqueueConfig.getConnectionFactory());
+        this.tracer = openTelemetry.getTracer("rqueue-instrumentation", "1.0.0");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * 批量入队，结果中的消息ID与消息顺序一致，入队失败的位置为null
+     *
+     * @throws BatchTooLargeException 消息数超过上限
+     * @throws DataAccessException    pipeline执行失败，部分消息可能已经入队
+     */
+    public BatchResult enqueueAll(String queueName, List<?> messages) {
+        if (messages.size() > maxBatchSize) {
+            throw new BatchTooLargeException(messages.size(), maxBatchSize);
+        }
+        Span span = tracer.spanBuilder("rqueue.message.send_batch")
+                .setSpanKind(SpanKind.PRODUCER)
+                .setAttribute("component", "rqueue")
+                .setAttribute("operation", "message.send_batch")
+                .setAttribute("rqueue.queue.name", queueName)
+                .setAttribute("messaging.batch.message_count", messages.size())
+                .startSpan();
+
+        List<String> messageIds = new ArrayList<>(messages.size());
+        // 标记批量入队，RqueueInstrumentation不再为每条消息单独创建span
+        Context context = Context.current().with(span).with(RqueueInstrumentation.BATCH_ENQUEUE, Boolean.TRUE);
+        try (Scope scope = context.makeCurrent()) {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    for (Object message : messages) {
+                        messageIds.add(rqueueMessageEnqueuer.enqueue(queueName, message));
+                    }
+                    return null;
+                }
+            });
+
+            BatchResult result = new BatchResult(messageIds);
+            List<String> enqueued = messageIds.stream().filter(Objects::nonNull).limit(MAX_RECORDED_IDS).toList();
+            span.setAttribute(MESSAGE_IDS, enqueued);
+            span.setAttribute(FAILED_COUNT, (long) result.getFailedCount());
+            if (result.getFailedCount() > 0) {
+                span.setStatus(StatusCode.ERROR, result.getFailedCount() + " of " + messages.size()
+                        + " messages could not be enqueued");
+            } else {
+                span.setStatus(StatusCode.OK);
+            }
+            return result;
+        } catch (DataAccessException e) {
+            // 无法确定哪些命令已执行，整批计为失败
+            span.setAttribute(FAILED_COUNT, (long) messages.size());
+            span.setStatus(StatusCode.ERROR, "Pipeline failed, some messages may have been enqueued: " + e.getMessage());
+            span.recordException(e);
+            throw e;
+        } catch (Exception e) {
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            span.recordException(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * 批次超过上限，接口返回413
+     */
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public static final class BatchTooLargeException extends IllegalArgumentException {
+        BatchTooLargeException(int size, int maxSize) {
+            super("Batch of " + size + " messages exceeds the limit of " + maxSize);
+        }
+    }
+
+    /**
+     * 批量入队结果
+     */
+    public static final class BatchResult {
+        private final List<String> messageIds;
+        private final int failedCount;
+
+        BatchResult(List<String> messageIds) {
+            this.messageIds = Collections.unmodifiableList(messageIds);
+            this.failedCount = (int) messageIds.stream().filter(Objects::isNull).count();
+        }
+
+        // 与消息顺序一致，失败的位置为null
+        public List<String> getMessageIds() {
+            return messageIds;
+        }
+
+        public int getEnqueuedCount() {
+            return messageIds.size() - failedCount;
+        }
+
+        public int getFailedCount() {
+            return failedCount;
+        }
+    }
+}
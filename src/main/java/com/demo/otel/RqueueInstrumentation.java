@@ -1,77 +1,57 @@
 package com.demo.otel;
 
-import com.github.sonus21.rqueue.core.RqueueMessage;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.*;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.context.Scope;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RQueue入队追踪
+ * 消费端span由挂在RQueue中间件链上的{@link RqueueTracingMiddleware}创建；
+ * 入队没有可用的扩展点，仍通过AOP拦截RqueueMessageEnqueuer，每个方法的span模板只解析一次
+ */
 @Aspect
 @Component
 public class RqueueInstrumentation {
 
+    // 批量入队标记，批次已有统一的PRODUCER span，单条入队不再创建span
+    static final ContextKey<Boolean> BATCH_ENQUEUE = ContextKey.named("rqueue-batch-enqueue");
+
     private final Tracer tracer;
+    private final Map<Method, RqueueSpanTemplate> senderTemplates = new ConcurrentHashMap<>();
 
     @Autowired
     public RqueueInstrumentation(OpenTelemetry openTelemetry) {
         this.tracer = openTelemetry.getTracer("rqueue-instrumentation", "1.0.0");
     }
 
-    // 拦截RQueue消息处理
-    @Around("@annotation(com.github.sonus21.rqueue.annotation.RqueueListener)")
-    public Object instrumentRqueueListener(ProceedingJoinPoint joinPoint) throws Throwable {
-        String methodName = joinPoint.getSignature().getName();
-        String className = joinPoint.getTarget().getClass().getSimpleName();
-
-        SpanBuilder spanBuilder = tracer.spanBuilder("rqueue.message.process")
-                .setSpanKind(SpanKind.CONSUMER)
-                .setAttribute("component", "rqueue")
-                .setAttribute("operation", "message.process")
-                .setAttribute("method.name", methodName)
-                .setAttribute("class.name", className);
-
-        // 尝试从参数中获取消息信息
-        Object[] args = joinPoint.getArgs();
-        if (args.length > 0 && args[0] instanceof RqueueMessage) {
-            RqueueMessage message = (RqueueMessage) args[0];
-            spanBuilder.setAttribute("rqueue.message.id", message.getId())
-                    .setAttribute("rqueue.queue.name", message.getQueueName())
-                    .setAttribute("rqueue.retry.count", message.getRetryCount());
-        }
-
-        Span span = spanBuilder.startSpan();
-        try (Scope scope = span.makeCurrent()) {
-            Object result = joinPoint.proceed();
-            span.setStatus(StatusCode.OK);
-            return result;
-        } catch (Exception e) {
-            span.setStatus(StatusCode.ERROR, e.getMessage());
-            span.recordException(e);
-            throw e;
-        } finally {
-            span.end();
-        }
-    }
-
     // 拦截RQueue消息发送/入队操作
     @Around("execution(* com.github.sonus21.rqueue.core.RqueueMessageEnqueuer.*(..))")
     public Object instrumentRqueueSender(ProceedingJoinPoint joinPoint) throws Throwable {
-        String methodName = joinPoint.getSignature().getName();
+        if (Context.current().get(BATCH_ENQUEUE) != null) {
+            return joinPoint.proceed();
+        }
 
-        SpanBuilder spanBuilder = tracer.spanBuilder("rqueue.message.send")
-                .setSpanKind(SpanKind.PRODUCER)
-                .setAttribute("component", "rqueue")
-                .setAttribute("operation", "message.send")
-                .setAttribute("method.name", methodName);
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        SpanBuilder spanBuilder = senderTemplates
+                .computeIfAbsent(method, m -> RqueueSpanTemplate.producer(m.getName()))
+                .spanBuilder(tracer);
 
-        // 尝试从参数中获取队列名称
+        // 第一个参数为队列名称
         Object[] args = joinPoint.getArgs();
         if (args.length > 0 && args[0] instanceof String) {
-            spanBuilder.setAttribute("rqueue.queue.name", (String) args[0]);
+            spanBuilder.setAttribute(RqueueSpanTemplate.QUEUE_NAME, (String) args[0]);
         }
 
         Span span = spanBuilder.startSpan();
@@ -81,7 +61,7 @@ public class RqueueInstrumentation {
 
             // 如果返回消息ID，记录它
             if (result instanceof String) {
-                span.setAttribute("rqueue.message.id", (String) result);
+                span.setAttribute(RqueueSpanTemplate.MESSAGE_ID, (String) result);
             }
 
             return result;
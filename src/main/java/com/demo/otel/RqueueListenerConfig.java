@@ -0,0 +1,147 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.config.SimpleRqueueListenerContainerFactory;
+import com.github.sonus21.rqueue.core.RqueueEndpointManager;
+import com.github.sonus21.rqueue.converter.DefaultMessageConverterProvider;
+import com.github.sonus21.rqueue.listener.RqueueMessageHandler;
+import com.github.sonus21.rqueue.metrics.RqueueQueueMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RQueue监听容器配置
+ * RQueue自动配置会优先使用这里声明的SimpleRqueueListenerContainerFactory，
+ * Redis连接等未设置的属性仍由RQueue自动填充
+ */
+@Configuration
+public class RqueueListenerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(RqueueListenerConfig.class);
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.rqueue.batch")
+    public RqueueBatchProperties rqueueBatchProperties() {
+        return new RqueueBatchProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.rqueue.codec")
+    public RqueueCodecProperties rqueueCodecProperties() {
+        return new RqueueCodecProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.rqueue.autoscale")
+    public RqueueAutoscaler.AutoscaleProperties rqueueAutoscaleProperties() {
+        return new RqueueAutoscaler.AutoscaleProperties();
+    }
+
+    /**
+     * 按Redis中的积压条数伸缩监听并发，通过暂停/恢复队列轮询在出队前生效
+     */
+    @Bean
+    @ConditionalOnProperty(name = "opentelemetry.rqueue.autoscale.enabled", havingValue = "true")
+    public RqueueAutoscaler rqueueAutoscaler(RqueueAutoscaler.AutoscaleProperties properties,
+                                             ObjectProvider<RqueueQueueMetrics> queueMetricsProvider,
+                                             ObjectProvider<RqueueEndpointManager> endpointManagerProvider,
+                                             OpenTelemetry openTelemetry,
+                                             MeterRegistry meterRegistry) {
+        return new RqueueAutoscaler(properties,
+                queueName -> queueMetricsProvider.getObject().getPendingMessageCount(queueName),
+                (queueName, pause) -> endpointManagerProvider.getObject().pauseUnpauseQueue(queueName, pause),
+                openTelemetry.getTracer("rqueue-instrumentation", "1.0.0"),
+                meterRegistry);
+    }
+
+    @Bean
+    public RqueueTracingMiddleware rqueueTracingMiddleware(OpenTelemetry openTelemetry,
+                                                           MeterRegistry meterRegistry,
+                                                           ObjectProvider<RqueueMessageHandler> messageHandlerProvider,
+                                                           RqueueBatchProperties batchProperties) {
+        return new RqueueTracingMiddleware(openTelemetry, meterRegistry, messageHandlerProvider, batchProperties);
+    }
+
+    @Bean
+    public SimpleRqueueListenerContainerFactory simpleRqueueListenerContainerFactory(
+            ExecutionModeConfig.ExecutionProperties executionProperties,
+            RqueueCodecProperties codecProperties,
+            RqueueTracingMiddleware rqueueTracingMiddleware,
+            ObjectProvider<RqueueAutoscaler> rqueueAutoscaler,
+            MeterRegistry meterRegistry) {
+        SimpleRqueueListenerContainerFactory factory = new SimpleRqueueListenerContainerFactory();
+
+        // 消息体编解码，旧格式消息始终交给RQueue默认转换器
+        CodecMessageConverter codecConverter = new CodecMessageConverter(
+                new BinaryMessageCodec(codecProperties.isCompression(), codecProperties.getCompressionThreshold()),
+                new DefaultMessageConverterProvider().getConverter(),
+                codecProperties.isBinary(),
+                meterRegistry);
+        // 入队时把追踪上下文写入消息信封，消费时由中间件恢复并创建CONSUMER span
+        TracingMessageConverter messageConverter = new TracingMessageConverter(codecConverter);
+        factory.setMessageConverterProvider(() -> messageConverter);
+        // 在途统计放在追踪之前，处理耗时与消费span一致
+        rqueueAutoscaler.ifAvailable(factory::useMiddleware);
+        factory.useMiddleware(rqueueTracingMiddleware);
+
+        if (executionProperties.isVirtual()) {
+            // 共享的虚拟线程执行器，提交时捕获的Context/MDC在监听方法中恢复
+            TaskExecutorAdapter executor = new TaskExecutorAdapter(VirtualThreads.newExecutor("rqueue-vt-"));
+            executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+            factory.setTaskExecutor(executor);
+            factory.setMaxNumWorkers(executionProperties.getMaxRqueueWorkers());
+            log.info("RQueue listeners run on virtual threads, max workers {}",
+                    executionProperties.getMaxRqueueWorkers());
+        }
+
+        return factory;
+    }
+
+    /**
+     * 消息编解码属性
+     * type为json时仍写旧格式但能读取binary格式，滚动发布时先全部升级再切换为binary
+     */
+    @Data
+    public static class RqueueCodecProperties {
+        // json(RQueue默认) / binary
+        private String type = "json";
+        // binary格式下是否启用LZ4压缩
+        private boolean compression = true;
+        // 序列化结果达到该字节数才压缩
+        private int compressionThreshold = 1024;
+
+        public boolean isBinary() {
+            return "binary".equalsIgnoreCase(type);
+        }
+    }
+
+    /**
+     * 批量消费属性
+     * 监听并发数需要不小于maxSize，否则批次凑不满，只能等待maxWaitMs后刷新
+     */
+    @Data
+    public static class RqueueBatchProperties {
+        private boolean enabled = false;
+        // 批量消费的队列，这些队列只产生整批的处理span
+        private List<String> queues = new ArrayList<>(List.of("my-queue"));
+        private int maxSize = 20;
+        private long maxWaitMs = 50;
+        // 每条消息等待所在批次开始处理的上限，超时的消息撤回并由RQueue重试；已开始处理的消息等待结果
+        private long resultTimeoutMs = 30000;
+
+        public boolean isBatched(String queueName) {
+            return enabled && queues.contains(queueName);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapSetter;
+
+import java.util.Collections;
+
+/**
+ * RQueue消息信封，在消息体前附加W3C追踪上下文和入队时间
+ * 格式: \u001Eotel1;{enqueuedAtMillis};{traceparent};{tracestate}\n{payload}
+ * 以控制字符开头，不会与旧格式(JSON)的消息混淆，未带信封的消息按原样处理
+ */
+public final class RqueueMessageEnvelope {
+
+    static final String PREFIX = "\u001Eotel1;";
+
+    private static final String TRACEPARENT = "traceparent";
+    private static final String TRACESTATE = "tracestate";
+
+    private final long enqueuedAt;
+    private final String traceparent;
+    private final String tracestate;
+    private final String payload;
+
+    private RqueueMessageEnvelope(long enqueuedAt, String traceparent, String tracestate, String payload) {
+        this.enqueuedAt = enqueuedAt;
+        this.traceparent = traceparent;
+        this.tracestate = tracestate;
+        this.payload = payload;
+    }
+
+    /**
+     * 用当前上下文包装消息体
+     */
+    public static String wrap(String payload, Context context, long enqueuedAt) {
+        Headers headers = new Headers();
+        W3CTraceContextPropagator.getInstance().inject(context, headers, Headers.SETTER);
+
+        return new StringBuilder(PREFIX.length() + 96 + payload.length())
+                .append(PREFIX)
+                .append(enqueuedAt).append(';')
+                .append(headers.traceparent != null ? headers.traceparent : "").append(';')
+                .append(headers.tracestate != null ? headers.tracestate : "").append('\n')
+                .append(payload)
+                .toString();
+    }
+
+    public static boolean isEnvelope(String raw) {
+        return raw != null && raw.startsWith(PREFIX);
+    }
+
+    /**
+     * 解析信封，不是信封格式时返回null
+     */
+    public static RqueueMessageEnvelope parse(String raw) {
+        if (!isEnvelope(raw)) {
+            return null;
+        }
+        int timeEnd = raw.indexOf(';', PREFIX.length());
+        int parentEnd = timeEnd < 0 ? -1 : raw.indexOf(';', timeEnd + 1);
+        int headerEnd = parentEnd < 0 ? -1 : raw.indexOf('\n', parentEnd + 1);
+        if (headerEnd < 0) {
+            return null;
+        }
+        long enqueuedAt;
+        try {
+            enqueuedAt = Long.parseLong(raw, PREFIX.length(), timeEnd, 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new RqueueMessageEnvelope(
+                enqueuedAt,
+                emptyToNull(raw.substring(timeEnd + 1, parentEnd)),
+                emptyToNull(raw.substring(parentEnd + 1, headerEnd)),
+                raw.substring(headerEnd + 1));
+    }
+
+    /**
+     * 去掉信封，返回原始消息体；不是信封格式时原样返回
+     */
+    public static String unwrap(String raw) {
+        if (!isEnvelope(raw)) {
+            return raw;
+        }
+        int headerEnd = raw.indexOf('\n');
+        return headerEnd < 0 ? raw : raw.substring(headerEnd + 1);
+    }
+
+    /**
+     * 从信封中恢复生产者上下文
+     */
+    public Context extract(Context context) {
+        if (traceparent == null) {
+            return context;
+        }
+        return W3CTraceContextPropagator.getInstance().extract(context, this, GETTER);
+    }
+
+    public long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static final TextMapGetter<RqueueMessageEnvelope> GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(RqueueMessageEnvelope carrier) {
+            return Collections.singletonList(TRACEPARENT);
+        }
+
+        @Override
+        public String get(RqueueMessageEnvelope carrier, String key) {
+            if (carrier == null) {
+                return null;
+            }
+            if (TRACEPARENT.equals(key)) {
+                return carrier.traceparent;
+            }
+            if (TRACESTATE.equals(key)) {
+                return carrier.tracestate;
+            }
+            return null;
+        }
+    };
+
+    private static final class Headers {
+        private static final TextMapSetter<Headers> SETTER = (carrier, key, value) -> {
+            if (carrier == null) {
+                return;
+            }
+            if (TRACEPARENT.equals(key)) {
+                carrier.traceparent = value;
+            } else if (TRACESTATE.equals(key)) {
+                carrier.tracestate = value;
+            }
+        };
+
+        private String traceparent;
+        private String tracestate;
+    }
+}
@@ -0,0 +1,76 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+
+/**
+ * 预先计算好的RQueue span模板
+ * 每个监听队列/入队方法只解析一次，span名称和静态属性(含AttributeKey)复用，
+ * 热路径上只需设置消息ID等少量动态属性
+ */
+public final class RqueueSpanTemplate {
+
+    public static final AttributeKey<String> QUEUE_NAME = AttributeKey.stringKey("rqueue.queue.name");
+    public static final AttributeKey<String> MESSAGE_ID = AttributeKey.stringKey("rqueue.message.id");
+    public static final AttributeKey<Long> RETRY_COUNT = AttributeKey.longKey("rqueue.retry.count");
+    public static final AttributeKey<Long> LAG_MS = AttributeKey.longKey("rqueue.message.lag_ms");
+
+    private final String spanName;
+    private final SpanKind spanKind;
+    private final Attributes attributes;
+
+    private RqueueSpanTemplate(String spanName, SpanKind spanKind, Attributes attributes) {
+        this.spanName = spanName;
+        this.spanKind = spanKind;
+        this.attributes = attributes;
+    }
+
+    /**
+     * 消费模板，className/methodName未知时可以为null
+     */
+    public static RqueueSpanTemplate consumer(String queueName, String className, String methodName) {
+        AttributesBuilder builder = Attributes.builder()
+                .put("component", "rqueue")
+                .put("operation", "message.process")
+                .put("messaging.system", "rqueue")
+                .put("messaging.operation", "process")
+                .put(QUEUE_NAME, queueName);
+        if (className != null) {
+            builder.put("class.name", className);
+        }
+        if (methodName != null) {
+            builder.put("method.name", methodName);
+        }
+        return new RqueueSpanTemplate("rqueue.message.process", SpanKind.CONSUMER, builder.build());
+    }
+
+    /**
+     * 入队模板，按RqueueMessageEnqueuer的方法区分
+     */
+    public static RqueueSpanTemplate producer(String methodName) {
+        return new RqueueSpanTemplate("rqueue.message.send", SpanKind.PRODUCER, Attributes.builder()
+                .put("component", "rqueue")
+                .put("operation", "message.send")
+                .put("messaging.system", "rqueue")
+                .put("method.name", methodName)
+                .build());
+    }
+
+    public SpanBuilder spanBuilder(Tracer tracer) {
+        return tracer.spanBuilder(spanName)
+                .setSpanKind(spanKind)
+                .setAllAttributes(attributes);
+    }
+
+    public String getSpanName() {
+        return spanName;
+    }
+
+    public Attributes getAttributes() {
+        return attributes;
+    }
+}
@@ -0,0 +1,164 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.core.Job;
+import com.github.sonus21.rqueue.core.RqueueMessage;
+import com.github.sonus21.rqueue.core.middleware.Middleware;
+import com.github.sonus21.rqueue.listener.MappingInformation;
+import com.github.sonus21.rqueue.listener.RqueueMessageHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.Scope;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.handler.HandlerMethod;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RQueue消费端追踪中间件
+ * 直接挂在RQueue的中间件链上创建CONSUMER span，代替对@RqueueListener方法的AOP拦截；
+ * 每个队列第一次消费时解析出监听类/方法并缓存为{@link RqueueSpanTemplate}。
+ * 同时从消息信封中恢复生产者上下文作为父上下文，并按队列记录入队到出队的等待时间和处理耗时。
+ * 批量消费的队列不创建每条消息的span，只把生产者上下文交给{@link MessageBatcher}作为整批span的link
+ */
+public class RqueueTracingMiddleware implements Middleware {
+
+    // 生产者span上下文，批量消费时作为span link使用
+    public static final ContextKey<SpanContext> PRODUCER_CONTEXT = ContextKey.named("rqueue-producer-context");
+
+    private final Tracer tracer;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<RqueueMessageHandler> messageHandlerProvider;
+    private final RqueueListenerConfig.RqueueBatchProperties batchProperties;
+    private final Map<String, QueueTelemetry> queues = new ConcurrentHashMap<>();
+
+    public RqueueTracingMiddleware(OpenTelemetry openTelemetry,
+                                   MeterRegistry meterRegistry,
+                                   ObjectProvider<RqueueMessageHandler> messageHandlerProvider,
+                                   RqueueListenerConfig.RqueueBatchProperties batchProperties) {
+        this.tracer = openTelemetry.getTracer("rqueue-instrumentation", "1.0.0");
+        this.meterRegistry = meterRegistry;
+        this.messageHandlerProvider = messageHandlerProvider;
+        this.batchProperties = batchProperties;
+    }
+
+    @Override
+    public void handle(Job job, Callable<Void> next) throws Exception {
+        RqueueMessage rqueueMessage = job.getRqueueMessage();
+        QueueTelemetry telemetry = queues.computeIfAbsent(rqueueMessage.getQueueName(), this::createQueueTelemetry);
+
+        // 批量队列只恢复生产者上下文，由整批的处理span通过link关联
+        SpanBuilder spanBuilder = telemetry.batched ? null : telemetry.template.spanBuilder(tracer)
+                .setAttribute(RqueueSpanTemplate.MESSAGE_ID, rqueueMessage.getId())
+                .setAttribute(RqueueSpanTemplate.RETRY_COUNT, (long) rqueueMessage.getFailureCount());
+
+        Context context = Context.current();
+        long lagMs = -1;
+        RqueueMessageEnvelope envelope = RqueueMessageEnvelope.parse(rqueueMessage.getMessage());
+        if (envelope != null) {
+            lagMs = Math.max(0, System.currentTimeMillis() - envelope.getEnqueuedAt());
+
+            SpanContext producerSpanContext = Span.fromContext(envelope.extract(Context.root())).getSpanContext();
+            if (producerSpanContext.isValid()) {
+                context = context.with(PRODUCER_CONTEXT, producerSpanContext);
+            }
+            if (spanBuilder != null) {
+                spanBuilder.setAttribute(RqueueSpanTemplate.LAG_MS, lagMs);
+                if (producerSpanContext.isValid()) {
+                    spanBuilder.setParent(context.with(Span.wrap(producerSpanContext)));
+                }
+            }
+        }
+
+        Span span = spanBuilder != null ? spanBuilder.startSpan() : Span.getInvalid();
+        if (spanBuilder != null) {
+            context = context.with(span);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        // 耗时在span仍为当前span时记录，Prometheus直方图才能带上该链路的exemplar
+        try (Scope scope = context.makeCurrent()) {
+            if (lagMs >= 0) {
+                telemetry.lag.record(lagMs, TimeUnit.MILLISECONDS);
+            }
+            try {
+                next.call();
+                span.setStatus(StatusCode.OK);
+                success = true;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                (success ? telemetry.processed : telemetry.failed).record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        } catch (Exception e) {
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            span.recordException(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private QueueTelemetry createQueueTelemetry(String queueName) {
+        String className = null;
+        String methodName = null;
+        RqueueMessageHandler messageHandler = messageHandlerProvider.getIfAvailable();
+        if (messageHandler != null) {
+            for (Map.Entry<MappingInformation, HandlerMethod> entry : messageHandler.getHandlerMethods().entrySet()) {
+                if (entry.getKey().getQueueNames().contains(queueName)) {
+                    className = entry.getValue().getBeanType().getSimpleName();
+                    methodName = entry.getValue().getMethod().getName();
+                    break;
+                }
+            }
+        }
+
+        return new QueueTelemetry(
+                RqueueSpanTemplate.consumer(queueName, className, methodName),
+                batchProperties.isBatched(queueName),
+                Timer.builder("rqueue.message.lag")
+                        .description("Time between enqueue and dequeue")
+                        .tag("queue", queueName)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                processingTimer(queueName, "success"),
+                processingTimer(queueName, "failure"));
+    }
+
+    private Timer processingTimer(String queueName, String status) {
+        return Timer.builder("rqueue.message.processing")
+                .description("Listener processing time")
+                .tag("queue", queueName)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单个队列的span模板和指标，首次消费时创建
+     */
+    private static final class QueueTelemetry {
+        private final RqueueSpanTemplate template;
+        private final boolean batched;
+        private final Timer lag;
+        private final Timer processed;
+        private final Timer failed;
+
+        private QueueTelemetry(RqueueSpanTemplate template, boolean batched, Timer lag, Timer processed, Timer failed) {
+            this.template = template;
+            this.batched = batched;
+            this.lag = lag;
+            this.processed = processed;
+            this.failed = failed;
+        }
+    }
+}
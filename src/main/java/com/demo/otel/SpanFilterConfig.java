@@ -5,14 +5,17 @@ import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.sdk.trace.data.LinkData;
 import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
 import io.opentelemetry.sdk.trace.samplers.SamplingResult;
 import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.AntPathMatcher;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 @Configuration
@@ -23,9 +26,22 @@ public class SpanFilterConfig {
         return new FilterProperties();
     }
 
+    /**
+     * 未抽中的span在开启RED指标时返回RECORD_ONLY：仍经过SpanProcessor统计，但不导出
+     */
     @Bean
-    public Sampler customSampler(FilterProperties filterProperties) {
-        return new FilteringSampler(filterProperties);
+    public Sampler customSampler(FilterProperties filterProperties,
+                                 @Value("${opentelemetry.sampling.ratio:1.0}") double ratio,
+                                 @Value("${opentelemetry.red-metrics.enabled:true}") boolean recordUnsampled) {
+        return new FilteringSampler(filterProperties, ratio, recordUnsampled);
+    }
+
+    /**
+     * JDBC校验语句和Redis PING在插桩层据此抑制追踪
+     */
+    @Bean
+    public ExcludedOperations excludedOperations(FilterProperties filterProperties) {
+        return new ExcludedOperations(filterProperties.getExcludeOperations());
     }
 
     public static class FilterProperties {
@@ -59,13 +75,113 @@ public class SpanFilterConfig {
         public void setExcludeSpanNames(Set<String> excludeSpanNames) { this.excludeSpanNames = excludeSpanNames; }
     }
 
+    /**
+     * 需要排除的数据库/Redis操作
+     * 关键字在构造时去掉首尾空白、合并连续空白并转为大写，语句规范化后与关键字完全相同才匹配，
+     * 比较时逐字符进行，不为每条语句创建新字符串
+     */
+    public static class ExcludedOperations {
+        private final String[] operations;
+
+        public ExcludedOperations(Set<String> operations) {
+            this.operations = operations.stream()
+                    .map(operation -> operation.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT))
+                    .toArray(String[]::new);
+        }
+
+        /**
+         * 规范化后的整条语句等于任一排除关键字，如SELECT 1；包含关键字的业务语句不匹配
+         */
+        public boolean matches(String statement) {
+            if (statement == null) {
+                return false;
+            }
+            for (String operation : operations) {
+                if (equalsNormalized(statement, operation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Redis命令名与排除关键字完全相同，如PING
+         */
+        public boolean matchesCommand(String command) {
+            for (String operation : operations) {
+                if (operation.equalsIgnoreCase(command)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 忽略首尾空白，连续空白视为一个空格，忽略大小写比较
+         */
+        static boolean equalsNormalized(String text, String normalized) {
+            int length = text.length();
+            int i = 0;
+            int j = 0;
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            while (i < length) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    while (i < length && Character.isWhitespace(text.charAt(i))) {
+                        i++;
+                    }
+                    if (i == length) {
+                        break;
+                    }
+                    c = ' ';
+                } else {
+                    i++;
+                }
+                if (j == normalized.length() || Character.toUpperCase(c) != normalized.charAt(j)) {
+                    return false;
+                }
+                j++;
+            }
+            return j == normalized.length();
+        }
+
+        static boolean containsIgnoreCase(String text, String keyword) {
+            int max = text.length() - keyword.length();
+            for (int i = 0; i <= max; i++) {
+                if (text.regionMatches(true, i, keyword, 0, keyword.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 兜底的过滤采样器
+     * 能在插桩层判断的操作(校验SQL、Redis PING、排除的actuator路径)已经在源头抑制，不会走到这里；
+     * 这里只处理其他来源(如Java Agent的自动插桩)产生的同类span
+     */
     public static class FilteringSampler implements Sampler {
         private final FilterProperties filterProperties;
+        private final ExcludedOperations excludedOperations;
+        private final String[] excludedSpanNames;
         private final AntPathMatcher pathMatcher = new AntPathMatcher();
-        private final Sampler delegate = Sampler.traceIdRatioBased(1.0);
+        private final Sampler delegate;
+        private final boolean recordUnsampled;
 
         public FilteringSampler(FilterProperties filterProperties) {
+            this(filterProperties, 1.0, false);
+        }
+
+        public FilteringSampler(FilterProperties filterProperties, double ratio, boolean recordUnsampled) {
             this.filterProperties = filterProperties;
+            // 按比例只决定根span，子span跟随父span的采样决定，跨服务的链路不会被截断
+            this.delegate = Sampler.parentBased(Sampler.traceIdRatioBased(ratio));
+            this.recordUnsampled = recordUnsampled;
+            this.excludedOperations = new ExcludedOperations(filterProperties.getExcludeOperations());
+            this.excludedSpanNames = filterProperties.getExcludeSpanNames().toArray(new String[0]);
         }
 
         @Override
@@ -82,36 +198,35 @@ public class SpanFilterConfig {
             if (httpTarget != null) {
                 for (String excludeUrl : filterProperties.getExcludeUrls()) {
                     if (pathMatcher.match(excludeUrl, httpTarget)) {
-                        return SamplingResult.create(SamplingDecision.NOT_RECORD);
+                        return SamplingResult.drop();
                     }
                 }
             }
 
             // 过滤数据库PING操作
-            String dbStatement = attributes.get(SemanticAttributes.DB_STATEMENT);
-            if (dbStatement != null) {
-                for (String excludeOp : filterProperties.getExcludeOperations()) {
-                    if (dbStatement.toUpperCase().contains(excludeOp.toUpperCase())) {
-                        return SamplingResult.create(SamplingDecision.NOT_RECORD);
-                    }
-                }
+            if (excludedOperations.matches(attributes.get(SemanticAttributes.DB_STATEMENT))) {
+                return SamplingResult.drop();
             }
 
             // 过滤Redis PING操作
             String redisCommand = attributes.get(SemanticAttributes.DB_OPERATION);
             if ("PING".equalsIgnoreCase(redisCommand)) {
-                return SamplingResult.create(SamplingDecision.NOT_RECORD);
+                return SamplingResult.drop();
             }
 
             // 过滤指定的span名称
-            for (String excludeSpanName : filterProperties.getExcludeSpanNames()) {
-                if (name.toLowerCase().contains(excludeSpanName.toLowerCase())) {
-                    return SamplingResult.create(SamplingDecision.NOT_RECORD);
+            for (String excludeSpanName : excludedSpanNames) {
+                if (ExcludedOperations.containsIgnoreCase(name, excludeSpanName)) {
+                    return SamplingResult.drop();
                 }
             }
 
-            // 其他情况使用默认采样器
-            return delegate.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+            // 其他情况跟随父span，根span按比例采样
+            SamplingResult result = delegate.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+            if (recordUnsampled && result.getDecision() == SamplingDecision.DROP) {
+                return SamplingResult.recordOnly();
+            }
+            return result;
         }
 
         @Override
@@ -0,0 +1,46 @@
+package com.demo.otel;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * span对应的JFR事件
+ * 持续时间为span开始到结束，事件线程为结束span的线程，开始span的线程记录在startThreadId；
+ * 两者相同时，按traceId/spanId即可把同一时间段、同一线程的CPU采样和锁事件关联到具体请求
+ */
+@Name(SpanJfrEvent.NAME)
+@Label("OpenTelemetry Span")
+@Category("OpenTelemetry")
+@Description("Span lifetime with trace and span IDs")
+@StackTrace(false)
+public class SpanJfrEvent extends jdk.jfr.Event {
+
+    static final String NAME = "com.demo.otel.Span";
+
+    @Label("Trace Id")
+    String traceId;
+
+    @Label("Span Id")
+    String spanId;
+
+    @Label("Parent Span Id")
+    String parentSpanId;
+
+    @Label("Name")
+    String name;
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Instrumentation Scope")
+    String scope;
+
+    @Label("Status")
+    String status;
+
+    @Label("Start Thread Id")
+    long startThreadId;
+}
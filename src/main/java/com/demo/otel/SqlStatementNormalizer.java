@@ -0,0 +1,87 @@
+package com.demo.otel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * SQL语句归一化
+ * 把字符串/数字字面量替换为?、合并空白、把IN列表折叠为IN (?)，得到与参数无关的"语句形状"；
+ * 结果不包含字面量，可以直接作为脱敏后的SQL记录
+ */
+public final class SqlStatementNormalizer {
+
+    static final int MAX_LENGTH = 1024;
+    private static final int MAX_CACHED = 4096;
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    // 预编译语句的SQL会反复出现，缓存归一化结果
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private SqlStatementNormalizer() {
+    }
+
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String cached = CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String shape = doNormalize(sql);
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.put(sql, shape);
+        }
+        return shape;
+    }
+
+    private static String doNormalize(String sql) {
+        int length = sql.length();
+        StringBuilder out = new StringBuilder(Math.min(length, MAX_LENGTH));
+        boolean lastSpace = false;
+        int i = 0;
+        while (i < length && out.length() < MAX_LENGTH) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                // 字符串字面量，支持''转义
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == c) {
+                        if (i + 1 < length && sql.charAt(i + 1) == c) {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+                lastSpace = false;
+            } else if (Character.isWhitespace(c)) {
+                if (!lastSpace && out.length() > 0) {
+                    out.append(' ');
+                    lastSpace = true;
+                }
+                i++;
+            } else if (Character.isDigit(c) && (out.length() == 0 || !isIdentifierPart(out.charAt(out.length() - 1)))) {
+                // 数字字面量(不处理标识符中的数字，如t1)
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+                lastSpace = false;
+            } else {
+                out.append(c);
+                lastSpace = false;
+                i++;
+            }
+        }
+        return IN_LIST.matcher(out).replaceAll("(?)").trim();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '`';
+    }
+}
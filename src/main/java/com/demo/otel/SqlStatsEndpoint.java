@@ -0,0 +1,31 @@
+package com.demo.otel;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL统计端点: /actuator/sqlstats
+ * 返回按总耗时排序的语句、最近的慢语句和N+1记录
+ */
+@Endpoint(id = "sqlstats")
+public class SqlStatsEndpoint {
+
+    private final JdbcQueryMonitor monitor;
+
+    public SqlStatsEndpoint(JdbcQueryMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> sqlStats(@Nullable Integer limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statements", monitor.topStatements(limit != null ? limit : 20));
+        result.put("slowStatements", monitor.slowStatements());
+        result.put("nPlusOne", monitor.nPlusOneFindings());
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Spring启动阶段span
+ * 容器启动时还没有Tracer，先由BufferingApplicationStartup记录各阶段(StartupStep)的起止时间，
+ * 应用就绪后按记录的时间补发span: 根span从JVM启动到就绪，下面是spring.boot.application.*、
+ * spring.context.refresh等阶段，以及耗时超过min-duration的bean初始化(spring.beans.instantiate)
+ */
+public class StartupTracing implements ApplicationListener<ApplicationReadyEvent> {
+
+    static final String ENABLED_PROPERTY = "opentelemetry.startup-tracing.enabled";
+    static final String ROOT_SPAN_NAME = "spring.boot.startup";
+
+    // 一次启动通常只有几千个步骤
+    private static final int TIMELINE_CAPACITY = 20000;
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTracing.class);
+
+    private final StartupTracingProperties properties;
+    private final Tracer tracer;
+
+    public StartupTracing(StartupTracingProperties properties, OpenTelemetry openTelemetry) {
+        this.properties = properties;
+        this.tracer = openTelemetry.getTracer("spring-boot-startup", "1.0.0");
+    }
+
+    /**
+     * 在SpringApplication启动前调用: 开启时返回BufferingApplicationStartup，否则返回默认的no-op实现。
+     * 依次读取启动参数、系统属性和环境变量OTEL_STARTUP_TRACING
+     */
+    public static ApplicationStartup applicationStartup(String[] args) {
+        String enabled = new SimpleCommandLinePropertySource(args).getProperty(ENABLED_PROPERTY);
+        if (enabled == null) {
+            enabled = System.getProperty(ENABLED_PROPERTY, System.getenv("OTEL_STARTUP_TRACING"));
+        }
+        return Boolean.parseBoolean(enabled)
+                ? new BufferingApplicationStartup(TIMELINE_CAPACITY)
+                : ApplicationStartup.DEFAULT;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (!(startup instanceof BufferingApplicationStartup buffering)) {
+            log.info("Startup tracing skipped: {} must be enabled before the application starts", ENABLED_PROPERTY);
+            return;
+        }
+        // 不清空记录，/actuator/startup仍可读取
+        int emitted = emit(buffering.getBufferedTimeline(), event.getTimeTaken());
+        log.info("Emitted {} startup spans", emitted);
+    }
+
+    int emit(StartupTimeline timeline, Duration readyTime) {
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getStartTime)
+                        .thenComparingLong(event -> event.getStartupStep().getId()))
+                .collect(Collectors.toList());
+        Map<Long, StartupStep> steps = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            steps.put(event.getStartupStep().getId(), event.getStartupStep());
+        }
+
+        Span root = tracer.spanBuilder(ROOT_SPAN_NAME)
+                .setNoParent()
+                .setStartTimestamp(ManagementFactory.getRuntimeMXBean().getStartTime(), TimeUnit.MILLISECONDS)
+                .setAttribute("spring.startup.ready_ms", readyTime != null ? readyTime.toMillis() : -1)
+                .startSpan();
+
+        // 父步骤先开始(id也更小)，排序后父span总是先于子span创建
+        Map<Long, Span> spans = new HashMap<>();
+        int emitted = 0;
+        for (StartupTimeline.TimelineEvent event : events) {
+            StartupStep step = event.getStartupStep();
+            if (!shouldEmit(step.getName(), event.getDuration())) {
+                continue;
+            }
+            if (emitted >= properties.getMaxSpans()) {
+                root.setAttribute("spring.startup.truncated", true);
+                break;
+            }
+            Span span = tracer.spanBuilder(step.getName())
+                    .setParent(Context.root().with(parentSpan(step, steps, spans, root)))
+                    .setStartTimestamp(event.getStartTime())
+                    .startSpan();
+            for (StartupStep.Tag tag : step.getTags()) {
+                span.setAttribute(AttributeKey.stringKey("spring.startup." + tag.getKey()), tag.getValue());
+            }
+            span.end(event.getEndTime());
+            spans.put(step.getId(), span);
+            emitted++;
+        }
+        root.end();
+        return emitted + 1;
+    }
+
+    private boolean shouldEmit(String name, Duration duration) {
+        return name.startsWith("spring.boot.application.")
+                || "spring.context.refresh".equals(name)
+                || duration.compareTo(properties.getMinDuration()) >= 0;
+    }
+
+    // 向上找最近一个已发出span的步骤，找不到时挂在根span下
+    private static Span parentSpan(StartupStep step, Map<Long, StartupStep> steps, Map<Long, Span> spans, Span root) {
+        Long parentId = step.getParentId();
+        while (parentId != null) {
+            Span parent = spans.get(parentId);
+            if (parent != null) {
+                return parent;
+            }
+            StartupStep parentStep = steps.get(parentId);
+            parentId = parentStep != null ? parentStep.getParentId() : null;
+        }
+        return root;
+    }
+
+    @Data
+    public static class StartupTracingProperties {
+        private boolean enabled = false;
+        // 低于该耗时的bean初始化等步骤不单独发span
+        private Duration minDuration = Duration.ofMillis(50);
+        private int maxSpans = 500;
+    }
+}
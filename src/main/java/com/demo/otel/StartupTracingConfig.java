@@ -0,0 +1,27 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.OpenTelemetry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 启动阶段span，off模式下不启用
+ */
+@Configuration
+@ConditionalOnExpression("'${opentelemetry.mode.effective:sdk}' != 'off' and ${opentelemetry.startup-tracing.enabled:false}")
+public class StartupTracingConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.startup-tracing")
+    public StartupTracing.StartupTracingProperties startupTracingProperties() {
+        return new StartupTracing.StartupTracingProperties();
+    }
+
+    @Bean
+    public StartupTracing startupTracing(StartupTracing.StartupTracingProperties properties,
+                                         OpenTelemetry openTelemetry) {
+        return new StartupTracing(properties, openTelemetry);
+    }
+}
@@ -0,0 +1,174 @@
+package com.demo.otel;
+
+import io.lettuce.core.protocol.RedisCommand;
+import io.lettuce.core.tracing.TraceContext;
+import io.lettuce.core.tracing.TraceContextProvider;
+import io.lettuce.core.tracing.Tracer;
+import io.lettuce.core.tracing.TracerProvider;
+import io.lettuce.core.tracing.Tracing;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 跳过指定命令的Lettuce追踪
+ * Lettuce在start(command)时才给出命令类型，这里先缓存名称/标签/远端地址，
+ * 到start时再决定是否创建真正的span；PING等排除命令以及已抑制的Context不会触发下层span的创建
+ */
+public class SuppressingLettuceTracing implements Tracing {
+
+    private final Tracing delegate;
+    private final SpanFilterConfig.ExcludedOperations excludedCommands;
+    private final TracerProvider tracerProvider;
+
+    public SuppressingLettuceTracing(Tracing delegate, SpanFilterConfig.ExcludedOperations excludedCommands) {
+        this.delegate = delegate;
+        this.excludedCommands = excludedCommands;
+        SuppressingTracer tracer = new SuppressingTracer(delegate.getTracerProvider().getTracer());
+        this.tracerProvider = () -> tracer;
+    }
+
+    @Override
+    public TracerProvider getTracerProvider() {
+        return tracerProvider;
+    }
+
+    @Override
+    public TraceContextProvider initialTraceContextProvider() {
+        return delegate.initialTraceContextProvider();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+
+    @Override
+    public boolean includeCommandArgsInSpanTags() {
+        return delegate.includeCommandArgsInSpanTags();
+    }
+
+    @Override
+    public Endpoint createEndpoint(SocketAddress socketAddress) {
+        return delegate.createEndpoint(socketAddress);
+    }
+
+    private final class SuppressingTracer extends Tracer {
+
+        private final Tracer tracer;
+
+        SuppressingTracer(Tracer tracer) {
+            this.tracer = tracer;
+        }
+
+        @Override
+        public Span nextSpan() {
+            return new DeferredSpan(tracer, null);
+        }
+
+        @Override
+        public Span nextSpan(TraceContext traceContext) {
+            return new DeferredSpan(tracer, traceContext);
+        }
+    }
+
+    /**
+     * start之前只记录调用，start之后转发给真正的span；被跳过时所有调用都是空操作
+     */
+    private final class DeferredSpan extends Tracer.Span {
+
+        private final Tracer tracer;
+        private final TraceContext traceContext;
+        private String name;
+        private Endpoint endpoint;
+        private List<String[]> tags;
+        private Tracer.Span span;
+        private boolean skipped;
+
+        DeferredSpan(Tracer tracer, TraceContext traceContext) {
+            this.tracer = tracer;
+            this.traceContext = traceContext;
+        }
+
+        @Override
+        public Tracer.Span start(RedisCommand<?, ?, ?> command) {
+            if (excludedCommands.matchesCommand(command.getType().name()) || InstrumentationSuppression.isSuppressed()) {
+                skipped = true;
+                tags = null;
+                return this;
+            }
+            span = traceContext != null ? tracer.nextSpan(traceContext) : tracer.nextSpan();
+            if (name != null) {
+                span.name(name);
+            }
+            if (tags != null) {
+                for (String[] tag : tags) {
+                    span.tag(tag[0], tag[1]);
+                }
+                tags = null;
+            }
+            if (endpoint != null) {
+                span.remoteEndpoint(endpoint);
+            }
+            span.start(command);
+            return this;
+        }
+
+        @Override
+        public Tracer.Span name(String name) {
+            if (span != null) {
+                span.name(name);
+            } else {
+                this.name = name;
+            }
+            return this;
+        }
+
+        @Override
+        public Tracer.Span annotate(String value) {
+            if (span != null) {
+                span.annotate(value);
+            }
+            return this;
+        }
+
+        @Override
+        public Tracer.Span tag(String key, String value) {
+            if (span != null) {
+                span.tag(key, value);
+            } else if (!skipped) {
+                if (tags == null) {
+                    tags = new ArrayList<>(2);
+                }
+                tags.add(new String[]{key, value});
+            }
+            return this;
+        }
+
+        @Override
+        public Tracer.Span error(Throwable throwable) {
+            if (span != null) {
+                span.error(throwable);
+            }
+            return this;
+        }
+
+        @Override
+        public Tracer.Span remoteEndpoint(Endpoint endpoint) {
+            if (span != null) {
+                span.remoteEndpoint(endpoint);
+            } else {
+                this.endpoint = endpoint;
+            }
+            return this;
+        }
+
+        @Override
+        public void finish() {
+            if (span != null) {
+                span.finish();
+            }
+        }
+    }
+}
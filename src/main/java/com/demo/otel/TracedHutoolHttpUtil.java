@@ -7,10 +7,13 @@ import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.*;
 import io.opentelemetry.context.Scope;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Hutool HTTP工具类的OpenTelemetry包装器
@@ -20,10 +23,25 @@ import java.util.Map;
 public class TracedHutoolHttpUtil {
 
     private final Tracer tracer;
+    private final boolean tracingEnabled;
+    // agent模式下只为采集创建span
+    private final boolean captureOnly;
+    private final HttpClientCapture capture;
 
+    /**
+     * agent模式下Hutool底层的HttpURLConnection已由Agent追踪，这里不再创建客户端span；
+     * Agent的span在Hutool之下拿不到，对开启采集的主机改为创建INTERNAL的hutool.capture span记录请求头/请求体
+     */
     @Autowired
-    public TracedHutoolHttpUtil(OpenTelemetry openTelemetry) {
-        this.tracer = openTelemetry.getTracer("hutool-http-client", "1.0.0");
+    public TracedHutoolHttpUtil(OpenTelemetry openTelemetry,
+                                @Value("${opentelemetry.instrumentation.hutool.enabled:true}") boolean tracingEnabled,
+                                @Value("${opentelemetry.mode.effective:sdk}") String mode,
+                                HttpClientCapture capture) {
+        this.tracingEnabled = tracingEnabled;
+        this.captureOnly = !tracingEnabled && "agent".equals(mode);
+        this.capture = tracingEnabled || captureOnly ? capture : HttpClientCapture.disabled();
+        this.tracer = (tracingEnabled || captureOnly ? openTelemetry : OpenTelemetry.noop())
+                .getTracer("hutool-http-client", "1.0.0");
     }
 
     /**
@@ -72,7 +90,7 @@ public class TracedHutoolHttpUtil {
      * 创建带追踪的HttpRequest
      */
     public TracedHttpRequest createRequest(String method, String url) {
-        return new TracedHttpRequest(method, url, tracer);
+        return new TracedHttpRequest(method, url, tracer, capture, captureOnly);
     }
 
     /**
@@ -81,9 +99,17 @@ public class TracedHutoolHttpUtil {
     private String executeWithTracing(String method, String url, Map<String, Object> params,
                                       String body, HttpSupplier<String> supplier) {
         URI uri = URI.create(url);
+        boolean captureEnabled = capture.isEnabledFor(uri.getHost());
+        if (!tracingEnabled && !captureEnabled) {
+            try {
+                return supplier.get();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
 
-        SpanBuilder spanBuilder = tracer.spanBuilder("HTTP " + method)
-                .setSpanKind(SpanKind.CLIENT)
+        SpanBuilder spanBuilder = tracer.spanBuilder(tracingEnabled ? "HTTP " + method : "hutool.capture")
+                .setSpanKind(tracingEnabled ? SpanKind.CLIENT : SpanKind.INTERNAL)
                 .setAttribute(SemanticAttributes.HTTP_METHOD, method)
                 .setAttribute(SemanticAttributes.HTTP_URL, url)
                 .setAttribute(SemanticAttributes.HTTP_SCHEME, uri.getScheme())
@@ -96,18 +122,26 @@ public class TracedHutoolHttpUtil {
             spanBuilder.setAttribute("http.request.params.count", params.size());
         }
 
+        // 记录UTF-8字节数，而不是字符数
         if (body != null) {
-            spanBuilder.setAttribute("http.request.body.size", body.length());
+            spanBuilder.setAttribute("http.request.body.size", Utf8.encodedLength(body));
         }
 
         Span span = spanBuilder.startSpan();
+        // HttpUtil静态方法拿不到请求头/响应头，只采集请求体/响应体
+        if (captureEnabled && capture.isCaptureRequestBody()) {
+            capture.recordRequestBody(span, body);
+        }
 
         try (Scope scope = span.makeCurrent()) {
             String result = supplier.get();
 
             span.setStatus(StatusCode.OK);
             if (result != null) {
-                span.setAttribute("http.response.body.size", result.length());
+                span.setAttribute("http.response.body.size", Utf8.encodedLength(result));
+                if (captureEnabled && capture.isCaptureResponseBody()) {
+                    capture.recordResponseBody(span, result);
+                }
             }
 
             return result;
@@ -131,12 +165,31 @@ public class TracedHutoolHttpUtil {
     public static class TracedHttpRequest {
         private final HttpRequest httpRequest;
         private final Tracer tracer;
+        private final HttpClientCapture capture;
         private final String method;
         private final String url;
+        private final boolean captureOnly;
+        private long requestBodySize = -1;
+        // 请求体已在内存中，采集时只解码前max-body-size字节
+        private String textBody;
+        private byte[] bytesBody;
 
         public TracedHttpRequest(String method, String url, Tracer tracer) {
+            this(method, url, tracer, HttpClientCapture.disabled());
+        }
+
+        public TracedHttpRequest(String method, String url, Tracer tracer, HttpClientCapture capture) {
+            this(method, url, tracer, capture, false);
+        }
+
+        /**
+         * captureOnly为true时不注入追踪头(由Agent注入)，只对开启采集的主机创建hutool.capture span
+         */
+        TracedHttpRequest(String method, String url, Tracer tracer, HttpClientCapture capture, boolean captureOnly) {
+            this.captureOnly = captureOnly;
             this.httpRequest = HttpUtil.createRequest(cn.hutool.http.Method.valueOf(method.toUpperCase()), url);
             this.tracer = tracer;
+            this.capture = capture;
             this.method = method;
             this.url = url;
         }
@@ -148,6 +201,20 @@ public class TracedHutoolHttpUtil {
 
         public TracedHttpRequest body(String body) {
             httpRequest.body(body);
+            requestBodySize = Utf8.encodedLength(body);
+            textBody = body;
+            bytesBody = null;
+            return this;
+        }
+
+        /**
+         * 已编码的请求体，避免先转成String再由Hutool编码一次
+         */
+        public TracedHttpRequest body(byte[] body) {
+            httpRequest.body(body);
+            requestBodySize = body.length;
+            bytesBody = body;
+            textBody = null;
             return this;
         }
 
@@ -166,9 +233,13 @@ public class TracedHutoolHttpUtil {
          */
         public String execute() {
             URI uri = URI.create(url);
+            boolean captureEnabled = capture.isEnabledFor(uri.getHost());
+            if (captureOnly && !captureEnabled) {
+                return httpRequest.execute().body();
+            }
 
-            Span span = tracer.spanBuilder("HTTP " + method)
-                    .setSpanKind(SpanKind.CLIENT)
+            Span span = tracer.spanBuilder(captureOnly ? "hutool.capture" : "HTTP " + method)
+                    .setSpanKind(captureOnly ? SpanKind.INTERNAL : SpanKind.CLIENT)
                     .setAttribute(SemanticAttributes.HTTP_METHOD, method)
                     .setAttribute(SemanticAttributes.HTTP_URL, url)
                     .setAttribute(SemanticAttributes.HTTP_SCHEME, uri.getScheme())
@@ -177,14 +248,26 @@ public class TracedHutoolHttpUtil {
                             ("https".equals(uri.getScheme()) ? 443 : 80))
                     .setAttribute("http.client", "hutool")
                     .startSpan();
+            if (requestBodySize >= 0) {
+                span.setAttribute("http.request.body.size", requestBodySize);
+            }
 
             try (Scope scope = span.makeCurrent()) {
                 // 将追踪上下文注入到HTTP头中
-                injectTraceContext(span);
+                if (!captureOnly) {
+                    injectTraceContext(span);
+                }
+
+                if (captureEnabled) {
+                    captureRequest(span);
+                }
 
                 HttpResponse response = httpRequest.execute();
 
                 span.setAttribute(SemanticAttributes.HTTP_STATUS_CODE, response.getStatus());
+                if (captureEnabled) {
+                    capture.captureResponseHeaders(span, headerLookup(response.headers()));
+                }
 
                 if (response.isOk()) {
                     span.setStatus(StatusCode.OK);
@@ -192,12 +275,16 @@ public class TracedHutoolHttpUtil {
                     span.setStatus(StatusCode.ERROR, "HTTP " + response.getStatus());
                 }
 
-                String body = response.body();
-                if (body != null) {
-                    span.setAttribute("http.response.body.size", body.length());
+                // bodyBytes读取后会缓存，body()直接按字符集解码，不会重复读取
+                byte[] bodyBytes = response.bodyBytes();
+                if (bodyBytes != null) {
+                    span.setAttribute("http.response.body.size", bodyBytes.length);
+                    if (captureEnabled && capture.isCaptureResponseBody()) {
+                        capture.recordResponseBody(span, bodyBytes);
+                    }
                 }
 
-                return body;
+                return response.body();
             } catch (Exception e) {
                 span.setStatus(StatusCode.ERROR, e.getMessage());
                 span.recordException(e);
@@ -207,6 +294,31 @@ public class TracedHutoolHttpUtil {
             }
         }
 
+        private void captureRequest(Span span) {
+            capture.captureRequestHeaders(span, headerLookup(httpRequest.headers()));
+            if (capture.isCaptureRequestBody()) {
+                if (bytesBody != null) {
+                    capture.recordRequestBody(span, bytesBody);
+                } else {
+                    capture.recordRequestBody(span, textBody);
+                }
+            }
+        }
+
+        /**
+         * Hutool的头信息Map区分大小写(响应头还包含状态行的null键)，按名称忽略大小写查找
+         */
+        private static Function<String, List<String>> headerLookup(Map<String, List<String>> headers) {
+            return name -> {
+                for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                    if (name.equalsIgnoreCase(entry.getKey())) {
+                        return entry.getValue();
+                    }
+                }
+                return null;
+            };
+        }
+
         /**
          * 将追踪上下文注入到HTTP头中
          */
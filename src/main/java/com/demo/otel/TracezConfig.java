@@ -0,0 +1,33 @@
+package com.demo.otel;
+
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 进程内span调试配置，默认关闭
+ * 处理器作为SpanProcessor bean注册，由OpenTelemetryConfig加入TracerProvider，
+ * 在采样之后运行，未抽中的RECORD_ONLY span同样可见
+ */
+@Configuration
+@ConditionalOnExpression("'${opentelemetry.mode.effective:sdk}' == 'sdk' and ${opentelemetry.tracez.enabled:false}")
+public class TracezConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "opentelemetry.tracez")
+    public TracezSpanProcessor.TracezProperties tracezProperties() {
+        return new TracezSpanProcessor.TracezProperties();
+    }
+
+    @Bean
+    public TracezSpanProcessor tracezSpanProcessor(TracezSpanProcessor.TracezProperties properties) {
+        return new TracezSpanProcessor(properties);
+    }
+
+    @Bean
+    public TracezEndpoint tracezEndpoint(TracezSpanProcessor tracezSpanProcessor) {
+        return new TracezEndpoint(tracezSpanProcessor);
+    }
+}
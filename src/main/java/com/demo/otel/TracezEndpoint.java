@@ -0,0 +1,35 @@
+package com.demo.otel;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * span调试端点: /actuator/tracez
+ * 不带参数时返回各span名称的延迟分桶和最近的span；name参数返回该名称各桶的样本和错误样本
+ */
+@Endpoint(id = "tracez")
+public class TracezEndpoint {
+
+    private final TracezSpanProcessor processor;
+
+    public TracezEndpoint(TracezSpanProcessor processor) {
+        this.processor = processor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> tracez(@Nullable String name, @Nullable Integer limit) {
+        if (name != null) {
+            Map<String, Object> samples = processor.samples(name);
+            return samples != null ? samples : Map.of("name", name, "latency", Map.of(), "errors", List.of());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("spanNames", processor.summary());
+        result.put("recent", processor.recentSpans(limit != null ? limit : 50));
+        return result;
+    }
+}
@@ -0,0 +1,273 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内span调试数据(zPages tracez风格)
+ * 保留最近结束的span，并按span名称统计延迟分桶，每个桶和错误各保留少量样本，
+ * 采集端不可达或排查单个实例时可通过/actuator/tracez直接查看。
+ * 写入只有计数和环形数组槽位覆盖，不加锁、不复制span数据；描述用的SpanData只在读取时转换。
+ * 唯一的例外是判断错误状态：ReadableSpan没有单独读取状态的方法，结束时调用一次toSpanData，
+ * 对已结束的span这只是分配一个包装对象，不复制属性和事件。
+ * 内存占用由环形数组大小、样本数和span名称数上限决定
+ */
+public class TracezSpanProcessor implements SpanProcessor {
+
+    static final String OTHER = "_other";
+
+    // 延迟桶上界: 10us, 100us, 1ms, 10ms, 100ms, 1s, 10s, 100s，最后一个桶不设上界
+    static final long[] BUCKET_BOUNDARIES = {
+            TimeUnit.MICROSECONDS.toNanos(10), TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(100)};
+    static final String[] BUCKET_LABELS = {
+            "[0,10us)", "[10us,100us)", "[100us,1ms)", "[1ms,10ms)", "[10ms,100ms)",
+            "[100ms,1s)", "[1s,10s)", "[10s,100s)", "[100s,+inf)"};
+
+    private final TracezProperties properties;
+    private final SpanRing recent;
+    private final Map<String, SpanNameStats> statsByName = new ConcurrentHashMap<>();
+    // 已登记的span名称数(不含_other)，只在创建新名称时原子地增加，并发下也不会超过上限
+    private final AtomicInteger spanNames = new AtomicInteger();
+
+    public TracezSpanProcessor(TracezProperties properties) {
+        this.properties = properties;
+        this.recent = new SpanRing(properties.getRecentSpans());
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        recent.add(span);
+
+        long latency = span.getLatencyNanos();
+        int bucket = bucket(latency);
+        SpanNameStats stats = stats(span.getName());
+        stats.counts[bucket].increment();
+        stats.samples[bucket].add(span);
+        // 错误状态的读取方式见类注释
+        if (span.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR) {
+            stats.errors.increment();
+            stats.errorSamples.add(span);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    static int bucket(long latencyNanos) {
+        for (int i = 0; i < BUCKET_BOUNDARIES.length; i++) {
+            if (latencyNanos < BUCKET_BOUNDARIES[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDARIES.length;
+    }
+
+    private SpanNameStats stats(String name) {
+        SpanNameStats stats = statsByName.get(name);
+        if (stats != null) {
+            return stats;
+        }
+        // 限制span名称数量，超出部分归入_other
+        if (spanNames.get() < properties.getMaxSpanNames()) {
+            stats = statsByName.computeIfAbsent(name, k -> {
+                if (spanNames.incrementAndGet() > properties.getMaxSpanNames()) {
+                    spanNames.decrementAndGet();
+                    return null;
+                }
+                return new SpanNameStats(properties.getSamplesPerBucket());
+            });
+            if (stats != null) {
+                return stats;
+            }
+        }
+        return statsByName.computeIfAbsent(OTHER, k -> new SpanNameStats(properties.getSamplesPerBucket()));
+    }
+
+    /**
+     * 各span名称的分桶计数和错误数
+     */
+    public List<Map<String, Object>> summary() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        statsByName.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> {
+                    SpanNameStats stats = e.getValue();
+                    Map<String, Object> buckets = new LinkedHashMap<>();
+                    long total = 0;
+                    for (int i = 0; i < BUCKET_LABELS.length; i++) {
+                        long count = stats.counts[i].sum();
+                        buckets.put(BUCKET_LABELS[i], count);
+                        total += count;
+                    }
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("name", e.getKey());
+                    row.put("count", total);
+                    row.put("errors", stats.errors.sum());
+                    row.put("latency", buckets);
+                    result.add(row);
+                });
+        return result;
+    }
+
+    /**
+     * 最近结束的span，按结束时间倒序
+     */
+    public List<Map<String, Object>> recentSpans(int limit) {
+        return describe(recent.snapshot(), limit);
+    }
+
+    /**
+     * 指定span名称在各延迟桶的样本和错误样本，名称不存在时返回null
+     */
+    public Map<String, Object> samples(String name) {
+        SpanNameStats stats = statsByName.get(name);
+        if (stats == null) {
+            return null;
+        }
+        Map<String, Object> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            List<ReadableSpan> spans = stats.samples[i].snapshot();
+            if (!spans.isEmpty()) {
+                buckets.put(BUCKET_LABELS[i], describe(spans, spans.size()));
+            }
+        }
+        List<ReadableSpan> errors = stats.errorSamples.snapshot();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("latency", buckets);
+        result.put("errors", describe(errors, errors.size()));
+        return result;
+    }
+
+    private static List<Map<String, Object>> describe(List<ReadableSpan> spans, int limit) {
+        return spans.stream()
+                .map(ReadableSpan::toSpanData)
+                .sorted(Comparator.comparingLong(SpanData::getEndEpochNanos).reversed())
+                .limit(limit)
+                .map(TracezSpanProcessor::describe)
+                .toList();
+    }
+
+    private static Map<String, Object> describe(SpanData span) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", span.getName());
+        result.put("kind", span.getKind().name());
+        result.put("traceId", span.getTraceId());
+        result.put("spanId", span.getSpanId());
+        result.put("parentSpanId", span.getParentSpanId());
+        result.put("sampled", span.getSpanContext().isSampled());
+        result.put("start", toInstant(span.getStartEpochNanos()).toString());
+        result.put("durationMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1e6);
+        result.put("status", span.getStatus().getStatusCode().name());
+        if (!span.getStatus().getDescription().isEmpty()) {
+            result.put("statusDescription", span.getStatus().getDescription());
+        }
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        result.put("attributes", attributes);
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (EventData event : span.getEvents()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", event.getName());
+            row.put("time", toInstant(event.getEpochNanos()).toString());
+            events.add(row);
+        }
+        result.put("events", events);
+        return result;
+    }
+
+    private static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    private static final class SpanNameStats {
+
+        private final LongAdder[] counts = new LongAdder[BUCKET_LABELS.length];
+        private final SpanRing[] samples = new SpanRing[BUCKET_LABELS.length];
+        private final LongAdder errors = new LongAdder();
+        private final SpanRing errorSamples;
+
+        SpanNameStats(int samplesPerBucket) {
+            for (int i = 0; i < BUCKET_LABELS.length; i++) {
+                counts[i] = new LongAdder();
+                samples[i] = new SpanRing(samplesPerBucket);
+            }
+            errorSamples = new SpanRing(samplesPerBucket);
+        }
+    }
+
+    /**
+     * 固定大小的覆盖式环形数组，写入只做一次自增和槽位赋值，旧span直接被覆盖
+     */
+    static final class SpanRing {
+
+        private final AtomicReferenceArray<ReadableSpan> slots;
+        private final AtomicLong next = new AtomicLong();
+
+        SpanRing(int size) {
+            this.slots = new AtomicReferenceArray<>(Math.max(1, size));
+        }
+
+        void add(ReadableSpan span) {
+            slots.lazySet((int) (next.getAndIncrement() % slots.length()), span);
+        }
+
+        List<ReadableSpan> snapshot() {
+            List<ReadableSpan> spans = new ArrayList<>(slots.length());
+            for (int i = 0; i < slots.length(); i++) {
+                ReadableSpan span = slots.get(i);
+                if (span != null) {
+                    spans.add(span);
+                }
+            }
+            return spans;
+        }
+    }
+
+    /**
+     * tracez属性
+     */
+    @Data
+    public static class TracezProperties {
+        private boolean enabled = false;
+        // 保留的最近span数量
+        private int recentSpans = 1024;
+        // 每个span名称每个延迟桶(以及错误)保留的样本数
+        private int samplesPerBucket = 2;
+        // span名称数量上限
+        private int maxSpanNames = 200;
+    }
+}
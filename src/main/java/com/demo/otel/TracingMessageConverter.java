@@ -0,0 +1,42 @@
+package com.demo.otel;
+
+import io.opentelemetry.context.Context;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * RQueue消息转换器装饰器
+ * 入队时在序列化结果外包一层{@link RqueueMessageEnvelope}，携带当前追踪上下文和入队时间；
+ * 出队时先去掉信封再交给原转换器，兼容已在队列中的旧消息
+ */
+public class TracingMessageConverter implements MessageConverter {
+
+    private final MessageConverter delegate;
+
+    public TracingMessageConverter(MessageConverter delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object fromMessage(Message<?> message, Class<?> targetClass) {
+        Object payload = message.getPayload();
+        if (payload instanceof String && RqueueMessageEnvelope.isEnvelope((String) payload)) {
+            message = MessageBuilder.createMessage(
+                    RqueueMessageEnvelope.unwrap((String) payload), message.getHeaders());
+        }
+        return delegate.fromMessage(message, targetClass);
+    }
+
+    @Override
+    public Message<?> toMessage(Object payload, MessageHeaders headers) {
+        Message<?> message = delegate.toMessage(payload, headers);
+        if (message == null || !(message.getPayload() instanceof String)) {
+            return message;
+        }
+        String wrapped = RqueueMessageEnvelope.wrap(
+                (String) message.getPayload(), Context.current(), System.currentTimeMillis());
+        return MessageBuilder.createMessage(wrapped, message.getHeaders());
+    }
+}
@@ -0,0 +1,62 @@
+package com.demo.otel;
+
+import org.apache.ibatis.cache.Cache;
+
+import java.io.ObjectInputFilter;
+
+/**
+ * 两级MyBatis二级缓存
+ * 按mapper namespace启用：在opentelemetry.mybatis.cache.namespaces中列出namespace，由{@link MybatisCacheConfig}
+ * 创建并注册到MyBatis Configuration，mapper中用 {@code @CacheNamespaceRef(name = "<namespace>")}
+ * 或 {@code <cache-ref namespace="<namespace>"/>} 引用。
+ * 缓存值需要实现Serializable；缓存关闭时manager为null，所有操作穿透到数据库
+ */
+public class TwoTierMybatisCache implements Cache {
+
+    private final String id;
+    private final MybatisCacheManager manager;
+    private final ObjectInputFilter filter;
+
+    public TwoTierMybatisCache(String id, MybatisCacheManager manager, ObjectInputFilter filter) {
+        this.id = id;
+        this.manager = manager;
+        this.filter = filter;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        if (manager != null) {
+            manager.put(id, key, value);
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        return manager != null ? manager.get(id, key, filter) : null;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        if (manager != null) {
+            manager.remove(id, key);
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        if (manager != null) {
+            manager.clear(id);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return manager != null ? manager.size(id) : 0;
+    }
+}
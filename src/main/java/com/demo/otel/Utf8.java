@@ -0,0 +1,37 @@
+package com.demo.otel;
+
+/**
+ * UTF-8字节数计算
+ * 不做编码、不分配数组，用于在span上记录字符串请求/响应体的实际字节数(String.length()是UTF-16字符数)
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    public static long encodedLength(CharSequence sequence) {
+        if (sequence == null) {
+            return 0;
+        }
+        int length = sequence.length();
+        long bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = sequence.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(sequence.charAt(i + 1))) {
+                // 代理对共4字节，两个char已各计1
+                bytes += 2;
+                i++;
+            }
+            // 孤立代理被String.getBytes替换为?，按1字节计
+        }
+        return bytes;
+    }
+}
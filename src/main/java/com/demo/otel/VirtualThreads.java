@@ -0,0 +1,65 @@
+package com.demo.otel;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程工具类
+ * 项目以JDK 17为编译目标，通过反射访问JDK 21+的虚拟线程API，低版本运行时自动降级
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(
+            java.util.concurrent.Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+    // 反射调用必须通过公开接口Thread.Builder，实现类ThreadBuilders$VirtualThreadBuilder不是public的
+    private static final Method BUILDER_NAME = findMethod(
+            "java.lang.Thread$Builder$OfVirtual", "name", String.class, long.class);
+    private static final Method BUILDER_FACTORY = findMethod("java.lang.Thread$Builder", "factory");
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null && NEW_THREAD_PER_TASK_EXECUTOR != null
+                && BUILDER_NAME != null && BUILDER_FACTORY != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器，线程名带前缀方便日志中区分
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require JDK 21+, current: "
+                    + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    private static Method findMethod(String typeName, String name, Class<?>... parameterTypes) {
+        try {
+            return findMethod(Class.forName(typeName), name, parameterTypes);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
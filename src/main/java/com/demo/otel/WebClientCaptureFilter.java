@@ -0,0 +1,114 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebClient请求头/请求体采集
+ * 请求头在提交前从实际请求中读取(包含BodyInserter设置的Content-Type等)；
+ * 请求体/响应体在DataBuffer流经时复制前max-body-size字节，不改变读位置也不额外缓存。
+ * 注册在WebClientTracingFilter之后，写入它通过请求属性传来的span，没有span的请求不采集；
+ * 响应体在结束信号传给外层之前写入，外层随后才结束span
+ */
+public class WebClientCaptureFilter implements ExchangeFilterFunction {
+
+    private final HttpClientCapture capture;
+
+    public WebClientCaptureFilter(HttpClientCapture capture) {
+        this.capture = capture;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!capture.isEnabledFor(request.url().getHost())
+                || !(request.attribute(HttpClientSpans.SPAN_ATTRIBUTE).orElse(null) instanceof Span span)) {
+            return next.exchange(request);
+        }
+        return Mono.defer(() -> {
+            ClientRequest captured = ClientRequest.from(request)
+                    .body(captureRequest(request.body(), span))
+                    .build();
+            return next.exchange(captured).map(response -> captureResponse(response, span));
+        });
+    }
+
+    private BodyInserter<?, ? super ClientHttpRequest> captureRequest(
+            BodyInserter<?, ? super ClientHttpRequest> body, Span span) {
+        return (outputMessage, context) -> {
+            outputMessage.beforeCommit(() -> {
+                capture.captureRequestHeaders(span, outputMessage.getHeaders()::get);
+                return Mono.empty();
+            });
+            ClientHttpRequest target = capture.isCaptureRequestBody()
+                    ? new TeeClientHttpRequest(outputMessage, span)
+                    : outputMessage;
+            return body.insert(target, context);
+        };
+    }
+
+    private ClientResponse captureResponse(ClientResponse response, Span span) {
+        capture.captureResponseHeaders(span, response.headers().asHttpHeaders()::get);
+        if (!capture.isCaptureResponseBody()) {
+            return response;
+        }
+        return response.mutate()
+                .body(flux -> {
+                    HttpClientCapture.CapturedBody captured = capture.newBody();
+                    AtomicBoolean recorded = new AtomicBoolean();
+                    Runnable record = () -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            capture.recordResponseBody(span, captured);
+                        }
+                    };
+                    // doFinally在下游处理完结束信号后才执行，晚于外层结束span，这里在信号传出前写入
+                    return flux.doOnNext(buffer -> append(captured, buffer))
+                            .doOnTerminate(record)
+                            .doOnCancel(record);
+                })
+                .build();
+    }
+
+    private static void append(HttpClientCapture.CapturedBody captured, DataBuffer buffer) {
+        if (captured.isFull()) {
+            captured.markTruncated();
+        } else {
+            captured.append(buffer);
+        }
+    }
+
+    /**
+     * 写出请求体时复制前max-body-size字节
+     */
+    private final class TeeClientHttpRequest extends ClientHttpRequestDecorator {
+
+        private final Span span;
+
+        TeeClientHttpRequest(ClientHttpRequest delegate, Span span) {
+            super(delegate);
+            this.span = span;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpClientCapture.CapturedBody captured = capture.newBody();
+            // 保留Mono类型，单个DataBuffer的请求体仍按一次写出处理
+            Publisher<? extends DataBuffer> tee = body instanceof Mono
+                    ? Mono.from(body).doOnNext(buffer -> append(captured, buffer))
+                    : Flux.from(body).doOnNext(buffer -> append(captured, buffer));
+            return super.writeWith(tee)
+                    .doFinally(signal -> capture.recordRequestBody(span, captured));
+        }
+    }
+}
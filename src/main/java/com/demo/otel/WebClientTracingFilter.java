@@ -0,0 +1,69 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebClient出站span，作为第一个过滤器注册
+ * span通过请求属性传给WebClientCaptureFilter；在响应体结束(完成、出错或取消)时结束，
+ * 请求失败或在收到响应前取消时立即结束，见{@link HttpClientSpans}
+ */
+public class WebClientTracingFilter implements ExchangeFilterFunction {
+
+    private final HttpClientSpans spans;
+
+    public WebClientTracingFilter(HttpClientSpans spans) {
+        this.spans = spans;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            URI url = request.url();
+            Span span = spans.start("webclient", request.method().name(), url.toString(), url.getHost(), port(url));
+            if (span == null) {
+                return next.exchange(request);
+            }
+
+            Context context = Context.current().with(span);
+            ClientRequest traced = ClientRequest.from(request)
+                    .headers(headers -> spans.inject(context, headers, (carrier, key, value) -> carrier.set(key, value)))
+                    .attribute(HttpClientSpans.SPAN_ATTRIBUTE, span)
+                    .build();
+            AtomicBoolean ended = new AtomicBoolean();
+            Runnable end = () -> {
+                if (ended.compareAndSet(false, true)) {
+                    span.end();
+                }
+            };
+            return next.exchange(traced)
+                    .map(response -> {
+                        spans.onResponse(span, response.statusCode().value());
+                        // 在结束信号传给调用方之前结束span
+                        return response.mutate()
+                                .body(body -> body.doOnTerminate(end).doOnCancel(end))
+                                .build();
+                    })
+                    .doOnError(e -> {
+                        spans.onError(span, e);
+                        end.run();
+                    })
+                    .doOnCancel(end);
+        });
+    }
+
+    private static int port(URI url) {
+        if (url.getPort() != -1) {
+            return url.getPort();
+        }
+        return "https".equalsIgnoreCase(url.getScheme()) ? 443 : 80;
+    }
+}
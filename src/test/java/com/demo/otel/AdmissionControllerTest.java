@@ -0,0 +1,116 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionController.AdmissionProperties properties = new AdmissionController.AdmissionProperties();
+
+    private AdmissionController controller() {
+        return new AdmissionController(properties, meterRegistry, OpenTelemetry.noop().getTracer("test"));
+    }
+
+    @Test
+    void shedsLowPriorityRoutesAtConcurrencyLimitButNeverCriticalOnes() {
+        properties.setMaxConcurrency(2);
+        AdmissionController controller = controller();
+
+        AdmissionController.Admission first = controller.tryAdmit("GET", "/api/http/okhttp", "/api/http/okhttp");
+        AdmissionController.Admission second = controller.tryAdmit("POST", "/api/send", "/api/send");
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+
+        assertThat(controller.tryAdmit("GET", "/api/http/webclient", "/api/http/webclient")).isNull();
+        assertThat(controller.tryAdmit("POST", "/api/send", "/api/send")).isNotNull();
+        assertThat(shedCount("/api/http/webclient", AdmissionController.REASON_CONCURRENCY)).isEqualTo(1);
+
+        controller.complete(first);
+        controller.complete(second);
+        assertThat(controller.inFlight()).isEqualTo(1);
+        assertThat(controller.tryAdmit("GET", "/api/http/webclient", "/api/http/webclient")).isNotNull();
+    }
+
+    @Test
+    void shedsLowPriorityRoutesWhileCriticalLatencyIsAboveLimit() {
+        properties.setMaxConcurrency(0);
+        properties.setLatencyLimitMs(100);
+        AdmissionController controller = controller();
+
+        controller.complete(controller.tryAdmit("POST", "/api/send", "/api/send"), TimeUnit.MILLISECONDS.toNanos(400));
+        assertThat(controller.tryAdmit("GET", "/api/http/hutool", "/api/http/hutool")).isNull();
+        assertThat(shedCount("/api/http/hutool", AdmissionController.REASON_LATENCY)).isEqualTo(1);
+
+        // EWMA随关键路由延迟恢复而回落
+        for (int i = 0; i < 30; i++) {
+            controller.complete(controller.tryAdmit("POST", "/api/send", "/api/send"), TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertThat(controller.tryAdmit("GET", "/api/http/hutool", "/api/http/hutool")).isNotNull();
+    }
+
+    @Test
+    void foldsRoutesBeyondLimitIntoOther() {
+        properties.setMaxConcurrency(1);
+        properties.setMaxRoutes(1);
+        AdmissionController controller = controller();
+
+        controller.tryAdmit("GET", "/a", "/a");
+        controller.tryAdmit("GET", "/b", "/b");
+        controller.tryAdmit("GET", "/c", "/c");
+
+        assertThat(shedCount(AdmissionController.OTHER, AdmissionController.REASON_CONCURRENCY)).isEqualTo(2);
+    }
+
+    @Test
+    void keysRoutesByMatchedPattern() {
+        properties.setMaxConcurrency(2);
+        AdmissionController controller = controller();
+
+        controller.tryAdmit("GET", "/api/users/1", "/api/users/{id}");
+        controller.tryAdmit("GET", "/api/users/2", "/api/users/{id}");
+        controller.tryAdmit("GET", "/api/users/3", "/api/users/{id}");
+        controller.tryAdmit("GET", "/no-handler", null);
+
+        assertThat(shedCount("/api/users/{id}", AdmissionController.REASON_CONCURRENCY)).isEqualTo(1);
+        assertThat(shedCount(AdmissionController.OTHER, AdmissionController.REASON_CONCURRENCY)).isEqualTo(1);
+    }
+
+    @Test
+    void neverRegistersMoreRoutesThanTheLimitUnderConcurrency() throws Exception {
+        properties.setMaxConcurrency(0);
+        properties.setMaxRoutes(5);
+        AdmissionController controller = controller();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 200; i++) {
+                String pattern = "/route/" + i;
+                executor.submit(() -> {
+                    start.await();
+                    return controller.tryAdmit("GET", pattern, pattern);
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        // 5个路由加上_other
+        assertThat(meterRegistry.find("http.server.requests.route.in_flight").gauges()).hasSize(6);
+    }
+
+    private double shedCount(String route, String reason) {
+        return meterRegistry.get("http.server.requests.shed").tag("route", route).tag("reason", reason)
+                .counter().count();
+    }
+}
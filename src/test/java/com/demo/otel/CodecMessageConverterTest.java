@@ -0,0 +1,110 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.converter.DefaultMessageConverterProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CodecMessageConverterTest {
+
+    private final MessageConverter legacy = new DefaultMessageConverterProvider().getConverter();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CodecMessageConverter converter(boolean encode) {
+        return new CodecMessageConverter(new BinaryMessageCodec(true, 64), legacy, encode, meterRegistry);
+    }
+
+    @Test
+    void decodesMessagesWrittenByLegacyConverter() {
+        Message<?> legacyMessage = legacy.toMessage("queued before upgrade", null);
+
+        assertThat(converter(true).fromMessage(legacyMessage, String.class)).isEqualTo("queued before upgrade");
+    }
+
+    @Test
+    void roundTripsSmallTextWithoutCompression() {
+        CodecMessageConverter converter = converter(true);
+
+        Message<?> message = converter.toMessage("hello", null);
+
+        assertThat((String) message.getPayload()).startsWith(BinaryMessageCodec.PREFIX + "t");
+        assertThat(converter.fromMessage(message, String.class)).isEqualTo("hello");
+    }
+
+    @Test
+    void compressesLargeRepetitivePayloads() {
+        CodecMessageConverter converter = converter(true);
+        String payload = "{\"key\":\"value\"}".repeat(200);
+
+        Message<?> message = converter.toMessage(payload, null);
+
+        assertThat(((String) message.getPayload()).length()).isLessThan(payload.length() / 4);
+        assertThat(converter.fromMessage(message, String.class)).isEqualTo(payload);
+    }
+
+    @Test
+    void roundTripsObjectsWithSmile() {
+        CodecMessageConverter converter = converter(true);
+
+        Message<?> message = converter.toMessage(Map.of("key", "value"), null);
+
+        assertThat(converter.fromMessage(message, Map.class)).isEqualTo(Map.of("key", "value"));
+    }
+
+    @Test
+    void readsSmileAsGenericTypesWithoutTargetClass() {
+        CodecMessageConverter converter = converter(true);
+
+        Message<?> message = converter.toMessage(Map.of("key", "value"), null);
+
+        assertThat(converter.fromMessage(message, null)).isEqualTo(Map.of("key", "value"));
+    }
+
+    @Test
+    void compressionThresholdCountsUtf8Bytes() {
+        CodecMessageConverter converter = converter(true);
+        // 30个字符、90字节，超过64字节的阈值
+        String payload = "你".repeat(30);
+
+        Message<?> message = converter.toMessage(payload, null);
+
+        assertThat((String) message.getPayload()).startsWith(BinaryMessageCodec.PREFIX + "b");
+        assertThat(converter.fromMessage(message, String.class)).isEqualTo(payload);
+    }
+
+    @Test
+    void readsBinaryFormatWhileStillWritingLegacy() {
+        Message<?> binary = converter(true).toMessage("rolling upgrade", null);
+        CodecMessageConverter legacyWriter = converter(false);
+
+        assertThat(legacyWriter.toMessage("x", null).getPayload())
+                .isEqualTo(legacy.toMessage("x", null).getPayload());
+        assertThat(legacyWriter.fromMessage(binary, String.class)).isEqualTo("rolling upgrade");
+    }
+
+    @Test
+    void recordsEncodedSizeInUtf8Bytes() {
+        converter(true).toMessage("你好", null);
+
+        // 前缀和类型标记为ASCII，每个汉字3字节
+        long expected = BinaryMessageCodec.PREFIX.length() + 1 + 6;
+        assertThat(meterRegistry.get("rqueue.codec.encoded.size").summary().totalAmount()).isEqualTo(expected);
+    }
+
+    @Test
+    void wrapsCorruptFramesInConversionException() {
+        Message<String> truncated = MessageBuilder.withPayload(BinaryMessageCodec.PREFIX + "bAQ==").build();
+
+        assertThatThrownBy(() -> converter(true).fromMessage(truncated, String.class))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
@@ -0,0 +1,307 @@
+package com.demo.otel;
+
+import com.sun.net.httpserver.HttpServer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertTimeoutPreemptively;
+
+class HttpClientCaptureTest {
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final OpenTelemetry openTelemetry = OpenTelemetrySdk.builder()
+            .setTracerProvider(tracerProvider)
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build();
+    // 服务端收到的traceparent
+    private final AtomicReference<String> traceparent = new AtomicReference<>();
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        tracerProvider.close();
+    }
+
+    @Test
+    void disabledCaptureSkipsEveryHost() {
+        HttpClientCapture.CaptureProperties properties = properties();
+        properties.setCaptureEnabled(false);
+
+        assertThat(new HttpClientCapture(properties).isEnabledFor("api.example.com")).isFalse();
+        assertThat(HttpClientCapture.disabled().isEnabledFor("api.example.com")).isFalse();
+    }
+
+    @Test
+    void togglesCapturePerHost() {
+        HttpClientCapture.CaptureProperties properties = properties();
+        properties.setEnabledHosts(List.of("*.example.com"));
+        properties.setDisabledHosts(List.of("internal.example.com"));
+        HttpClientCapture capture = new HttpClientCapture(properties);
+
+        assertThat(capture.isEnabledFor("api.example.com")).isTrue();
+        assertThat(capture.isEnabledFor("API.Example.com")).isTrue();
+        assertThat(capture.isEnabledFor("internal.example.com")).isFalse();
+        assertThat(capture.isEnabledFor("example.org")).isFalse();
+    }
+
+    @Test
+    void recordsHeadersUnderLowercaseKeysAndRedactsSecrets() {
+        HttpClientCapture capture = new HttpClientCapture(properties());
+        Span span = tracerProvider.get("test").spanBuilder("HTTP GET").startSpan();
+        Map<String, List<String>> headers = Map.of(
+                "content-type", List.of("application/json"),
+                "authorization", List.of("Bearer secret"));
+
+        capture.captureRequestHeaders(span, headers::get);
+
+        ReadableSpan readable = (ReadableSpan) span;
+        assertThat(readable.getAttribute(AttributeKey.stringArrayKey("http.request.header.content-type")))
+                .containsExactly("application/json");
+        assertThat(readable.getAttribute(AttributeKey.stringArrayKey("http.request.header.authorization")))
+                .containsExactly("[REDACTED]");
+        span.end();
+    }
+
+    @Test
+    void okHttpCapturesBoundedBodiesWithoutConsumingResponse() throws Exception {
+        String responseBody = "r".repeat(2048);
+        startServer(responseBody);
+        HttpClientCapture capture = new HttpClientCapture(properties());
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(new OkHttpCaptureInterceptor(capture))
+                .build();
+        Request request = new Request.Builder()
+                .url("http://localhost:" + server.getAddress().getPort() + "/data")
+                .post(RequestBody.create("q".repeat(100), MediaType.get("text/plain")))
+                .build();
+
+        Span span = tracerProvider.get("test").spanBuilder("HTTP POST").startSpan();
+        String body;
+        try (Scope ignored = span.makeCurrent(); Response response = client.newCall(request).execute()) {
+            body = response.body().string();
+        }
+
+        ReadableSpan readable = (ReadableSpan) span;
+        assertThat(body).isEqualTo(responseBody);
+        assertThat(readable.getAttribute(HttpClientCapture.REQUEST_BODY)).isEqualTo("q".repeat(16));
+        assertThat(readable.getAttribute(HttpClientCapture.REQUEST_BODY_TRUNCATED)).isTrue();
+        assertThat(readable.getAttribute(HttpClientCapture.RESPONSE_BODY)).isEqualTo("r".repeat(16));
+        assertThat(readable.getAttribute(HttpClientCapture.RESPONSE_BODY_TRUNCATED)).isTrue();
+        assertThat(readable.getAttribute(AttributeKey.stringArrayKey("http.response.header.content-type")))
+                .containsExactly("text/plain");
+        span.end();
+    }
+
+    @Test
+    void okHttpStreamsResponseWithoutWaitingForCaptureLimit() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/stream", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("first".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                finish.await(5, TimeUnit.SECONDS);
+                out.write("-rest".getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(new OkHttpCaptureInterceptor(new HttpClientCapture(properties())))
+                .build();
+        Request request = new Request.Builder()
+                .url("http://localhost:" + server.getAddress().getPort() + "/stream")
+                .build();
+
+        Span span = tracerProvider.get("test").spanBuilder("HTTP GET").startSpan();
+        // 服务端先只发出5字节，拦截器不能等max-body-size字节到齐才返回
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            try (Scope ignored = span.makeCurrent(); Response response = client.newCall(request).execute()) {
+                assertThat(response.body().source().readUtf8(5)).isEqualTo("first");
+                finish.countDown();
+                assertThat(response.body().source().readUtf8()).isEqualTo("-rest");
+            }
+        });
+
+        ReadableSpan readable = (ReadableSpan) span;
+        assertThat(readable.getAttribute(HttpClientCapture.RESPONSE_BODY)).isEqualTo("first-rest");
+        assertThat(readable.getAttribute(HttpClientCapture.RESPONSE_BODY_TRUNCATED)).isNull();
+        span.end();
+    }
+
+    @Test
+    void okHttpClientSpanInSdkModeEndsAfterResponseBodyIsCaptured() throws Exception {
+        startServer("r".repeat(2048));
+        HttpClientCapture capture = new HttpClientCapture(properties());
+        OkHttpClient client = okHttpClient(new HttpClientSpans(openTelemetry, "sdk", capture), capture);
+        Request request = new Request.Builder()
+                .url("http://localhost:" + server.getAddress().getPort() + "/data")
+                .post(RequestBody.create("q".repeat(100), MediaType.get("text/plain")))
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertThat(exporter.getFinishedSpanItems()).isEmpty();
+            assertThat(response.body().string()).isEqualTo("r".repeat(2048));
+        }
+
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getKind()).isEqualTo(SpanKind.CLIENT);
+            assertThat(span.getName()).isEqualTo("POST");
+            assertThat(span.getAttributes().get(AttributeKey.longKey("http.response.status_code"))).isEqualTo(200L);
+            assertThat(span.getAttributes().get(HttpClientCapture.REQUEST_BODY)).isEqualTo("q".repeat(16));
+            assertThat(span.getAttributes().get(HttpClientCapture.RESPONSE_BODY)).isEqualTo("r".repeat(16));
+            assertThat(traceparent.get()).contains(span.getTraceId()).contains(span.getSpanId());
+        });
+    }
+
+    @Test
+    void okHttpCapturesDecompressedGzipResponses() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                out.write("compressed".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        HttpClientCapture capture = new HttpClientCapture(properties());
+        OkHttpClient client = okHttpClient(new HttpClientSpans(openTelemetry, "sdk", capture), capture);
+
+        try (Response response = client.newCall(new Request.Builder()
+                .url("http://localhost:" + server.getAddress().getPort() + "/gzip").build()).execute()) {
+            assertThat(response.body().string()).isEqualTo("compressed");
+        }
+
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span ->
+                assertThat(span.getAttributes().get(HttpClientCapture.RESPONSE_BODY)).isEqualTo("compressed"));
+    }
+
+    @Test
+    void agentModeCreatesCaptureSpansOnlyForCapturedHosts() throws Exception {
+        startServer("ok");
+        Request request = new Request.Builder()
+                .url("http://localhost:" + server.getAddress().getPort() + "/data")
+                .build();
+        HttpClientCapture.CaptureProperties otherHosts = properties();
+        otherHosts.setEnabledHosts(List.of("api.example.com"));
+        HttpClientCapture skipped = new HttpClientCapture(otherHosts);
+
+        try (Response response = okHttpClient(new HttpClientSpans(openTelemetry, "agent", skipped), skipped)
+                .newCall(request).execute()) {
+            assertThat(response.body().string()).isEqualTo("ok");
+        }
+        assertThat(exporter.getFinishedSpanItems()).isEmpty();
+
+        HttpClientCapture capture = new HttpClientCapture(properties());
+        try (Response response = okHttpClient(new HttpClientSpans(openTelemetry, "agent", capture), capture)
+                .newCall(request).execute()) {
+            assertThat(response.body().string()).isEqualTo("ok");
+        }
+        // Agent负责客户端span和追踪头，这里只承载采集内容
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getKind()).isEqualTo(SpanKind.INTERNAL);
+            assertThat(span.getName()).isEqualTo("okhttp.capture");
+            assertThat(span.getAttributes().get(HttpClientCapture.RESPONSE_BODY)).isEqualTo("ok");
+        });
+        assertThat(traceparent.get()).isNull();
+    }
+
+    @Test
+    void webClientSpanInSdkModeRecordsResponseBody() throws Exception {
+        startServer("w".repeat(32));
+        HttpClientCapture capture = new HttpClientCapture(properties());
+        HttpClientSpans spans = new HttpClientSpans(openTelemetry, "sdk", capture);
+        WebClient client = WebClient.builder()
+                .filter(new WebClientTracingFilter(spans))
+                .filter(new WebClientCaptureFilter(capture))
+                .build();
+
+        String body = client.post()
+                .uri("http://localhost:" + server.getAddress().getPort() + "/data")
+                .bodyValue("hello")
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(5));
+
+        assertThat(body).isEqualTo("w".repeat(32));
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getKind()).isEqualTo(SpanKind.CLIENT);
+            assertThat(span.getAttributes().get(HttpClientCapture.REQUEST_BODY)).isEqualTo("hello");
+            assertThat(span.getAttributes().get(HttpClientCapture.RESPONSE_BODY)).isEqualTo("w".repeat(16));
+            assertThat(span.getAttributes().get(HttpClientCapture.RESPONSE_BODY_TRUNCATED)).isTrue();
+            assertThat(traceparent.get()).contains(span.getTraceId());
+        });
+    }
+
+    private static OkHttpClient okHttpClient(HttpClientSpans spans, HttpClientCapture capture) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new OkHttpTracingInterceptor(spans))
+                .addInterceptor(new OkHttpCaptureInterceptor(capture))
+                .build();
+    }
+
+    private void startServer(String responseBody) throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/data", exchange -> {
+            traceparent.set(exchange.getRequestHeaders().getFirst("traceparent"));
+            exchange.getRequestBody().readAllBytes();
+            byte[] bytes = responseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    private static HttpClientCapture.CaptureProperties properties() {
+        HttpClientCapture.CaptureProperties properties = new HttpClientCapture.CaptureProperties();
+        properties.setCaptureEnabled(true);
+        properties.setCaptureRequestHeaders(List.of("Content-Type", "Authorization"));
+        properties.setCaptureResponseHeaders(List.of("Content-Type"));
+        properties.setCaptureRequestBody(true);
+        properties.setCaptureResponseBody(true);
+        properties.setMaxBodySize(16);
+        return properties;
+    }
+}
@@ -0,0 +1,80 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcQueryMonitorTest {
+
+    private final JdbcQueryMonitor.JdbcMonitorProperties properties = new JdbcQueryMonitor.JdbcMonitorProperties();
+
+    @Test
+    void normalizesLiteralsAndInLists() {
+        assertThat(SqlStatementNormalizer.normalize(
+                "SELECT *  FROM t1 WHERE name = 'O''Brien' AND id IN (1, 2, 3) AND age > 42"))
+                .isEqualTo("SELECT * FROM t1 WHERE name = ? AND id IN (?) AND age > ?");
+    }
+
+    @Test
+    void recordsSlowStatementsWithTraceId() {
+        properties.setSlowThresholdMs(100);
+        JdbcQueryMonitor monitor = new JdbcQueryMonitor(properties, new SimpleMeterRegistry());
+
+        try (Scope ignored = traceScope()) {
+            monitor.record("SELECT ?", TimeUnit.MILLISECONDS.toNanos(5));
+            monitor.record("SELECT * FROM orders", TimeUnit.MILLISECONDS.toNanos(250));
+        }
+
+        assertThat(monitor.slowStatements()).singleElement().satisfies(slow -> {
+            assertThat(slow.getStatement()).isEqualTo("SELECT * FROM orders");
+            assertThat(slow.getTraceId()).isEqualTo("0af7651916cd43dd8448eb211c80319c");
+        });
+        assertThat(monitor.topStatements(10)).first()
+                .satisfies(stats -> assertThat(stats).containsEntry("statement", "SELECT * FROM orders"));
+    }
+
+    @Test
+    void flagsRepeatedStatementOnceWhenThresholdExceeded() {
+        properties.setNPlusOneThreshold(3);
+        JdbcQueryMonitor monitor = new JdbcQueryMonitor(properties, new SimpleMeterRegistry());
+
+        try (Scope ignored = traceScope()) {
+            for (int i = 0; i < 3; i++) {
+                monitor.record("SELECT * FROM items WHERE order_id = ?", 1000);
+            }
+            assertThat(monitor.nPlusOneFindings()).isEmpty();
+
+            for (int i = 0; i < 5; i++) {
+                monitor.record("SELECT * FROM items WHERE order_id = ?", 1000);
+            }
+        }
+
+        assertThat(monitor.nPlusOneFindings()).hasSize(1);
+    }
+
+    @Test
+    void foldsStatementsBeyondLimitIntoOther() {
+        properties.setMaxStatements(2);
+        JdbcQueryMonitor monitor = new JdbcQueryMonitor(properties, new SimpleMeterRegistry());
+
+        monitor.record("SELECT a", 1000);
+        monitor.record("SELECT b", 1000);
+        monitor.record("SELECT c", 1000);
+
+        assertThat(monitor.topStatements(10)).extracting(stats -> stats.get("statement"))
+                .containsExactlyInAnyOrder("SELECT a", "SELECT b", JdbcQueryMonitor.OTHER_STATEMENT);
+    }
+
+    private static Scope traceScope() {
+        return Span.wrap(SpanContext.create("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331",
+                TraceFlags.getSampled(), TraceState.getDefault())).makeCurrent();
+    }
+}
@@ -0,0 +1,92 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrSpanProcessorTest {
+
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(new JfrSpanProcessor(100))
+            .build();
+    private final Tracer tracer = tracerProvider.get("custom-tracer");
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void recordsSpanEventsWithTraceAndSpanIds() throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable(SpanJfrEvent.NAME);
+            recording.start();
+
+            Span parent = tracer.spanBuilder("HTTP POST").startSpan();
+            try (Scope ignored = parent.makeCurrent()) {
+                Span child = tracer.spanBuilder("rqueue.message.process").startSpan();
+                child.setStatus(StatusCode.ERROR);
+                child.end();
+            }
+            parent.end();
+
+            recording.stop();
+            Path file = tempDir.resolve("spans.jfr");
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> SpanJfrEvent.NAME.equals(e.getEventType().getName()))
+                    .collect(Collectors.toList());
+
+            assertThat(events).hasSize(2);
+            assertThat(events).allSatisfy(e ->
+                    assertThat(e.getString("traceId")).isEqualTo(parent.getSpanContext().getTraceId()));
+            RecordedEvent childEvent = events.stream()
+                    .filter(e -> "rqueue.message.process".equals(e.getString("name")))
+                    .findFirst().orElseThrow();
+            assertThat(childEvent.getString("parentSpanId")).isEqualTo(parent.getSpanContext().getSpanId());
+            assertThat(childEvent.getString("status")).isEqualTo("ERROR");
+            assertThat(childEvent.getString("scope")).isEqualTo("custom-tracer");
+        }
+    }
+
+    @Test
+    void recordsTheThreadThatStartedTheSpan() throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable(SpanJfrEvent.NAME);
+            recording.start();
+
+            Span span = tracer.spanBuilder("async").startSpan();
+            Thread ender = new Thread(span::end);
+            ender.start();
+            ender.join();
+
+            recording.stop();
+            Path file = tempDir.resolve("async.jfr");
+            recording.dump(file);
+
+            RecordedEvent event = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> SpanJfrEvent.NAME.equals(e.getEventType().getName()))
+                    .findFirst().orElseThrow();
+            assertThat(event.getLong("startThreadId")).isEqualTo(Thread.currentThread().getId());
+            assertThat(event.getThread().getJavaThreadId()).isEqualTo(ender.getId());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.demo.otel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class JfrTraceRecorderTest {
+
+    private final JfrTraceRecorder.JfrProperties properties = new JfrTraceRecorder.JfrProperties();
+    private final JfrTraceRecorder recorder = new JfrTraceRecorder(properties);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        recorder.stop();
+    }
+
+    @Test
+    void overwritesRepeatedDumpsAndKeepsOnlyRecentFiles() throws Exception {
+        properties.setSettings("default");
+        properties.setOutputDirectory(tempDir.toString());
+        properties.setMaxDumpFiles(2);
+        recorder.start(60);
+
+        recorder.dump(traceId(1));
+        recorder.dump(traceId(1));
+        assertThat(dumpFiles()).containsExactly("trace-" + traceId(1) + ".jfr");
+
+        recorder.dump(traceId(2));
+        Thread.sleep(20);
+        recorder.dump(traceId(3));
+        assertThat(dumpFiles()).hasSize(2).contains("trace-" + traceId(3) + ".jfr");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void correlatesOnlySpansStartedAndEndedOnTheSameThread() throws Exception {
+        properties.setSettings("default");
+        properties.setOutputDirectory(tempDir.toString());
+        recorder.start(60);
+        Thread other = new Thread(() -> { });
+        other.start();
+        other.join();
+
+        commitSpan("sync", Thread.currentThread().getId());
+        commitSpan("async", other.getId());
+
+        List<Map<String, Object>> spans = (List<Map<String, Object>>) recorder.dump(traceId(1)).get("spans");
+        assertThat(spans).extracting(span -> span.get("name"), span -> span.get("correlated"))
+                .containsExactlyInAnyOrder(tuple("sync", true), tuple("async", false));
+    }
+
+    private static void commitSpan(String name, long startThreadId) {
+        SpanJfrEvent event = new SpanJfrEvent();
+        event.traceId = traceId(1);
+        event.spanId = name;
+        event.name = name;
+        event.startThreadId = startThreadId;
+        event.begin();
+        event.end();
+        event.commit();
+    }
+
+    private List<String> dumpFiles() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+
+    private static String traceId(int index) {
+        return String.format("%032x", index);
+    }
+}
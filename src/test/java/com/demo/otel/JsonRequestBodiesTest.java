@@ -0,0 +1,63 @@
+package com.demo.otel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonRequestBodiesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonRequestBodies bodies = new JsonRequestBodies(objectMapper, "sdk");
+
+    @Test
+    void streamsJsonIntoSinkAndCountsBytes() throws Exception {
+        Map<String, String> value = Map.of("name", "张三");
+        JsonRequestBodies.JsonRequestBody body = bodies.okHttp(value);
+        Buffer sink = new Buffer();
+
+        body.writeTo(sink);
+
+        byte[] expected = objectMapper.writeValueAsBytes(value);
+        assertThat(sink.readByteArray()).isEqualTo(expected);
+        assertThat(body.bytesWritten()).isEqualTo(expected.length);
+        assertThat(body.contentLength()).isEqualTo(-1);
+        assertThat(body.contentType().charset()).isEqualTo(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void leavesSinkOpenForOkHttp() throws Exception {
+        Buffer sink = new Buffer();
+
+        bodies.okHttp(Map.of("key", "value")).writeTo(sink);
+
+        assertThat(sink.isOpen()).isTrue();
+    }
+
+    @Test
+    void recordsBodySizeOnlyWhenOkHttpHasClientSpans() throws Exception {
+        AttributeKey<Long> bodySize = AttributeKey.longKey(JsonRequestBodies.BODY_SIZE);
+        try (SdkTracerProvider tracerProvider = SdkTracerProvider.builder().build()) {
+            Span handlerSpan = tracerProvider.get("test").spanBuilder("handler").startSpan();
+            try (Scope ignored = handlerSpan.makeCurrent()) {
+                new JsonRequestBodies(objectMapper, "off").okHttp(Map.of("key", "value")).writeTo(new Buffer());
+            }
+            assertThat(((ReadableSpan) handlerSpan).getAttribute(bodySize)).isNull();
+
+            Span clientSpan = tracerProvider.get("test").spanBuilder("POST").startSpan();
+            try (Scope ignored = clientSpan.makeCurrent()) {
+                bodies.okHttp(Map.of("key", "value")).writeTo(new Buffer());
+            }
+            assertThat(((ReadableSpan) clientSpan).getAttribute(bodySize)).isEqualTo(15L);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.demo.otel;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyExportersTest {
+
+    @Test
+    void lazyExporterWaitsForBackgroundInitialization() {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> exported = new CopyOnWriteArrayList<>();
+        SpanExporter lazy = LazyExporters.spanExporter(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new CountingExporter(exported);
+        });
+
+        CompletableResultCode early = lazy.export(List.of());
+        assertThat(early.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(early.join(5, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(lazy.export(List.of()).isSuccess()).isTrue();
+        assertThat(exported).hasSize(2);
+    }
+
+    @Test
+    void lazyExporterFailsWhenInitializationFails() {
+        SpanExporter lazy = LazyExporters.spanExporter(() -> {
+            throw new IllegalStateException("bad endpoint");
+        });
+
+        assertThat(lazy.export(List.of()).join(5, TimeUnit.SECONDS).isSuccess()).isFalse();
+        assertThat(lazy.shutdown().join(5, TimeUnit.SECONDS).isSuccess()).isFalse();
+    }
+
+    private static final class CountingExporter implements SpanExporter {
+
+        private final List<Integer> exported;
+
+        CountingExporter(List<Integer> exported) {
+            this.exported = exported;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exported.add(spans.size());
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
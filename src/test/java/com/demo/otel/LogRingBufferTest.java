@@ -0,0 +1,65 @@
+package com.demo.otel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogRingBufferTest {
+
+    @Test
+    void reservesCapacityForHighPriorityItems() {
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(8, 0.25);
+
+        int accepted = 0;
+        while (buffer.offer("info", false)) {
+            accepted++;
+        }
+
+        assertThat(accepted).isEqualTo(6);
+        assertThat(buffer.offer("warn", true)).isTrue();
+        assertThat(buffer.offer("warn", true)).isTrue();
+        assertThat(buffer.offer("warn", true)).isFalse();
+    }
+
+    @Test
+    void drainsInOrderAndReusesSlots() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(4, 0);
+        List<Integer> drained = new ArrayList<>();
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.offer(round * 4 + i, false)).isTrue();
+            }
+            assertThat(buffer.drain(drained::add, 10)).isEqualTo(4);
+        }
+
+        assertThat(drained).hasSize(12).isSorted();
+    }
+
+    @Test
+    void acceptsConcurrentProducers() throws Exception {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(1 << 16, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    buffer.offer(i, false);
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        assertThat(buffer.drain(item -> {
+        }, Integer.MAX_VALUE)).isEqualTo(40_000);
+    }
+}
@@ -0,0 +1,192 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageBatcherTest {
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        tracerProvider.close();
+    }
+
+    @Test
+    void processesFullBatchOnceWithProducerLinks() throws Exception {
+        MessageBatcher<String> batcher = batcher(3, 10_000, 5_000, this::record);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String payload = "m" + i;
+            SpanContext producer = producer(i);
+            results.add(executor.submit(() -> {
+                try (Scope ignored = Context.root().with(RqueueTracingMiddleware.PRODUCER_CONTEXT, producer).makeCurrent()) {
+                    batcher.submit(payload);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(batches).singleElement().satisfies(batch -> assertThat(batch).hasSize(3));
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getName()).isEqualTo("rqueue.batch.process");
+            assertThat(span.getLinks()).hasSize(3);
+            assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.OK);
+        });
+    }
+
+    @Test
+    void flushesPartialBatchAfterMaxWait() throws Exception {
+        MessageBatcher<String> batcher = batcher(10, 20, 5_000, this::record);
+
+        batcher.submit("only");
+
+        assertThat(batches).containsExactly(List.of("only"));
+    }
+
+    @Test
+    void interruptedFirstThreadStillFlushesBatch() throws Exception {
+        MessageBatcher<String> batcher = batcher(10, 60_000, 5_000, this::record);
+        AtomicBoolean interruptRestored = new AtomicBoolean();
+        CountDownLatch firstSubmitted = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> {
+            firstSubmitted.countDown();
+            batcher.submit("first");
+            interruptRestored.set(Thread.currentThread().isInterrupted());
+            return null;
+        });
+        firstSubmitted.await();
+        Thread.sleep(50);
+        Future<?> second = executor.submit(() -> {
+            batcher.submit("second");
+            return null;
+        });
+        Thread.sleep(50);
+        first.cancel(true);
+
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("first", "second"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!interruptRestored.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(interruptRestored).isTrue();
+    }
+
+    @Test
+    void failsOnlyTheFailedMessage() throws Exception {
+        MessageBatcher<String> batcher = batcher(2, 10_000, 5_000, batch -> batch.stream()
+                .filter(item -> item.getPayload().equals("bad"))
+                .forEach(item -> item.fail(new IllegalArgumentException("bad payload"))));
+
+        Future<?> good = executor.submit(() -> {
+            batcher.submit("good");
+            return null;
+        });
+        Future<?> bad = executor.submit(() -> {
+            batcher.submit("bad");
+            return null;
+        });
+
+        good.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(exporter.getFinishedSpanItems()).singleElement()
+                .satisfies(span -> assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR));
+    }
+
+    @Test
+    void withdrawsMessageWhoseBatchDidNotStartInTime() throws Exception {
+        MessageBatcher<String> batcher = batcher(3, 300, 50, this::record);
+
+        Future<?> first = executor.submit(() -> {
+            batcher.submit("first");
+            return null;
+        });
+        Thread.sleep(20);
+        // 第二条不负责刷新，等待批次开始超时后撤回，由RQueue重试
+        Future<?> second = executor.submit(() -> {
+            batcher.submit("second");
+            return null;
+        });
+
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(TimeoutException.class);
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("first"));
+    }
+
+    @Test
+    void waitsForBatchAlreadyInProgress() throws Exception {
+        MessageBatcher<String> batcher = batcher(2, 10_000, 50, batch -> {
+            Thread.sleep(300);
+            record(batch);
+        });
+
+        Future<?> first = executor.submit(() -> {
+            batcher.submit("first");
+            return null;
+        });
+        Thread.sleep(20);
+        Future<?> second = executor.submit(() -> {
+            batcher.submit("second");
+            return null;
+        });
+
+        // 处理时间超过resultTimeoutMs，已开始处理的消息不能超时，否则会被RQueue重复处理
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(batches).containsExactly(List.of("first", "second"));
+    }
+
+    private MessageBatcher<String> batcher(int maxSize, long maxWaitMs, long resultTimeoutMs,
+                                           MessageBatcher.BatchHandler<String> handler) {
+        return new MessageBatcher<>(tracerProvider.get("test"), "test-queue", maxSize, maxWaitMs, resultTimeoutMs,
+                handler);
+    }
+
+    private void record(List<? extends MessageBatcher.BatchItem<String>> batch) {
+        List<String> payloads = new ArrayList<>();
+        batch.forEach(item -> payloads.add(item.getPayload()));
+        batches.add(payloads);
+    }
+
+    private static SpanContext producer(int index) {
+        return SpanContext.create(String.format("%032x", index + 1), String.format("%016x", index + 1),
+                TraceFlags.getSampled(), TraceState.getDefault());
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.otel;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.opentelemetry.instrumentation.jdbc.datasource.JdbcTelemetry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MonitoringDataSourceTest {
+
+    private static final String ALIVE_BYPASS_WINDOW = "com.zaxxer.hikari.aliveBypassWindowMs";
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final OpenTelemetrySdk sdk = OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build();
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void poolValidationQueryCreatesNoJdbcSpan() throws Exception {
+        String previousWindow = System.getProperty(ALIVE_BYPASS_WINDOW);
+        // 每次借用连接都校验
+        System.setProperty(ALIVE_BYPASS_WINDOW, "0");
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:pool-validation;DB_CLOSE_DELAY=-1");
+
+        HikariDataSource hikari = new HikariDataSource();
+        hikari.setDataSource(JdbcTelemetry.create(sdk).wrap(h2));
+        hikari.setConnectionTestQuery("SELECT 1");
+        hikari.setMaximumPoolSize(1);
+        JdbcMonitorConfig.suppressPoolValidation(hikari, new SpanFilterConfig.ExcludedOperations(Set.of("SELECT 1")));
+        try {
+            try (Connection connection = hikari.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 2");
+            }
+            Thread.sleep(20);
+            try (Connection connection = hikari.getConnection()) {
+                assertThat(connection.isValid(1)).isTrue();
+            }
+        } finally {
+            hikari.close();
+            if (previousWindow == null) {
+                System.clearProperty(ALIVE_BYPASS_WINDOW);
+            } else {
+                System.setProperty(ALIVE_BYPASS_WINDOW, previousWindow);
+            }
+        }
+
+        // 只有业务语句的span，连接创建和借用时的校验语句都没有
+        assertThat(exporter.getFinishedSpanItems()).hasSize(1);
+    }
+}
@@ -0,0 +1,174 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MybatisCacheManagerTest {
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final MybatisCacheManager.MybatisCacheProperties properties = new MybatisCacheManager.MybatisCacheProperties();
+    private final Configuration configuration = new Configuration();
+    private final MybatisResultTypeFilter filter = new MybatisResultTypeFilter(configuration);
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @AfterEach
+    void stopContainers() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+    }
+
+    @Test
+    void servesRepeatedReadsFromLocalCache() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MybatisCacheManager node = node(registry);
+        node.put("local", "key", new ArrayList<>(List.of("a", "b")));
+        // 删除Redis中的条目后仍能从本地读到
+        template().delete(template().keys(properties.getKeyPrefix() + "local:*"));
+
+        assertThat(node.get("local", "key", filter)).isEqualTo(List.of("a", "b"));
+        assertThat(count(registry, "local", "hit_local")).isEqualTo(1);
+    }
+
+    @Test
+    void fallsBackToRedisOnAnotherNode() {
+        MybatisCacheManager writer = node(new SimpleMeterRegistry());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MybatisCacheManager reader = node(registry);
+
+        writer.put("remote", "key", new ArrayList<>(List.of(1L, 2L)));
+
+        assertThat(reader.get("remote", "key", filter)).isEqualTo(List.of(1L, 2L));
+        assertThat(reader.get("remote", "key", filter)).isEqualTo(List.of(1L, 2L));
+        assertThat(count(registry, "remote", "hit_redis")).isEqualTo(1);
+        assertThat(count(registry, "remote", "hit_local")).isEqualTo(1);
+    }
+
+    @Test
+    void clearOnOneNodeInvalidatesOtherNodes() throws Exception {
+        MybatisCacheManager first = node(new SimpleMeterRegistry());
+        MybatisCacheManager second = node(new SimpleMeterRegistry());
+        first.put("shared", "key", new ArrayList<>(List.of("v1")));
+        assertThat(second.get("shared", "key", filter)).isEqualTo(List.of("v1"));
+
+        first.clear("shared");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (second.get("shared", "key", filter) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(second.get("shared", "key", filter)).isNull();
+        assertThat(first.get("shared", "key", filter)).isNull();
+    }
+
+    @Test
+    void rejectsValuesThatAreNotMappedResultTypes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MybatisCacheManager node = node(registry);
+        node.put("filtered", "key", new ArrayList<>(List.of(new Order(1L))));
+
+        assertThat(node.get("filtered", "key", filter)).isNull();
+        assertThat(count(registry, "filtered", "miss")).isEqualTo(1);
+
+        configuration.addResultMap(new ResultMap.Builder(configuration, "orders.order", Order.class, List.of()).build());
+        node.put("filtered", "key", new ArrayList<>(List.of(new Order(1L))));
+        assertThat(node.get("filtered", "key", filter)).isEqualTo(List.of(new Order(1L)));
+    }
+
+    @Test
+    void rejectsValuesNestedBeyondTheDepthLimit() {
+        MybatisCacheManager node = node(new SimpleMeterRegistry());
+        List<Object> nested = new ArrayList<>();
+        List<Object> current = nested;
+        for (int i = 0; i < MybatisResultTypeFilter.MAX_DEPTH; i++) {
+            List<Object> child = new ArrayList<>();
+            current.add(child);
+            current = child;
+        }
+        node.put("nested", "key", nested);
+
+        assertThat(node.get("nested", "key", filter)).isNull();
+    }
+
+    @Test
+    void subscribesToInvalidationsOnlyWhenNamespacesAreConfigured() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(MybatisCacheConfig.class)
+                .withBean(RedisConnectionFactory.class, () -> connectionFactory)
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+        runner.run(context -> assertThat(context).doesNotHaveBean(RedisMessageListenerContainer.class));
+        runner.withPropertyValues("opentelemetry.mybatis.cache.namespaces[0]=orders")
+                .run(context -> assertThat(context).hasSingleBean(RedisMessageListenerContainer.class));
+    }
+
+    private MybatisCacheManager node(SimpleMeterRegistry registry) {
+        MybatisCacheManager manager = new MybatisCacheManager(properties, template(), registry);
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(manager, new ChannelTopic(properties.getInvalidationChannel()));
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+        return manager;
+    }
+
+    private static RedisTemplate<String, byte[]> template() {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    private static double count(SimpleMeterRegistry registry, String namespace, String status) {
+        return registry.get("mybatis.cache.requests").tag("namespace", namespace).tag("status", status)
+                .counter().count();
+    }
+
+    record Order(Long id) implements Serializable {
+    }
+}
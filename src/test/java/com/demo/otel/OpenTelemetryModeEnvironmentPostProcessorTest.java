@@ -0,0 +1,66 @@
+package com.demo.otel;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.logging.DeferredLogs;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenTelemetryModeEnvironmentPostProcessorTest {
+
+    private final OpenTelemetryModeEnvironmentPostProcessor postProcessor =
+            new OpenTelemetryModeEnvironmentPostProcessor(new DeferredLogs());
+
+    @Test
+    void autoModeFollowsAgentDetection() {
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.resolveMode("auto", true)).isEqualTo("agent");
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.resolveMode("auto", false)).isEqualTo("sdk");
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.resolveMode("off", true)).isEqualTo("off");
+    }
+
+    @Test
+    void agentModeDisablesOverlappingInstrumentation() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("opentelemetry.mode", "agent")
+                .withProperty("spring.datasource.url", "jdbc:otel:mysql://localhost:3306/mydb")
+                .withProperty("spring.datasource.driver-class-name", "io.opentelemetry.instrumentation.jdbc.OpenTelemetryDriver");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty("opentelemetry.mode.effective")).isEqualTo("agent");
+        assertThat(environment.getProperty("opentelemetry.instrumentation.hutool.enabled")).isEqualTo("false");
+        assertThat(environment.getProperty("opentelemetry.instrumentation.lettuce.enabled")).isEqualTo("false");
+        assertThat(environment.getProperty("spring.datasource.url")).isEqualTo("jdbc:mysql://localhost:3306/mydb");
+        assertThat(environment.getProperty("spring.datasource.driver-class-name")).isEmpty();
+    }
+
+    @Test
+    void sdkModeKeepsManualInstrumentation() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("opentelemetry.mode", "sdk")
+                .withProperty("spring.datasource.url", "jdbc:otel:mysql://localhost:3306/mydb");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty("opentelemetry.mode.effective")).isEqualTo("sdk");
+        assertThat(environment.getProperty("opentelemetry.instrumentation.hutool.enabled")).isNull();
+        assertThat(environment.getProperty("spring.datasource.url")).isEqualTo("jdbc:otel:mysql://localhost:3306/mydb");
+    }
+
+    @Test
+    void logAppenderIsOffWhileTheAgentExportsLogs() {
+        MockEnvironment agentDefaults = new MockEnvironment();
+        MockEnvironment agentWithoutLogback = new MockEnvironment()
+                .withProperty("otel.instrumentation.logback-appender.enabled", "false");
+        MockEnvironment agentWithInstrumentationOptIn = new MockEnvironment()
+                .withProperty("otel.instrumentation.common.default-enabled", "false");
+        MockEnvironment disabled = new MockEnvironment().withProperty("opentelemetry.enabled", "false");
+
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.isLogAppenderEnabled(agentDefaults, "agent")).isFalse();
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.isLogAppenderEnabled(agentWithoutLogback, "agent")).isTrue();
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.isLogAppenderEnabled(agentWithInstrumentationOptIn, "agent")).isTrue();
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.isLogAppenderEnabled(agentDefaults, "sdk")).isTrue();
+        assertThat(OpenTelemetryModeEnvironmentPostProcessor.isLogAppenderEnabled(disabled, "sdk")).isFalse();
+    }
+}
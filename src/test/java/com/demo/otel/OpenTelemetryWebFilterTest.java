@@ -0,0 +1,109 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenTelemetryWebFilterTest {
+
+    private final AdmissionController admissionController = new AdmissionController(
+            new AdmissionController.AdmissionProperties(), new SimpleMeterRegistry(),
+            OpenTelemetry.noop().getTracer("test"));
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final OpenTelemetry openTelemetry = OpenTelemetrySdk.builder()
+            .setTracerProvider(tracerProvider)
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void completesAsyncRequestsWhenTheResponseCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/http/webclient");
+        request.setAsyncSupported(true);
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync();
+            }
+        });
+
+        filter().doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(admissionController.inFlight()).isEqualTo(1);
+
+        request.getAsyncContext().complete();
+        assertThat(admissionController.inFlight()).isZero();
+    }
+
+    @Test
+    void completesSyncRequestsWhenTheChainReturns() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/http/okhttp");
+
+        filter().doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(admissionController.inFlight()).isZero();
+    }
+
+    @Test
+    void serverSpanIsCurrentUntilAsyncResponseCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/http/webclient");
+        request.setAsyncSupported(true);
+        request.addHeader("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+        List<Span> seen = new CopyOnWriteArrayList<>();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                seen.add(Span.current());
+                req.startAsync();
+            }
+        });
+
+        filter().doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(seen).singleElement().satisfies(span -> assertThat(span.getSpanContext().isValid()).isTrue());
+        assertThat(exporter.getFinishedSpanItems()).isEmpty();
+
+        request.getAsyncContext().complete();
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getKind()).isEqualTo(SpanKind.SERVER);
+            assertThat(span.getTraceId()).isEqualTo("0af7651916cd43dd8448eb211c80319c");
+            assertThat(span.getSpanId()).isEqualTo(seen.get(0).getSpanContext().getSpanId());
+        });
+    }
+
+    private OpenTelemetryWebFilter filter() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("admissionController", admissionController);
+        beanFactory.addBean("openTelemetry", openTelemetry);
+        return new OpenTelemetryWebFilter(beanFactory.getBeanProvider(AdmissionController.class),
+                beanFactory.getBeanProvider(RequestMappingHandlerMapping.class),
+                beanFactory.getBeanProvider(OpenTelemetry.class), "sdk", true);
+    }
+}
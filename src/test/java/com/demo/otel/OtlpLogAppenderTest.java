@@ -0,0 +1,142 @@
+package com.demo.otel;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.status.Status;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.export.SimpleLogRecordProcessor;
+import io.opentelemetry.sdk.testing.exporter.InMemoryLogRecordExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OtlpLogAppenderTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+    private final InMemoryLogRecordExporter exporter = InMemoryLogRecordExporter.create();
+    private final SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder()
+            .addLogRecordProcessor(SimpleLogRecordProcessor.create(exporter))
+            .build();
+    private final OpenTelemetry sdk = OpenTelemetrySdk.builder().setLoggerProvider(loggerProvider).build();
+    private OtlpLogAppender appender;
+
+    @AfterEach
+    void tearDown() {
+        if (appender != null) {
+            appender.stop();
+        }
+        loggerProvider.close();
+    }
+
+    @Test
+    void exportsTheSpanContextOfTheLoggingThread() throws Exception {
+        appender = start(() -> sdk, 60_000, 16);
+        SpanContext spanContext = SpanContext.create("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331",
+                TraceFlags.getSampled(), TraceState.getDefault());
+
+        try (Scope ignored = Span.wrap(spanContext).makeCurrent()) {
+            appender.doAppend(event(Level.INFO, "in span", null));
+        }
+        appender.doAppend(event(Level.INFO, "no span", null));
+
+        await(() -> exporter.getFinishedLogRecordItems().size() == 2);
+        assertThat(exporter.getFinishedLogRecordItems().get(0).getSpanContext()).isEqualTo(spanContext);
+        assertThat(exporter.getFinishedLogRecordItems().get(1).getSpanContext().isValid()).isFalse();
+    }
+
+    @Test
+    void keepsExportingAfterAFailingRecord() throws Exception {
+        appender = start(() -> sdk, 60_000, 16);
+        RuntimeException broken = new IllegalStateException("broken") {
+            @Override
+            public String toString() {
+                throw new UnsupportedOperationException("toString");
+            }
+        };
+        long dropped = OtlpLogAppender.droppedCount();
+
+        appender.doAppend(event(Level.ERROR, "failing", broken));
+        appender.doAppend(event(Level.INFO, "after failure", null));
+
+        await(() -> exporter.getFinishedLogRecordItems().size() == 1);
+        assertThat(exporter.getFinishedLogRecordItems().get(0).getBody().asString()).isEqualTo("after failure");
+        assertThat(OtlpLogAppender.droppedCount() - dropped).isEqualTo(1);
+        assertThat(statuses(Status.ERROR)).anyMatch(message -> message.startsWith("Failed to export log event"));
+    }
+
+    @Test
+    void countsDroppedEventsAndKeepsRoomForWarnings() {
+        // 一直未install，队列不会被取出
+        appender = start(() -> null, 60_000, 4);
+        long dropped = OtlpLogAppender.droppedCount();
+
+        for (int i = 0; i < 5; i++) {
+            appender.doAppend(event(Level.INFO, "info " + i, null));
+        }
+        // 容量4，INFO最多占3个，剩余1个留给WARN
+        assertThat(OtlpLogAppender.droppedCount() - dropped).isEqualTo(2);
+
+        appender.doAppend(event(Level.WARN, "warn", null));
+        assertThat(OtlpLogAppender.droppedCount() - dropped).isEqualTo(2);
+        appender.doAppend(event(Level.WARN, "warn", null));
+        assertThat(OtlpLogAppender.droppedCount() - dropped).isEqualTo(3);
+    }
+
+    @Test
+    void discardsBufferedEventsWhenNotInstalledInTime() throws Exception {
+        appender = start(() -> null, 50, 16);
+
+        appender.doAppend(event(Level.INFO, "before timeout", null));
+
+        await(() -> statuses(Status.WARN).stream().anyMatch(message -> message.contains("discarded 1 log events")));
+        long dropped = OtlpLogAppender.droppedCount();
+        appender.doAppend(event(Level.INFO, "after timeout", null));
+        // 超时后直接丢弃，不再进入队列，也不计为队列满
+        assertThat(OtlpLogAppender.droppedCount()).isEqualTo(dropped);
+    }
+
+    private OtlpLogAppender start(Supplier<OpenTelemetry> installed, long installWaitMs,
+                                  int ringBufferSize) {
+        OtlpLogAppender appender = new OtlpLogAppender(installed);
+        appender.setContext(loggerContext);
+        appender.setInstallWaitMs(installWaitMs);
+        appender.setRingBufferSize(ringBufferSize);
+        appender.start();
+        return appender;
+    }
+
+    private LoggingEvent event(Level level, String message, Throwable throwable) {
+        return new LoggingEvent(Logger.class.getName(), logger, level, message, throwable, null);
+    }
+
+    private List<String> statuses(int level) {
+        return loggerContext.getStatusManager().getCopyOfStatusList().stream()
+                .filter(status -> status.getLevel() == level)
+                .map(Status::getMessage)
+                .toList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() - deadline).as("condition not met within 5s").isNegative();
+            Thread.sleep(10);
+        }
+    }
+}
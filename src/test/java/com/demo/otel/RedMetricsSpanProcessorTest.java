@@ -0,0 +1,90 @@
+package com.demo.otel;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedMetricsSpanProcessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RedMetricsSpanProcessor.RedMetricsProperties properties = new RedMetricsSpanProcessor.RedMetricsProperties();
+    private final List<SpanData> exported = new ArrayList<>();
+    private SdkTracerProvider tracerProvider;
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    private Tracer tracer(double ratio) {
+        tracerProvider = SdkTracerProvider.builder()
+                .setSampler(new SpanFilterConfig.FilteringSampler(new SpanFilterConfig.FilterProperties(), ratio, true))
+                .addSpanProcessor(new RedMetricsSpanProcessor(properties, meterRegistry))
+                .addSpanProcessor(SimpleSpanProcessor.create(new CollectingExporter()))
+                .build();
+        return tracerProvider.get("test");
+    }
+
+    @Test
+    void countsUnsampledSpansWithoutExportingThem() {
+        Tracer tracer = tracer(0.0);
+
+        for (int i = 0; i < 10; i++) {
+            tracer.spanBuilder("GET /orders").startSpan().end();
+        }
+        tracer.spanBuilder("GET /orders").startSpan().setStatus(StatusCode.ERROR).end();
+
+        assertThat(exported).isEmpty();
+        assertThat(timer("GET /orders", "ok").count()).isEqualTo(10);
+        assertThat(timer("GET /orders", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void foldsSeriesBeyondLimitIntoOther() {
+        properties.setMaxSeries(2);
+        Tracer tracer = tracer(1.0);
+
+        tracer.spanBuilder("a").startSpan().end();
+        tracer.spanBuilder("b").startSpan().end();
+        tracer.spanBuilder("c").startSpan().end();
+
+        assertThat(exported).hasSize(3);
+        assertThat(timer(RedMetricsSpanProcessor.OTHER, "ok").count()).isEqualTo(1);
+    }
+
+    private Timer timer(String name, String status) {
+        return meterRegistry.get("otel.span.duration").tag("span.name", name).tag("status", status).timer();
+    }
+
+    private class CollectingExporter implements SpanExporter {
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exported.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.core.Job;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RqueueAutoscalerTest {
+
+    private static ConcurrencyAutoscalePolicy policy() {
+        return new ConcurrencyAutoscalePolicy(2, 10, 2, 50, 5, 3, 0);
+    }
+
+    @Test
+    void scalesUpOnlyAfterConsecutiveHighSamples() {
+        ConcurrencyAutoscalePolicy policy = policy();
+
+        assertThat(policy.evaluate(2, 1000, 10).isChange()).isFalse();
+        assertThat(policy.evaluate(2, 1000, 10).isChange()).isFalse();
+        ConcurrencyAutoscalePolicy.Decision decision = policy.evaluate(2, 1000, 10);
+
+        assertThat(decision.getTo()).isEqualTo(4);
+        assertThat(decision.getDirection()).isEqualTo("up");
+    }
+
+    @Test
+    void holdsBetweenThresholds() {
+        ConcurrencyAutoscalePolicy policy = policy();
+
+        // 积压在上下阈值之间交替出现，不应触发任何调整
+        for (int i = 0; i < 10; i++) {
+            long depth = i % 2 == 0 ? 1000 : 40;
+            assertThat(policy.evaluate(4, depth, 10).isChange()).isFalse();
+        }
+    }
+
+    @Test
+    void doesNotScaleUpWhenLatencySaturated() {
+        ConcurrencyAutoscalePolicy policy = new ConcurrencyAutoscalePolicy(2, 10, 2, 50, 5, 1, 500);
+
+        ConcurrencyAutoscalePolicy.Decision decision = policy.evaluate(2, 1000, 800);
+
+        assertThat(decision.isChange()).isFalse();
+        assertThat(decision.getReason()).isEqualTo("latency_saturated");
+    }
+
+    @Test
+    void respectsBounds() {
+        ConcurrencyAutoscalePolicy policy = new ConcurrencyAutoscalePolicy(2, 10, 4, 50, 5, 1, 0);
+
+        assertThat(policy.evaluate(8, 100_000, 10).getTo()).isEqualTo(10);
+        assertThat(policy.evaluate(3, 0, 10).getTo()).isEqualTo(2);
+        assertThat(policy.evaluate(2, 0, 10).isChange()).isFalse();
+    }
+
+    /**
+     * 使用嵌入式Redis中的真实积压驱动伸缩
+     */
+    @Test
+    void followsQueueDepthInRedis() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer server = new RedisServer(port);
+        server.start();
+        RedisClient client = RedisClient.create("redis://127.0.0.1:" + port);
+        String key = "autoscaler-test-queue";
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            RedisCommands<String, String> redis = connection.sync();
+            RqueueAutoscaler autoscaler = new RqueueAutoscaler(properties(key), redis::llen,
+                    (queueName, pause) -> {
+                    }, OpenTelemetry.noop().getTracer("test"), new SimpleMeterRegistry());
+
+            for (int i = 0; i < 500; i++) {
+                redis.rpush(key, "message-" + i);
+            }
+            autoscaler.sample();
+            autoscaler.sample();
+            assertThat(autoscaler.getConcurrency(key)).isEqualTo(4);
+
+            redis.del(key);
+            autoscaler.sample();
+            autoscaler.sample();
+            assertThat(autoscaler.getConcurrency(key)).isEqualTo(2);
+        } finally {
+            client.shutdown();
+            server.stop();
+        }
+    }
+
+    @Test
+    void pausesPollingWhileInFlightReachesTarget() throws Exception {
+        String key = "autoscaler-gate-queue";
+        List<String> calls = new CopyOnWriteArrayList<>();
+        RqueueAutoscaler autoscaler = new RqueueAutoscaler(properties(key), queueName -> 0,
+                (queueName, pause) -> calls.add(queueName + ":" + pause),
+                OpenTelemetry.noop().getTracer("test"), new SimpleMeterRegistry());
+        Job job = mock(Job.class, RETURNS_DEEP_STUBS);
+        when(job.getRqueueMessage().getQueueName()).thenReturn(key);
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2; i++) {
+                workers.submit(() -> {
+                    autoscaler.handle(job, () -> {
+                        started.countDown();
+                        release.await();
+                        return null;
+                    });
+                    return null;
+                });
+            }
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // 在途数达到目标并发2，暂停轮询；消息不在中间件中排队
+            autoscaler.gate();
+            assertThat(autoscaler.isPaused(key)).isTrue();
+            autoscaler.gate();
+            assertThat(calls).containsExactly(key + ":true");
+
+            release.countDown();
+            workers.shutdown();
+            assertThat(workers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            autoscaler.gate();
+            assertThat(autoscaler.isPaused(key)).isFalse();
+            assertThat(calls).containsExactly(key + ":true", key + ":false");
+        } finally {
+            release.countDown();
+            workers.shutdownNow();
+        }
+    }
+
+    private static RqueueAutoscaler.AutoscaleProperties properties(String queueName) {
+        RqueueAutoscaler.AutoscaleProperties properties = new RqueueAutoscaler.AutoscaleProperties();
+        properties.setQueues(List.of(queueName));
+        properties.setMinConcurrency(2);
+        properties.setMaxConcurrency(6);
+        properties.setStep(2);
+        properties.setRequiredSamples(2);
+        return properties;
+    }
+}
@@ -0,0 +1,100 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.annotation.RqueueListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 在真实的RQueue和Redis上批量入队，并由监听器消费
+ * off模式不注册GlobalOpenTelemetry，可以与其他sdk模式的上下文在同一JVM中运行
+ */
+@SpringBootTest(properties = {
+        "opentelemetry.mode=off",
+        "spring.datasource.url=jdbc:otel:h2:mem:batch-enqueue;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "opentelemetry.rqueue.send-batch.max-size=50"
+})
+class RqueueBatchEnqueueIntegrationTest {
+
+    private static final String QUEUE = "batch-enqueue-test";
+
+    private static RedisServer redis;
+
+    @Autowired
+    private RqueueBatchEnqueuer rqueueBatchEnqueuer;
+
+    @Autowired
+    private BatchConsumer consumer;
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        registry.add("spring.data.redis.host", () -> "127.0.0.1");
+        registry.add("spring.data.redis.port", () -> port);
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.stop();
+    }
+
+    @Test
+    void enqueuedBatchIsConsumed() throws Exception {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add("message-" + i);
+        }
+
+        RqueueBatchEnqueuer.BatchResult result = rqueueBatchEnqueuer.enqueueAll(QUEUE, messages);
+
+        assertThat(result.getEnqueuedCount()).isEqualTo(20);
+        assertThat(result.getFailedCount()).isZero();
+        assertThat(result.getMessageIds()).doesNotContainNull().doesNotHaveDuplicates();
+        List<String> received = new ArrayList<>();
+        while (received.size() < messages.size()) {
+            String message = consumer.received.poll(30, TimeUnit.SECONDS);
+            assertThat(message).as("consumed %s of %s messages", received.size(), messages.size()).isNotNull();
+            received.add(message);
+        }
+        assertThat(received).containsExactlyInAnyOrderElementsOf(messages);
+    }
+
+    @TestConfiguration
+    static class BatchConsumerConfig {
+        @Bean
+        BatchConsumer batchConsumer() {
+            return new BatchConsumer();
+        }
+    }
+
+    static class BatchConsumer {
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+        @RqueueListener(value = QUEUE)
+        public void onMessage(String message) {
+            received.add(message);
+        }
+    }
+}
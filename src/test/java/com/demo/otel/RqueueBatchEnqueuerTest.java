@@ -0,0 +1,140 @@
+package com.demo.otel;
+
+import com.github.sonus21.rqueue.config.RqueueConfig;
+import com.github.sonus21.rqueue.core.RqueueMessageEnqueuer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisConnectionUtils;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RqueueBatchEnqueuerTest {
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final RqueueMessageEnqueuer rqueueMessageEnqueuer = mock(RqueueMessageEnqueuer.class);
+    private final RqueueConfig rqueueConfig = mock(RqueueConfig.class);
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void rqueueCommandsReuseThePipelinedConnection() {
+        List<Boolean> pipelined = new ArrayList<>();
+        when(rqueueMessageEnqueuer.enqueue(eq("q"), any())).thenAnswer(invocation -> {
+            // 与RQueue内部RedisTemplate取连接的方式相同
+            RedisConnection connection = RedisConnectionUtils.getConnection(connectionFactory);
+            pipelined.add(connection.isPipelined());
+            RedisConnectionUtils.releaseConnection(connection, connectionFactory);
+            return "id-" + invocation.getArgument(1);
+        });
+
+        RqueueBatchEnqueuer.BatchResult result = enqueuer(10).enqueueAll("q", List.of("a", "b"));
+
+        assertThat(pipelined).containsExactly(true, true);
+        assertThat(result.getMessageIds()).containsExactly("id-a", "id-b");
+        assertThat(exporter.getFinishedSpanItems()).singleElement()
+                .satisfies(span -> assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.OK));
+    }
+
+    @Test
+    void countsFailedEnqueuesAndMarksSpanAsError() {
+        when(rqueueMessageEnqueuer.enqueue(eq("q"), any()))
+                .thenAnswer(invocation -> "bad".equals(invocation.getArgument(1)) ? null : "id-" + invocation.getArgument(1));
+
+        RqueueBatchEnqueuer.BatchResult result = enqueuer(10).enqueueAll("q", List.of("a", "bad", "c"));
+
+        assertThat(result.getMessageIds()).containsExactly("id-a", null, "id-c");
+        assertThat(result.getEnqueuedCount()).isEqualTo(2);
+        assertThat(result.getFailedCount()).isEqualTo(1);
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+            assertThat(span.getAttributes().get(AttributeKey.longKey("rqueue.batch.failed_count"))).isEqualTo(1L);
+            assertThat(span.getAttributes().get(AttributeKey.stringArrayKey("rqueue.message.ids")))
+                    .isEqualTo(Arrays.asList("id-a", "id-c"));
+        });
+    }
+
+    @Test
+    void marksWholeBatchAsFailedWhenThePipelineFails() {
+        StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+        template.opsForValue().set("not-a-number", "x");
+        when(rqueueMessageEnqueuer.enqueue(eq("q"), any())).thenAnswer(invocation -> {
+            // 命令在pipeline关闭时才执行并报错，enqueue此时已经返回了ID
+            RedisConnection connection = RedisConnectionUtils.getConnection(connectionFactory);
+            connection.stringCommands().incr("not-a-number".getBytes(StandardCharsets.UTF_8));
+            RedisConnectionUtils.releaseConnection(connection, connectionFactory);
+            return "id-" + invocation.getArgument(1);
+        });
+
+        assertThatThrownBy(() -> enqueuer(10).enqueueAll("q", List.of("a", "b")))
+                .isInstanceOf(DataAccessException.class);
+        assertThat(exporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+            assertThat(span.getAttributes().get(AttributeKey.longKey("rqueue.batch.failed_count"))).isEqualTo(2L);
+        });
+    }
+
+    @Test
+    void rejectsBatchesOverTheLimit() {
+        assertThatThrownBy(() -> enqueuer(2).enqueueAll("q", List.of("a", "b", "c")))
+                .isInstanceOf(RqueueBatchEnqueuer.BatchTooLargeException.class);
+        assertThat(exporter.getFinishedSpanItems()).isEmpty();
+    }
+
+    private RqueueBatchEnqueuer enqueuer(int maxBatchSize) {
+        when(rqueueConfig.getConnectionFactory()).thenReturn(connectionFactory);
+        return new RqueueBatchEnqueuer(rqueueMessageEnqueuer, rqueueConfig,
+                OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build(), maxBatchSize);
+    }
+}
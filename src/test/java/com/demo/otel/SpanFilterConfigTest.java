@@ -0,0 +1,57 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpanFilterConfigTest {
+
+    private final SpanFilterConfig.ExcludedOperations excluded =
+            new SpanFilterConfig.ExcludedOperations(Set.of("PING", "SELECT 1"));
+
+    @Test
+    void matchesWholeNormalizedStatement() {
+        assertThat(excluded.matches("SELECT 1")).isTrue();
+        assertThat(excluded.matches("  select\n\t 1 ")).isTrue();
+        assertThat(excluded.matches("ping")).isTrue();
+    }
+
+    @Test
+    void doesNotMatchBusinessStatementsContainingTheKeyword() {
+        assertThat(excluded.matches("SELECT 10")).isFalse();
+        assertThat(excluded.matches("select 1 as x from orders")).isFalse();
+        assertThat(excluded.matches("SELECT * FROM shipping")).isFalse();
+        assertThat(excluded.matches("UPDATE mapping SET v = 1")).isFalse();
+        assertThat(excluded.matches("")).isFalse();
+        assertThat(excluded.matches(null)).isFalse();
+    }
+
+    @Test
+    void followsParentDecisionAndKeepsExclusionsFirst() {
+        SpanFilterConfig.FilteringSampler sampler =
+                new SpanFilterConfig.FilteringSampler(new SpanFilterConfig.FilterProperties(), 0.0, false);
+        String traceId = "0af7651916cd43dd8448eb211c80319c";
+        Context sampledParent = Context.root().with(Span.wrap(SpanContext.createFromRemoteParent(
+                traceId, "b7ad6b7169203331", TraceFlags.getSampled(), TraceState.getDefault())));
+
+        assertThat(sampler.shouldSample(Context.root(), traceId, "GET", SpanKind.SERVER,
+                Attributes.empty(), List.of()).getDecision()).isEqualTo(SamplingDecision.DROP);
+        assertThat(sampler.shouldSample(sampledParent, traceId, "GET", SpanKind.SERVER,
+                Attributes.empty(), List.of()).getDecision()).isEqualTo(SamplingDecision.RECORD_AND_SAMPLE);
+        assertThat(sampler.shouldSample(sampledParent, traceId, "SELECT", SpanKind.CLIENT,
+                Attributes.of(SemanticAttributes.DB_STATEMENT, "SELECT 1"), List.of()).getDecision())
+                .isEqualTo(SamplingDecision.DROP);
+    }
+}
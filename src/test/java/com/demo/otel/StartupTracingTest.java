@@ -0,0 +1,78 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupTracingTest {
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final OpenTelemetrySdk sdk = OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build();
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void buffersOnlyWhenEnabled() {
+        assertThat(StartupTracing.applicationStartup(new String[]{"--opentelemetry.startup-tracing.enabled=true"}))
+                .isInstanceOf(BufferingApplicationStartup.class);
+        assertThat(StartupTracing.applicationStartup(new String[]{"--opentelemetry.startup-tracing.enabled=false"}))
+                .isSameAs(ApplicationStartup.DEFAULT);
+    }
+
+    @Test
+    void emitsPhasesAndSlowBeansUnderStartupRoot() throws Exception {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(100);
+        StartupStep refresh = startup.start("spring.context.refresh");
+        StartupStep slowBean = startup.start("spring.beans.instantiate").tag("beanName", "slowBean");
+        Thread.sleep(30);
+        slowBean.end();
+        startup.start("spring.beans.instantiate").tag("beanName", "fastBean").end();
+        refresh.end();
+
+        StartupTracing.StartupTracingProperties properties = new StartupTracing.StartupTracingProperties();
+        properties.setMinDuration(Duration.ofMillis(20));
+        int emitted = new StartupTracing(properties, sdk).emit(startup.getBufferedTimeline(), Duration.ofSeconds(3));
+
+        assertThat(emitted).isEqualTo(3);
+        Map<String, SpanData> byName = exporter.getFinishedSpanItems().stream()
+                .collect(Collectors.toMap(this::displayName, Function.identity()));
+        assertThat(byName).containsOnlyKeys(StartupTracing.ROOT_SPAN_NAME, "spring.context.refresh",
+                "spring.beans.instantiate:slowBean");
+
+        SpanData root = byName.get(StartupTracing.ROOT_SPAN_NAME);
+        SpanData refreshSpan = byName.get("spring.context.refresh");
+        SpanData beanSpan = byName.get("spring.beans.instantiate:slowBean");
+        assertThat(refreshSpan.getParentSpanId()).isEqualTo(root.getSpanId());
+        assertThat(beanSpan.getParentSpanId()).isEqualTo(refreshSpan.getSpanId());
+        assertThat(beanSpan.getEndEpochNanos() - beanSpan.getStartEpochNanos())
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+        assertThat(root.getAttributes().get(AttributeKey.longKey("spring.startup.ready_ms"))).isEqualTo(3000L);
+    }
+
+    private String displayName(SpanData span) {
+        String beanName = span.getAttributes().get(AttributeKey.stringKey("spring.startup.beanName"));
+        return beanName != null ? span.getName() + ":" + beanName : span.getName();
+    }
+}
@@ -0,0 +1,117 @@
+package com.demo.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracezSpanProcessorTest {
+
+    private final TracezSpanProcessor.TracezProperties properties = new TracezSpanProcessor.TracezProperties();
+    private TracezSpanProcessor processor;
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        properties.setRecentSpans(4);
+        properties.setSamplesPerBucket(2);
+        properties.setMaxSpanNames(2);
+        processor = new TracezSpanProcessor(properties);
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+        tracer = tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void bucketsByLatency() {
+        assertThat(TracezSpanProcessor.bucket(TimeUnit.MICROSECONDS.toNanos(5))).isEqualTo(0);
+        assertThat(TracezSpanProcessor.bucket(TimeUnit.MILLISECONDS.toNanos(1))).isEqualTo(3);
+        assertThat(TracezSpanProcessor.bucket(TimeUnit.MILLISECONDS.toNanos(250))).isEqualTo(5);
+        assertThat(TracezSpanProcessor.bucket(TimeUnit.SECONDS.toNanos(500)))
+                .isEqualTo(TracezSpanProcessor.BUCKET_LABELS.length - 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepsBoundedRecentSpansAndSlowAndErrorSamples() {
+        for (int i = 0; i < 10; i++) {
+            span("GET /orders", 2, false);
+        }
+        span("GET /orders", 300, false);
+        span("GET /orders", 5, true);
+
+        assertThat(processor.recentSpans(100)).hasSize(4);
+
+        Map<String, Object> summary = processor.summary().get(0);
+        assertThat(summary.get("count")).isEqualTo(12L);
+        assertThat(summary.get("errors")).isEqualTo(1L);
+
+        Map<String, Object> samples = processor.samples("GET /orders");
+        Map<String, List<Map<String, Object>>> latency = (Map<String, List<Map<String, Object>>>) samples.get("latency");
+        assertThat(latency.get("[1ms,10ms)")).hasSize(2);
+        assertThat(latency.get("[100ms,1s)")).hasSize(1);
+        assertThat((List<?>) samples.get("errors")).hasSize(1);
+    }
+
+    @Test
+    void foldsNamesBeyondLimitIntoOther() {
+        span("a", 1, false);
+        span("b", 1, false);
+        span("c", 1, false);
+
+        assertThat(processor.summary()).extracting(row -> row.get("name"))
+                .containsExactly(TracezSpanProcessor.OTHER, "a", "b");
+        assertThat(processor.samples("c")).isNull();
+    }
+
+    @Test
+    void concurrentNewNamesNeverExceedLimit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String name = "name-" + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                span(name, 1, false);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(processor.summary()).hasSize(3)
+                .extracting(row -> row.get("name")).contains(TracezSpanProcessor.OTHER);
+    }
+
+    private void span(String name, long durationMs, boolean error) {
+        long start = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        Span span = tracer.spanBuilder(name).setStartTimestamp(start, TimeUnit.NANOSECONDS).startSpan();
+        if (error) {
+            span.setStatus(StatusCode.ERROR, "boom");
+        }
+        span.end(start + TimeUnit.MILLISECONDS.toNanos(durationMs), TimeUnit.NANOSECONDS);
+    }
+}
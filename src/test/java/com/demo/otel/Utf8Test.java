@@ -0,0 +1,24 @@
+package com.demo.otel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Utf8Test {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "plain ascii", "{\"name\":\"张三\"}", "café", "emoji 😀 end", "€"})
+    void matchesStringGetBytes(String value) {
+        assertThat(Utf8.encodedLength(value)).isEqualTo(value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void countsLoneSurrogateAsReplacementCharacter() {
+        String value = "a\uD83Db";
+        assertThat(Utf8.encodedLength(value)).isEqualTo(value.getBytes(StandardCharsets.UTF_8).length);
+    }
+}
@@ -0,0 +1,36 @@
+package com.demo.otel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VirtualThreadsTest {
+
+    @Test
+    void createsNamedVirtualThreadExecutorOnJdk21() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            assertThat(VirtualThreads.isSupported()).isFalse();
+            assertThatThrownBy(() -> VirtualThreads.newExecutor("test-vt-"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("JDK 21+");
+            return;
+        }
+
+        assertThat(VirtualThreads.isSupported()).isTrue();
+        ExecutorService executor = VirtualThreads.newExecutor("test-vt-");
+        try {
+            Future<String> name = executor.submit(() -> Thread.currentThread().getName());
+            assertThat(name.get(5, TimeUnit.SECONDS)).startsWith("test-vt-");
+            Future<Boolean> virtual = executor.submit(() ->
+                    (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+            assertThat(virtual.get(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
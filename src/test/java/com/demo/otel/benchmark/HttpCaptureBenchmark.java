@@ -0,0 +1,186 @@
+package com.demo.otel.benchmark;
+
+import com.demo.otel.HttpClientCapture;
+import com.demo.otel.OkHttpCaptureInterceptor;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 出站HTTP采集的单次请求开销
+ * 用内存中的Interceptor.Chain代替网络，请求体写入Okio Buffer、响应体读完丢弃。
+ * none: 不注册拦截器；off: 注册拦截器但采集关闭(默认配置)；headers: 只采集请求头/响应头；
+ * bodies: 同时采集请求体/响应体(最多1KB)。off与none应基本一致，使用 -prof gc 比较gc.alloc.rate.norm
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpCaptureBenchmark {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    @Param({"none", "off", "headers", "bodies"})
+    private String mode;
+
+    // 1KB、100KB
+    @Param({"1024", "102400"})
+    private int payloadSize;
+
+    private SdkTracerProvider tracerProvider;
+    private Span span;
+    private Interceptor interceptor;
+    private Request request;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() {
+        tracerProvider = SdkTracerProvider.builder().build();
+        span = tracerProvider.get("benchmark").spanBuilder("HTTP POST").startSpan();
+
+        HttpClientCapture.CaptureProperties properties = new HttpClientCapture.CaptureProperties();
+        properties.setCaptureEnabled(!"off".equals(mode));
+        properties.setCaptureRequestHeaders(List.of("Content-Type", "Accept", "User-Agent"));
+        properties.setCaptureResponseHeaders(List.of("Content-Type", "Cache-Control"));
+        properties.setCaptureRequestBody("bodies".equals(mode));
+        properties.setCaptureResponseBody("bodies".equals(mode));
+        interceptor = "none".equals(mode) ? null : new OkHttpCaptureInterceptor(new HttpClientCapture(properties));
+
+        responseBytes = new byte[payloadSize];
+        Arrays.fill(responseBytes, (byte) 'a');
+        request = new Request.Builder()
+                .url("http://api.example.com/data")
+                .header("Accept", "application/json")
+                .header("User-Agent", "okhttp/4.12.0")
+                .post(RequestBody.create(new byte[payloadSize], JSON))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        span.end();
+        tracerProvider.close();
+    }
+
+    @Benchmark
+    public long call() throws IOException {
+        InMemoryChain chain = new InMemoryChain(request, responseBytes);
+        try (Scope ignored = span.makeCurrent();
+             Response response = interceptor == null ? chain.proceed(request) : interceptor.intercept(chain)) {
+            return response.body().source().readAll(Okio.blackhole());
+        }
+    }
+
+    /**
+     * 写出请求体后返回固定响应
+     */
+    private static final class InMemoryChain implements Interceptor.Chain {
+
+        private final Request request;
+        private final byte[] responseBytes;
+
+        InMemoryChain(Request request, byte[] responseBytes) {
+            this.request = request;
+            this.responseBytes = responseBytes;
+        }
+
+        @NotNull
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @NotNull
+        @Override
+        public Response proceed(@NotNull Request request) throws IOException {
+            Buffer sink = new Buffer();
+            if (request.body() != null) {
+                request.body().writeTo(sink);
+            }
+            sink.clear();
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .header("Content-Type", "application/json")
+                    .header("Cache-Control", "no-cache")
+                    .body(ResponseBody.create(new Buffer().write(responseBytes), JSON, responseBytes.length))
+                    .build();
+        }
+
+        @Override
+        public Connection connection() {
+            return null;
+        }
+
+        @NotNull
+        @Override
+        public Call call() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int connectTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withConnectTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int readTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withReadTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int writeTimeoutMillis() {
+            return 0;
+        }
+
+        @NotNull
+        @Override
+        public Interceptor.Chain withWriteTimeout(int timeout, @NotNull TimeUnit unit) {
+            return this;
+        }
+    }
+}
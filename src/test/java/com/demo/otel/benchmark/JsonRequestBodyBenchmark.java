@@ -0,0 +1,174 @@
+package com.demo.otel.benchmark;
+
+import com.demo.otel.JsonRequestBodies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * JSON请求体序列化的每次请求分配量
+ * string: writeValueAsString + RequestBody.create(旧实现，String和编码后的byte[]各一份)；
+ * streaming: Jackson直接写入Okio Buffer(模拟OkHttp的BufferedSink，写完清空归还SegmentPool)；
+ * nettyEncoder / nettyStreaming: Spring的Jackson2JsonEncoder与直接写入池化DataBuffer对比。
+ * 使用 -prof gc 比较gc.alloc.rate.norm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class JsonRequestBodyBenchmark {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    // 1KB、100KB、10MB
+    @Param({"1024", "102400", "10485760"})
+    private int payloadSize;
+
+    private ObjectMapper objectMapper;
+    private JsonRequestBodies bodies;
+    private Jackson2JsonEncoder encoder;
+    private NettyDataBufferFactory bufferFactory;
+    private List<Map<String, Object>> payload;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        bodies = new JsonRequestBodies(objectMapper, "sdk");
+        encoder = new Jackson2JsonEncoder(objectMapper);
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        payload = payload(payloadSize);
+    }
+
+    @Benchmark
+    public long string() throws Exception {
+        RequestBody body = RequestBody.create(objectMapper.writeValueAsString(payload), JSON);
+        return drain(body);
+    }
+
+    @Benchmark
+    public long streaming() throws Exception {
+        return drain(bodies.okHttp(payload));
+    }
+
+    @Benchmark
+    public int nettyEncoder() {
+        DataBuffer buffer = encoder.encodeValue(payload, bufferFactory,
+                ResolvableType.forInstance(payload), MimeTypeUtils.APPLICATION_JSON, null);
+        int size = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return size;
+    }
+
+    @Benchmark
+    public long nettyStreaming() {
+        PooledOutputMessage message = new PooledOutputMessage(bufferFactory);
+        BodyInserter<Object, ReactiveHttpOutputMessage> inserter = bodies.webClient(payload);
+        inserter.insert(message, null).block();
+        return message.getHeaders().getContentLength();
+    }
+
+    private static long drain(RequestBody body) throws Exception {
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    /**
+     * 只统计写出的字节并释放DataBuffer，模拟Netty写出后释放池化缓冲
+     */
+    private static final class PooledOutputMessage implements ReactiveHttpOutputMessage {
+
+        private final DataBufferFactory bufferFactory;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        PooledOutputMessage(DataBufferFactory bufferFactory) {
+            this.bufferFactory = bufferFactory;
+        }
+
+        @Override
+        public DataBufferFactory bufferFactory() {
+            return bufferFactory;
+        }
+
+        @Override
+        public void beforeCommit(Supplier<? extends Mono<Void>> action) {
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return Flux.from(body).doOnNext(DataBufferUtils::release).then();
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return Flux.from(body).flatMap(this::writeWith).then();
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.empty();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static List<Map<String, Object>> payload(int size) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        int approximate = 0;
+        for (int i = 0; approximate < size; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("orderId", 100000 + i);
+            item.put("status", "CREATED");
+            item.put("customer", "客户-" + i);
+            item.put("amount", i * 1.5);
+            items.add(item);
+            approximate += 80;
+        }
+        return items;
+    }
+}
@@ -0,0 +1,98 @@
+package com.demo.otel.benchmark;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.NettyCustomizer;
+import io.lettuce.core.support.ConnectionPoolSupport;
+import io.netty.channel.Channel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis吞吐: 8连接池(每次操作借用连接) 对比 单条共享连接 + 合并flush。
+ * 需要本地Redis，地址通过 -Dredis.uri 指定(默认redis://localhost:6379)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class RedisConnectionModeBenchmark {
+
+    private static final String KEY = "connection-mode-benchmark";
+
+    @Param({"pooled", "shared"})
+    private String mode;
+
+    private ClientResources resources;
+    private RedisClient client;
+    private GenericObjectPool<StatefulRedisConnection<String, String>> pool;
+    private StatefulRedisConnection<String, String> shared;
+
+    @Setup
+    public void setUp() {
+        ClientResources.Builder builder = ClientResources.builder();
+        if ("shared".equals(mode)) {
+            builder.nettyCustomizer(new NettyCustomizer() {
+                @Override
+                public void afterChannelInitialized(Channel channel) {
+                    channel.pipeline().addFirst(new FlushConsolidationHandler(256, true));
+                }
+            });
+        }
+        resources = builder.build();
+        client = RedisClient.create(resources, System.getProperty("redis.uri", "redis://localhost:6379"));
+
+        if ("shared".equals(mode)) {
+            shared = client.connect();
+            shared.sync().set(KEY, "value");
+        } else {
+            // 与application.yml中的max-active: 8一致
+            GenericObjectPoolConfig<StatefulRedisConnection<String, String>> config = new GenericObjectPoolConfig<>();
+            config.setMaxTotal(8);
+            config.setMaxIdle(8);
+            pool = ConnectionPoolSupport.createGenericObjectPool(client::connect, config);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+        if (shared != null) {
+            shared.close();
+        }
+        client.shutdown();
+        resources.shutdown();
+    }
+
+    @Benchmark
+    public String get() throws Exception {
+        if (shared != null) {
+            return shared.sync().get(KEY);
+        }
+        try (StatefulRedisConnection<String, String> connection = pool.borrowObject()) {
+            return connection.sync().get(KEY);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.demo.otel.benchmark;
+
+import com.demo.otel.Application;
+import com.demo.otel.MessageService;
+import com.demo.otel.RqueueBatchEnqueuer;
+import com.github.sonus21.rqueue.core.RqueueMessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量入队吞吐基准，需要本地Redis(localhost:6379)
+ * 每次调用入队batchSize条消息，消息吞吐 = ops/s * batchSize；
+ * enqueueOneByOne为逐条入队的对照组
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RqueueBatchEnqueueBenchmark {
+
+    private static final String QUEUE = "my-queue";
+
+    @Param({"1", "10", "100", "1000"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private RqueueMessageManager rqueueMessageManager;
+    private List<String> messages;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                // 只生产不消费，避免消费线程干扰测量
+                .properties("rqueue.system.mode=PRODUCER")
+                .run();
+        messageService = context.getBean(MessageService.class);
+        rqueueMessageManager = context.getBean(RqueueMessageManager.class);
+
+        messages = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            messages.add("benchmark-message-" + i);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void drainQueue() {
+        rqueueMessageManager.deleteAllMessages(QUEUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RqueueBatchEnqueuer.BatchResult enqueueBatch() {
+        return messageService.sendMessages(QUEUE, messages);
+    }
+
+    @Benchmark
+    public void enqueueOneByOne() {
+        for (String message : messages) {
+            messageService.sendMessage(QUEUE, message);
+        }
+    }
+}
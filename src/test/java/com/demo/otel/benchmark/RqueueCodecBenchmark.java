@@ -0,0 +1,147 @@
+package com.demo.otel.benchmark;
+
+import com.demo.otel.BinaryMessageCodec;
+import com.demo.otel.CodecMessageConverter;
+import com.github.sonus21.rqueue.converter.DefaultMessageConverterProvider;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 消息编解码基准
+ * JMH部分比较编码/解码耗时；main方法向本地Redis写入一百万条编码后的消息，
+ * 按INFO memory中used_memory的增量报告每百万条消息的内存占用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RqueueCodecBenchmark {
+
+    private static final MessageConverter LEGACY = new DefaultMessageConverterProvider().getConverter();
+
+    @Param({"json", "binary", "binary-lz4"})
+    private String codec;
+
+    @Param({"128", "4096"})
+    private int payloadSize;
+
+    private MessageConverter converter;
+    private String payload;
+    private Message<?> encoded;
+
+    @Setup
+    public void setUp() {
+        converter = converter(codec);
+        payload = payload(payloadSize);
+        encoded = converter.toMessage(payload, null);
+    }
+
+    @Benchmark
+    public Message<?> encode() {
+        return converter.toMessage(payload, null);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return converter.fromMessage(encoded, String.class);
+    }
+
+    private static MessageConverter converter(String codec) {
+        if ("json".equals(codec)) {
+            return LEGACY;
+        }
+        return new CodecMessageConverter(new BinaryMessageCodec("binary-lz4".equals(codec), 1024),
+                LEGACY, true, new SimpleMeterRegistry());
+    }
+
+    // 带重复字段的JSON文本，接近业务消息的形态
+    private static String payload(int size) {
+        StringBuilder builder = new StringBuilder(size + 64).append('[');
+        for (int i = 0; builder.length() < size; i++) {
+            builder.append("{\"orderId\":").append(100000 + i)
+                    .append(",\"status\":\"CREATED\",\"channel\":\"web\"},");
+        }
+        builder.setCharAt(builder.length() - 1, ']');
+        return builder.toString();
+    }
+
+    /**
+     * 参数: [Redis地址] [消息条数] [消息大小]
+     */
+    public static void main(String[] args) throws Exception {
+        String redisUri = args.length > 0 ? args[0] : "redis://localhost:6379";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        String key = "codec-memory-benchmark";
+
+        RedisClient client = RedisClient.create(redisUri);
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            RedisAsyncCommands<String, String> redis = connection.async();
+            String payload = payload(size);
+
+            for (String codec : List.of("json", "binary", "binary-lz4")) {
+                String value = (String) converter(codec).toMessage(payload, null).getPayload();
+                redis.del(key).get();
+                long before = usedMemory(redis.info("memory").get());
+
+                connection.setAutoFlushCommands(false);
+                List<RedisFuture<Long>> pending = new ArrayList<>(1000);
+                for (int i = 0; i < count; i++) {
+                    pending.add(redis.rpush(key, value));
+                    if (pending.size() == 1000) {
+                        connection.flushCommands();
+                        for (RedisFuture<Long> future : pending) {
+                            future.get();
+                        }
+                        pending.clear();
+                    }
+                }
+                connection.flushCommands();
+                for (RedisFuture<Long> future : pending) {
+                    future.get();
+                }
+                connection.setAutoFlushCommands(true);
+
+                long after = usedMemory(redis.info("memory").get());
+                System.out.printf("codec=%s payload=%dB encoded=%dB messages=%d redisMemory=%.1fMB (%.1fMB per million)%n",
+                        codec, size, value.length(), count, (after - before) / 1048576.0,
+                        (after - before) / 1048576.0 * 1_000_000 / count);
+                redis.del(key).get();
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static long usedMemory(String info) {
+        Matcher matcher = Pattern.compile("used_memory:(\\d+)").matcher(info);
+        if (!matcher.find()) {
+            throw new IllegalStateException("used_memory not found in INFO memory");
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -0,0 +1,85 @@
+package com.demo.otel.benchmark;
+
+import com.demo.otel.MessageService;
+import com.demo.otel.RqueueSpanTemplate;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每条消息的span创建开销：原AOP写法(每次反射取名称、字符串属性键、参数instanceof探测)
+ * 对比预计算模板。建议加 -prof gc 同时比较分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RqueueSpanTemplateBenchmark {
+
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+    private Method listenerMethod;
+    private Object listenerTarget;
+    private Object[] args;
+    private RqueueSpanTemplate template;
+
+    @Setup
+    public void setUp() throws Exception {
+        tracerProvider = SdkTracerProvider.builder().build();
+        tracer = tracerProvider.get("benchmark");
+        listenerMethod = MessageService.class.getMethod("processMessage", String.class);
+        listenerTarget = new MessageService();
+        args = new Object[]{"payload"};
+        template = RqueueSpanTemplate.consumer("my-queue",
+                listenerTarget.getClass().getSimpleName(), listenerMethod.getName());
+    }
+
+    @TearDown
+    public void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Benchmark
+    public Span perInvocationReflection() {
+        SpanBuilder spanBuilder = tracer.spanBuilder("rqueue.message.process")
+                .setSpanKind(SpanKind.CONSUMER)
+                .setAttribute("component", "rqueue")
+                .setAttribute("operation", "message.process")
+                .setAttribute("method.name", listenerMethod.getName())
+                .setAttribute("class.name", listenerTarget.getClass().getSimpleName());
+        if (args.length > 0 && args[0] instanceof CharSequence) {
+            spanBuilder.setAttribute("rqueue.message.id", "message-id")
+                    .setAttribute("rqueue.queue.name", "my-queue");
+        }
+        Span span = spanBuilder.startSpan();
+        span.end();
+        return span;
+    }
+
+    @Benchmark
+    public Span precomputedTemplate() {
+        Span span = template.spanBuilder(tracer)
+                .setAttribute(RqueueSpanTemplate.MESSAGE_ID, "message-id")
+                .startSpan();
+        span.end();
+        return span;
+    }
+}
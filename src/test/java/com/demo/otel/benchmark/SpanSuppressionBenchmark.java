@@ -0,0 +1,116 @@
+package com.demo.otel.benchmark;
+
+import com.demo.otel.InstrumentationSuppression;
+import com.demo.otel.SpanFilterConfig;
+import com.demo.otel.SuppressingLettuceTracing;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.tracing.Tracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.instrumentation.lettuce.v5_1.LettuceTelemetry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 校验SQL/Redis PING的追踪开销：构建span后由FilteringSampler丢弃，对比在插桩层抑制。
+ * 使用 -prof gc 比较gc.alloc.rate.norm(每次操作的分配字节数)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpanSuppressionBenchmark {
+
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+    private Tracing lettuceTracing;
+    private Tracing suppressingLettuceTracing;
+    private Command<String, String, String> ping;
+
+    @Setup
+    public void setUp() {
+        SpanFilterConfig.FilterProperties filterProperties = new SpanFilterConfig.FilterProperties();
+        tracerProvider = SdkTracerProvider.builder()
+                .setSampler(new SpanFilterConfig.FilteringSampler(filterProperties))
+                .build();
+        tracer = tracerProvider.get("benchmark");
+
+        lettuceTracing = LettuceTelemetry.create(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build())
+                .newTracing();
+        suppressingLettuceTracing = new SuppressingLettuceTracing(lettuceTracing,
+                new SpanFilterConfig.ExcludedOperations(filterProperties.getExcludeOperations()));
+        ping = new Command<>(CommandType.PING, new StatusOutput<>(StringCodec.UTF8));
+    }
+
+    @TearDown
+    public void tearDown() {
+        tracerProvider.close();
+    }
+
+    /**
+     * 原方式：插桩照常构建span并填充属性，采样器看到db.statement后丢弃
+     */
+    @Benchmark
+    public Span validationQuerySampledOut() {
+        Span span = tracer.spanBuilder("SELECT mydb")
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute(SemanticAttributes.DB_SYSTEM, "mysql")
+                .setAttribute(SemanticAttributes.DB_STATEMENT, "SELECT 1")
+                .setAttribute(SemanticAttributes.DB_OPERATION, "SELECT")
+                .startSpan();
+        span.end();
+        return span;
+    }
+
+    /**
+     * 插桩层抑制：Instrumenter在抑制的Context中不再进入span构建
+     */
+    @Benchmark
+    public Span validationQuerySuppressed() {
+        return InstrumentationSuppression.callSuppressed(() -> {
+            if (InstrumentationSuppression.isSuppressed()) {
+                return Span.getInvalid();
+            }
+            return validationQuerySampledOut();
+        });
+    }
+
+    @Benchmark
+    public Object lettucePingSampledOut() {
+        return tracePing(lettuceTracing);
+    }
+
+    @Benchmark
+    public Object lettucePingSuppressed() {
+        return tracePing(suppressingLettuceTracing);
+    }
+
+    // 与Lettuce CommandHandler写出命令时的调用顺序一致
+    private Object tracePing(Tracing tracing) {
+        io.lettuce.core.tracing.Tracer.Span span = tracing.getTracerProvider().getTracer().nextSpan();
+        span.name(ping.getType().name());
+        span.start(ping);
+        span.finish();
+        return span;
+    }
+}
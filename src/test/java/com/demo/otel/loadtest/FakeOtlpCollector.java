@@ -0,0 +1,133 @@
+package com.demo.otel.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 本地OTLP/HTTP(protobuf)接收端
+ * 不引入proto依赖，直接按字段号遍历请求体统计span和日志条数:
+ * ExportTraceServiceRequest.resource_spans(1) -> ResourceSpans.scope_spans(2) -> ScopeSpans.spans(2)，
+ * ExportLogsServiceRequest.resource_logs(1) -> ResourceLogs.scope_logs(2) -> ScopeLogs.log_records(2)
+ */
+public class FakeOtlpCollector implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong spans = new AtomicLong();
+    private final AtomicLong logRecords = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    public FakeOtlpCollector(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        this.executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.createContext("/v1/traces", exchange -> receive(exchange, spans));
+        server.createContext("/v1/logs", exchange -> receive(exchange, logRecords));
+        server.createContext("/v1/metrics", exchange -> receive(exchange, new AtomicLong()));
+    }
+
+    public FakeOtlpCollector start() {
+        server.start();
+        return this;
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long spanCount() {
+        return spans.get();
+    }
+
+    public long logRecordCount() {
+        return logRecords.get();
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    private void receive(HttpExchange exchange, AtomicLong counter) throws IOException {
+        byte[] body;
+        try (InputStream in = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        requests.incrementAndGet();
+        try {
+            counter.addAndGet(countNested(ByteBuffer.wrap(body), 1, 2, 2));
+        } catch (RuntimeException e) {
+            // 解析失败只影响统计，仍然按成功响应，避免导出端重试放大负载
+            System.err.println("Failed to parse OTLP payload: " + e);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-protobuf");
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+    }
+
+    /**
+     * 沿字段路径逐层进入length-delimited字段，统计最后一层字段出现的次数
+     */
+    static long countNested(ByteBuffer buffer, int... path) {
+        return countNested(buffer, path, 0);
+    }
+
+    private static long countNested(ByteBuffer buffer, int[] path, int depth) {
+        long count = 0;
+        while (buffer.hasRemaining()) {
+            long tag = readVarint(buffer);
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 0x7);
+            switch (wireType) {
+                case 0 -> readVarint(buffer);
+                case 1 -> skip(buffer, 8);
+                case 5 -> skip(buffer, 4);
+                case 2 -> {
+                    int length = (int) readVarint(buffer);
+                    if (field == path[depth]) {
+                        if (depth == path.length - 1) {
+                            count++;
+                        } else {
+                            ByteBuffer nested = buffer.slice(buffer.position(), length);
+                            count += countNested(nested, path, depth + 1);
+                        }
+                    }
+                    skip(buffer, length);
+                }
+                default -> throw new IllegalArgumentException("Unsupported wire type " + wireType);
+            }
+        }
+        return count;
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static void skip(ByteBuffer buffer, int length) {
+        buffer.position(buffer.position() + length);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,79 @@
+package com.demo.otel.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 替代api.example.com的本地下游服务
+ * /data 返回小JSON，/large-data 返回约1MB的JSON，可选固定延迟模拟下游耗时
+ */
+public class MockDownstreamServer implements AutoCloseable {
+
+    private static final byte[] SMALL = "{\"id\":1,\"status\":\"ok\",\"items\":[1,2,3]}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LARGE = largePayload(1024 * 1024);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMs;
+
+    public MockDownstreamServer(int port, long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.executor = Executors.newFixedThreadPool(64);
+        server.setExecutor(executor);
+        server.createContext("/data", exchange -> respond(exchange, SMALL));
+        server.createContext("/large-data", exchange -> respond(exchange, LARGE));
+        server.createContext("/", exchange -> respond(exchange, SMALL));
+    }
+
+    public MockDownstreamServer start() {
+        server.start();
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] largePayload(int size) {
+        StringBuilder builder = new StringBuilder(size + 64).append('[');
+        for (int i = 0; builder.length() < size; i++) {
+            builder.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i).append("\"},");
+        }
+        builder.setCharAt(builder.length() - 1, ']');
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,279 @@
+package com.demo.otel.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 启动就绪时间对比
+ * 与TracingOverheadLoadTest使用相同的本地依赖(内嵌Redis、H2、OTLP接收端)，按不同启动选项多次启动应用，
+ * 记录从创建进程到/actuator/health/readiness返回200的时间，以及应用自身上报的application.ready.time，
+ * 输出中位数/最小/最大值到target/loadtest/startup.json。
+ * <p>
+ * 选项: off、sdk-eager(启动时创建导出器)、sdk-lazy(后台创建导出器)、sdk-startup-tracing(额外发启动阶段span)、
+ * sdk-cds(AppCDS)、agent、agent-cds，agent相关选项需要loadtest.agent。
+ * AppCDS选项先做一次训练启动生成动态归档；CDS不支持classpath中的非空目录，目录会先打包为jar。
+ * <p>
+ * 系统属性: startup.runs(每个选项计入结果的次数，默认5)、startup.warmup-runs(不计入的预热次数，默认1)、
+ * startup.variants(默认全部)、loadtest.agent、startup.output
+ */
+public class StartupTimeLoadTest {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+    private static final long POLL_INTERVAL_MS = 20;
+    private static final Path WORK_DIR = Paths.get("target", "loadtest", "startup");
+
+    private static final List<Variant> VARIANTS = List.of(
+            new Variant("off", "off", false, List.of()),
+            new Variant("sdk-eager", "sdk", false, List.of("--opentelemetry.exporter.otlp.lazy-init=false")),
+            new Variant("sdk-lazy", "sdk", false, List.of("--opentelemetry.exporter.otlp.lazy-init=true")),
+            new Variant("sdk-startup-tracing", "sdk", false, List.of("--opentelemetry.exporter.otlp.lazy-init=true",
+                    "--opentelemetry.startup-tracing.enabled=true")),
+            new Variant("sdk-cds", "sdk", true, List.of("--opentelemetry.exporter.otlp.lazy-init=true")),
+            new Variant("agent", "agent", false, List.of()),
+            new Variant("agent-cds", "agent", true, List.of()));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        int warmupRuns = Integer.getInteger("startup.warmup-runs", 1);
+        String agentPath = System.getProperty("loadtest.agent");
+        List<String> selected = Arrays.asList(System.getProperty("startup.variants",
+                VARIANTS.stream().map(Variant::name).collect(Collectors.joining(","))).split(","));
+        Path output = Paths.get(System.getProperty("startup.output", "target/loadtest/startup.json"));
+
+        int redisPort = TracingOverheadLoadTest.freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        try (MockDownstreamServer downstream = new MockDownstreamServer(0, 0).start();
+             FakeOtlpCollector collector = new FakeOtlpCollector(0).start()) {
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Variant variant : VARIANTS) {
+                if (!selected.contains(variant.name)) {
+                    continue;
+                }
+                if ("agent".equals(variant.mode) && (agentPath == null || !new File(agentPath).isFile())) {
+                    System.out.println("Skipping " + variant.name + ": -Dloadtest.agent=<opentelemetry-javaagent.jar> not set");
+                    continue;
+                }
+                Launcher launcher = new Launcher(variant, agentPath, redisPort, downstream.baseUrl(), collector.endpoint());
+                if (variant.cds) {
+                    launcher.trainCdsArchive(client);
+                }
+                results.add(measure(launcher, client, runs, warmupRuns));
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("timestamp", Instant.now().toString());
+            report.put("javaVersion", System.getProperty("java.version"));
+            report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+            report.put("runs", runs);
+            report.put("variants", results);
+
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            MAPPER.writeValue(output.toFile(), report);
+            System.out.println("Report written to " + output.toAbsolutePath());
+        } finally {
+            redis.stop();
+        }
+    }
+
+    private static Map<String, Object> measure(Launcher launcher, HttpClient client, int runs, int warmupRuns)
+            throws Exception {
+        System.out.printf("=== %s ===%n", launcher.variant.name);
+        long[] readyMs = new long[runs];
+        long[] appReadyMs = new long[runs];
+        for (int i = -warmupRuns; i < runs; i++) {
+            int port = TracingOverheadLoadTest.freePort();
+            String baseUrl = "http://127.0.0.1:" + port;
+            long start = System.nanoTime();
+            Process app = launcher.start(port, List.of());
+            try {
+                awaitReady(client, baseUrl, app);
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (i >= 0) {
+                    readyMs[i] = elapsed;
+                    appReadyMs[i] = Math.round(readyTimeSeconds(client, baseUrl) * 1000);
+                    System.out.printf("run %d: ready=%dms application.ready.time=%dms%n", i + 1, elapsed, appReadyMs[i]);
+                }
+            } finally {
+                stop(app);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("variant", launcher.variant.name);
+        result.put("mode", launcher.variant.mode);
+        result.put("args", launcher.variant.args);
+        result.put("readyMs", stats(readyMs));
+        result.put("applicationReadyTimeMs", stats(appReadyMs));
+        return result;
+    }
+
+    private static void awaitReady(HttpClient client, String baseUrl, Process app) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness")).GET().build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + app.exitValue()
+                        + ", see " + WORK_DIR.resolve("app.log"));
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // 尚未监听端口
+            }
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        throw new IllegalStateException("Application did not become ready within " + STARTUP_TIMEOUT);
+    }
+
+    // Spring Boot的application.ready.time: 从SpringApplication启动到就绪，不含JVM和Agent初始化
+    private static double readyTimeSeconds(HttpClient client, String baseUrl) throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/application.ready.time")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return 0;
+        }
+        JsonNode measurements = MAPPER.readTree(response.body()).path("measurements");
+        return measurements.isEmpty() ? 0 : measurements.get(0).path("value").asDouble();
+    }
+
+    // SIGTERM走正常退出流程，训练启动的CDS归档在此时写出
+    private static void stop(Process app) throws InterruptedException {
+        app.destroy();
+        if (!app.waitFor(60, TimeUnit.SECONDS)) {
+            app.destroyForcibly();
+        }
+    }
+
+    private static Map<String, Object> stats(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("median", sorted.length == 0 ? 0 : sorted[sorted.length / 2]);
+        stats.put("min", sorted.length == 0 ? 0 : sorted[0]);
+        stats.put("max", sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+        return stats;
+    }
+
+    /**
+     * 按选项组装启动命令，CDS选项替换classpath并加上归档参数
+     */
+    private static final class Launcher {
+
+        private final Variant variant;
+        private final String agentPath;
+        private final int redisPort;
+        private final String downstreamUrl;
+        private final String collectorEndpoint;
+        private final Path archive;
+        private String classpath = System.getProperty("java.class.path");
+
+        Launcher(Variant variant, String agentPath, int redisPort, String downstreamUrl, String collectorEndpoint) {
+            this.variant = variant;
+            this.agentPath = agentPath;
+            this.redisPort = redisPort;
+            this.downstreamUrl = downstreamUrl;
+            this.collectorEndpoint = collectorEndpoint;
+            this.archive = WORK_DIR.resolve(variant.name + ".jsa").toAbsolutePath();
+        }
+
+        Process start(int port, List<String> extraJvmArgs) throws IOException {
+            List<String> command = TracingOverheadLoadTest.applicationCommand(variant.mode, agentPath, port,
+                    redisPort, downstreamUrl, collectorEndpoint);
+            command.set(command.indexOf("-cp") + 1, classpath);
+            List<String> jvmArgs = new ArrayList<>(extraJvmArgs);
+            if (variant.cds && extraJvmArgs.isEmpty()) {
+                jvmArgs.add("-XX:SharedArchiveFile=" + archive);
+            }
+            command.addAll(1, jvmArgs);
+            command.addAll(variant.args);
+
+            Files.createDirectories(WORK_DIR);
+            return new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(WORK_DIR.resolve("app.log").toFile())
+                    .start();
+        }
+
+        /**
+         * 训练启动: 就绪后正常退出，JVM退出时写出动态归档
+         */
+        void trainCdsArchive(HttpClient client) throws Exception {
+            classpath = jarOnlyClasspath();
+            Files.deleteIfExists(archive);
+            int port = TracingOverheadLoadTest.freePort();
+            Process app = start(port, List.of("-XX:ArchiveClassesAtExit=" + archive));
+            try {
+                awaitReady(client, "http://127.0.0.1:" + port, app);
+            } finally {
+                stop(app);
+            }
+            if (!Files.isRegularFile(archive)) {
+                throw new IllegalStateException("AppCDS archive was not created, see " + WORK_DIR.resolve("app.log"));
+            }
+            System.out.printf("AppCDS archive for %s: %s (%d KB)%n", variant.name, archive, Files.size(archive) / 1024);
+        }
+
+        private String jarOnlyClasspath() throws IOException {
+            List<String> entries = new ArrayList<>();
+            int index = 0;
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                Path path = Paths.get(entry);
+                if (Files.isDirectory(path)) {
+                    Path jar = WORK_DIR.resolve("classpath-" + index++ + ".jar").toAbsolutePath();
+                    packDirectory(path, jar);
+                    entries.add(jar.toString());
+                } else {
+                    entries.add(entry);
+                }
+            }
+            return String.join(File.pathSeparator, entries);
+        }
+
+        private static void packDirectory(Path directory, Path jar) throws IOException {
+            Files.createDirectories(jar.getParent());
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+                 Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    out.putNextEntry(new JarEntry(directory.relativize(file).toString().replace(File.separatorChar, '/')));
+                    Files.copy(file, out);
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    private record Variant(String name, String mode, boolean cds, List<String> args) {
+    }
+}
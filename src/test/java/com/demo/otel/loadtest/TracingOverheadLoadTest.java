@@ -0,0 +1,342 @@
+package com.demo.otel.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 追踪开销压测
+ * 在本进程内启动下游模拟服务、内嵌Redis和OTLP接收端，以子进程方式分别按off / sdk / agent模式启动应用
+ * (数据库使用H2的MySQL兼容模式)，按固定速率开环压测/api/send和全部/api/http/*接口，
+ * 输出吞吐、p50/p99/p999延迟、分配速率和导出span数到target/loadtest/report.json。
+ * <p>
+ * 系统属性: loadtest.rate(每个接口每秒请求数，默认50)、loadtest.duration(秒，默认30)、
+ * loadtest.warmup(秒，默认10)、loadtest.modes(默认off,sdk,agent)、loadtest.agent(Java Agent路径，未设置时跳过agent模式)、
+ * loadtest.downstream-latency-ms(下游固定延迟，默认5)、loadtest.output
+ */
+public class TracingOverheadLoadTest {
+
+    private static final List<Endpoint> ENDPOINTS = List.of(
+            new Endpoint("send", "POST", "/api/send?queue=my-queue", "{\"orderId\":1,\"status\":\"CREATED\"}"),
+            new Endpoint("rest-template", "GET", "/api/http/rest-template", null),
+            new Endpoint("webclient", "GET", "/api/http/webclient", null),
+            new Endpoint("okhttp", "GET", "/api/http/okhttp", null),
+            new Endpoint("hutool", "GET", "/api/http/hutool", null),
+            new Endpoint("concurrent", "GET", "/api/http/concurrent", null));
+
+    // BatchSpanProcessor每5秒导出一次，结束后多等一会再读取span数
+    private static final Duration EXPORT_FLUSH_WAIT = Duration.ofSeconds(7);
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 50);
+        int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+        long downstreamLatencyMs = Long.getLong("loadtest.downstream-latency-ms", 5);
+        String agentPath = System.getProperty("loadtest.agent");
+        List<String> modes = Arrays.asList(System.getProperty("loadtest.modes", "off,sdk,agent").split(","));
+        Path output = Paths.get(System.getProperty("loadtest.output", "target/loadtest/report.json"));
+
+        int redisPort = freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+        try (MockDownstreamServer downstream = new MockDownstreamServer(0, downstreamLatencyMs).start();
+             FakeOtlpCollector collector = new FakeOtlpCollector(0).start()) {
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (String mode : modes) {
+                if ("agent".equals(mode) && (agentPath == null || !new File(agentPath).isFile())) {
+                    System.out.println("Skipping agent mode: -Dloadtest.agent=<opentelemetry-javaagent.jar> not set");
+                    continue;
+                }
+                results.add(runMode(mode, agentPath, redisPort, downstream, collector,
+                        rate, warmupSeconds, durationSeconds));
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("timestamp", Instant.now().toString());
+            report.put("javaVersion", System.getProperty("java.version"));
+            report.put("ratePerEndpoint", rate);
+            report.put("durationSeconds", durationSeconds);
+            report.put("warmupSeconds", warmupSeconds);
+            report.put("downstreamLatencyMs", downstreamLatencyMs);
+            report.put("modes", results);
+
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            MAPPER.writeValue(output.toFile(), report);
+            System.out.println("Report written to " + output.toAbsolutePath());
+        } finally {
+            redis.stop();
+        }
+    }
+
+    private static Map<String, Object> runMode(String mode, String agentPath, int redisPort,
+                                               MockDownstreamServer downstream, FakeOtlpCollector collector,
+                                               int rate, int warmupSeconds, int durationSeconds) throws Exception {
+        int appPort = freePort();
+        String baseUrl = "http://127.0.0.1:" + appPort;
+        System.out.printf("=== mode=%s port=%d ===%n", mode, appPort);
+
+        Process app = startApplication(mode, agentPath, appPort, redisPort, downstream, collector);
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(16);
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+        try {
+            awaitHealthy(client, baseUrl, app);
+
+            // 预热阶段的结果丢弃，让JIT和连接池稳定下来
+            drive(client, baseUrl, rate, warmupSeconds);
+            // 等预热产生的span导出完，避免计入正式阶段
+            Thread.sleep(EXPORT_FLUSH_WAIT.toMillis());
+
+            double allocatedBefore = metric(client, baseUrl, "jvm.gc.memory.allocated");
+            long spansBefore = collector.spanCount();
+            long startNanos = System.nanoTime();
+
+            Map<String, Recorder> recorders = drive(client, baseUrl, rate, durationSeconds);
+
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+            double allocatedAfter = metric(client, baseUrl, "jvm.gc.memory.allocated");
+            Thread.sleep(EXPORT_FLUSH_WAIT.toMillis());
+            long exportedSpans = collector.spanCount() - spansBefore;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("mode", mode);
+            result.put("exportedSpans", exportedSpans);
+            result.put("allocationRateMBPerSec", round((allocatedAfter - allocatedBefore) / 1048576.0 / elapsedSeconds));
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            long totalOk = 0;
+            for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+                Map<String, Object> summary = entry.getValue().summary(elapsedSeconds);
+                totalOk += (long) summary.get("ok");
+                endpoints.put(entry.getKey(), summary);
+            }
+            result.put("throughputPerSec", round(totalOk / elapsedSeconds));
+            result.put("endpoints", endpoints);
+            System.out.println(MAPPER.writeValueAsString(result));
+            return result;
+        } finally {
+            clientExecutor.shutdownNow();
+            app.destroy();
+            if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                app.destroyForcibly();
+            }
+        }
+    }
+
+    private static Process startApplication(String mode, String agentPath, int appPort, int redisPort,
+                                            MockDownstreamServer downstream, FakeOtlpCollector collector)
+            throws IOException {
+        List<String> command = applicationCommand(mode, agentPath, appPort, redisPort,
+                downstream.baseUrl(), collector.endpoint());
+
+        Path log = Paths.get("target", "loadtest", "app-" + mode + ".log");
+        Files.createDirectories(log.getParent());
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    /**
+     * 子进程启动命令，StartupTimeLoadTest在此基础上追加JVM参数和应用参数
+     */
+    static List<String> applicationCommand(String mode, String agentPath, int appPort, int redisPort,
+                                           String downstreamUrl, String collectorEndpoint) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xms512m");
+        command.add("-Xmx512m");
+        if ("agent".equals(mode)) {
+            command.add("-javaagent:" + agentPath);
+            command.add("-Dotel.exporter.otlp.protocol=http/protobuf");
+            command.add("-Dotel.exporter.otlp.endpoint=" + collectorEndpoint);
+            command.add("-Dotel.metrics.exporter=none");
+            command.add("-Dotel.service.name=my-spring-boot-app");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("com.demo.otel.Application");
+        command.add("--server.port=" + appPort);
+        command.add("--opentelemetry.mode=" + mode);
+        command.add("--opentelemetry.exporter.otlp.protocol=http/protobuf");
+        command.add("--opentelemetry.exporter.otlp.endpoint=" + collectorEndpoint);
+        command.add("--spring.data.redis.host=127.0.0.1");
+        command.add("--spring.data.redis.port=" + redisPort);
+        command.add("--spring.datasource.url=jdbc:otel:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        command.add("--spring.datasource.username=sa");
+        command.add("--spring.datasource.password=");
+        command.add("--http.client.downstream.base-url=" + downstreamUrl);
+        command.add("--http.client.downstream.concurrent-base-urls=" + downstreamUrl + "," + downstreamUrl + "," + downstreamUrl);
+        command.add("--management.endpoints.web.exposure.include=health,metrics");
+        command.add("--logging.level.root=WARN");
+        command.add("--logging.level.com.demo.otel=WARN");
+        return command;
+    }
+
+    private static void awaitHealthy(HttpClient client, String baseUrl, Process app) throws Exception {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + app.exitValue()
+                        + ", see target/loadtest/app-*.log");
+            }
+            try {
+                HttpResponse<String> response = client.send(
+                        HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // 尚未监听端口
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Application did not become healthy within " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * 开环压测: 每个接口按固定间隔发出请求，延迟从计划发送时间开始计算，
+     * 服务变慢时排队等待的时间也计入延迟，避免协调遗漏(coordinated omission)
+     */
+    private static Map<String, Recorder> drive(HttpClient client, String baseUrl, int rate, int seconds)
+            throws InterruptedException {
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        ExecutorService dispatchers = Executors.newFixedThreadPool(ENDPOINTS.size());
+        ConcurrentLinkedQueue<CompletableFuture<Void>> pending = new ConcurrentLinkedQueue<>();
+
+        for (Endpoint endpoint : ENDPOINTS) {
+            Recorder recorder = new Recorder();
+            recorders.put(endpoint.name, recorder);
+            HttpRequest request = endpoint.request(baseUrl);
+            dispatchers.execute(() -> {
+                long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+                long total = (long) rate * seconds;
+                long start = System.nanoTime();
+                for (long i = 0; i < total; i++) {
+                    long intended = start + i * intervalNanos;
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                            .handle((response, error) -> {
+                                long latency = System.nanoTime() - intended;
+                                recorder.record(latency, error == null && response.statusCode() < 400);
+                                return null;
+                            }));
+                }
+            });
+        }
+        dispatchers.shutdown();
+        dispatchers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                .completeOnTimeout(null, 60, TimeUnit.SECONDS)
+                .join();
+        return recorders;
+    }
+
+    private static double metric(HttpClient client, String baseUrl, String name) throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return 0;
+        }
+        JsonNode measurements = MAPPER.readTree(response.body()).path("measurements");
+        return measurements.isEmpty() ? 0 : measurements.get(0).path("value").asDouble();
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private record Endpoint(String name, String method, String path, String body) {
+
+        HttpRequest request(String baseUrl) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30));
+            if (body == null) {
+                return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+            }
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    /**
+     * 单个接口的延迟记录，结束后排序计算分位数
+     */
+    private static final class Recorder {
+
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long latencyNanos, boolean ok) {
+            if (ok) {
+                latencies.add(latencyNanos);
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> summary(double elapsedSeconds) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("ok", (long) sorted.length);
+            summary.put("errors", errors.get());
+            summary.put("throughputPerSec", round(sorted.length / elapsedSeconds));
+            summary.put("p50Ms", percentile(sorted, 0.50));
+            summary.put("p99Ms", percentile(sorted, 0.99));
+            summary.put("p999Ms", percentile(sorted, 0.999));
+            summary.put("maxMs", sorted.length == 0 ? 0 : round(sorted[sorted.length - 1] / 1e6));
+            return summary;
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return round(sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6);
+        }
+    }
+}
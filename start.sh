@@ -40,34 +40,35 @@ fi
 OTEL_TRACE_SAMPLER=${OTEL_TRACE_SAMPLER:-"traceidratio"}
 OTEL_TRACE_SAMPLER_ARG=${OTEL_TRACE_SAMPLER_ARG:-"1.0"}
 
+# AppCDS配置
+MAIN_CLASS="com.demo.otel.Application"
+SERVER_PORT=${SERVER_PORT:-8080}
+CDS_DIR=${CDS_DIR:-"target/cds"}
+CDS_ARCHIVE=${CDS_ARCHIVE:-"$CDS_DIR/app.jsa"}
+CDS_TRAINING_TIMEOUT=${CDS_TRAINING_TIMEOUT:-180}
+
 # Agent下载函数
 download_otel_agent() {
     local agent_file="opentelemetry-javaagent-${OTEL_AGENT_VERSION}.jar"
 
     if [ ! -f "$agent_file" ]; then
-        echo "Downloading OpenTelemetry Java Agent v${OTEL_AGENT_VERSION}..."
+        echo "Downloading OpenTelemetry Java Agent v${OTEL_AGENT_VERSION}..." >&2
         curl -L -o "$agent_file" \
             "https://github.com/open-telemetry/opentelemetry-java-instrumentation/releases/download/v${OTEL_AGENT_VERSION}/opentelemetry-javaagent.jar"
-        echo "Download completed: $agent_file"
+        echo "Download completed: $agent_file" >&2
     else
-        echo "OpenTelemetry Java Agent already exists: $agent_file"
+        echo "OpenTelemetry Java Agent already exists: $agent_file" >&2
     fi
 
     echo "$agent_file"
 }
 
-# Java Agent启动函数
-start_with_agent() {
-    local agent_file=$(download_otel_agent)
-    local jar_file=${1:-"target/${APP_NAME}.jar"}
-
-    echo "Starting application with OpenTelemetry Java Agent..."
-    echo "Agent: $agent_file"
-    echo "Application: $jar_file"
-    echo "Environment: $ENVIRONMENT"
+# 组装Agent、OpenTelemetry和JVM参数(AGENT_OPTS / OTEL_OPTS / JAVA_OPTS)
+prepare_java_opts() {
+    AGENT_FILE=$(download_otel_agent)
 
     # Java Agent参数
-    AGENT_OPTS="-javaagent:$agent_file"
+    AGENT_OPTS="-javaagent:$AGENT_FILE"
 
     # OpenTelemetry基础配置
     OTEL_OPTS="-Dotel.service.name=$OTEL_SERVICE_NAME"
@@ -117,6 +118,17 @@ start_with_agent() {
             JAVA_OPTS="$JAVA_OPTS -Xms512m -Xmx1g"
             ;;
     esac
+}
+
+# Java Agent启动函数
+start_with_agent() {
+    local jar_file=${1:-"target/${APP_NAME}.jar"}
+    prepare_java_opts
+
+    echo "Starting application with OpenTelemetry Java Agent..."
+    echo "Agent: $AGENT_FILE"
+    echo "Application: $jar_file"
+    echo "Environment: $ENVIRONMENT"
 
     # 构建完整启动命令
     FULL_COMMAND="java $AGENT_OPTS $OTEL_OPTS $JAVA_OPTS -jar $jar_file"
@@ -128,6 +140,92 @@ start_with_agent() {
     exec $FULL_COMMAND
 }
 
+# 把Spring Boot可执行jar展开为普通classpath: CDS只归档从jar文件加载的类，
+# 不支持嵌套jar和非空目录，所以BOOT-INF/classes重新打成一个jar
+explode_jar() {
+    local jar_file=$1
+    local app_dir="$CDS_DIR/app"
+
+    if [ -f "$app_dir/.source" ] && [ ! "$jar_file" -nt "$app_dir/.source" ]; then
+        return
+    fi
+    echo "Extracting $jar_file to $app_dir..."
+    rm -rf "$app_dir"
+    mkdir -p "$app_dir/lib"
+    unzip -q "$jar_file" -d "$app_dir/unpacked"
+    jar cf "$app_dir/app.jar" -C "$app_dir/unpacked/BOOT-INF/classes" .
+    mv "$app_dir/unpacked/BOOT-INF/lib/"*.jar "$app_dir/lib/"
+    rm -rf "$app_dir/unpacked"
+    # 应用变化后旧归档失效
+    rm -f "$CDS_ARCHIVE"
+    touch "$app_dir/.source"
+}
+
+# 训练和运行必须使用相同的classpath，按文件名排序保证顺序固定
+cds_classpath() {
+    local cp="$CDS_DIR/app/app.jar"
+    for lib in "$CDS_DIR/app/lib/"*.jar; do
+        cp="$cp:$lib"
+    done
+    echo "$cp"
+}
+
+# AppCDS训练: 启动到就绪后正常退出，JVM退出时把加载过的类写入动态归档
+cds_train() {
+    local jar_file=${1:-"target/${APP_NAME}.jar"}
+    prepare_java_opts
+    explode_jar "$jar_file"
+
+    echo "Training AppCDS archive: $CDS_ARCHIVE"
+    rm -f "$CDS_ARCHIVE"
+    java $AGENT_OPTS $OTEL_OPTS $JAVA_OPTS -XX:ArchiveClassesAtExit="$CDS_ARCHIVE" \
+        -cp "$(cds_classpath)" $MAIN_CLASS --server.port=$SERVER_PORT &
+    local pid=$!
+
+    local waited=0
+    until curl -sf "http://localhost:$SERVER_PORT/actuator/health/readiness" > /dev/null; do
+        if ! kill -0 $pid 2>/dev/null; then
+            echo "Training run exited before becoming ready"
+            exit 1
+        fi
+        if [ $waited -ge $CDS_TRAINING_TIMEOUT ]; then
+            echo "Training run not ready after ${CDS_TRAINING_TIMEOUT}s"
+            kill $pid
+            exit 1
+        fi
+        sleep 1
+        waited=$((waited + 1))
+    done
+
+    # SIGTERM走正常退出流程，归档在JVM退出时写出
+    kill -TERM $pid
+    wait $pid || true
+    if [ ! -f "$CDS_ARCHIVE" ]; then
+        echo "AppCDS archive was not created"
+        exit 1
+    fi
+    echo "AppCDS archive created: $CDS_ARCHIVE"
+}
+
+# 使用AppCDS归档启动，归档不存在或应用jar更新时先训练
+start_with_cds() {
+    local jar_file=${1:-"target/${APP_NAME}.jar"}
+    explode_jar "$jar_file"
+    if [ ! -f "$CDS_ARCHIVE" ]; then
+        # 子shell中训练，避免重复追加JAVA_OPTS
+        (cds_train "$jar_file")
+    fi
+    prepare_java_opts
+
+    echo "Starting application with AppCDS archive: $CDS_ARCHIVE"
+    # 归档与当前JVM或classpath不匹配时JVM只打印警告，按不使用CDS启动
+    FULL_COMMAND="java $AGENT_OPTS $OTEL_OPTS $JAVA_OPTS -XX:SharedArchiveFile=$CDS_ARCHIVE -cp $(cds_classpath) $MAIN_CLASS"
+    echo "$FULL_COMMAND"
+    echo ""
+
+    exec $FULL_COMMAND
+}
+
 # Docker启动函数
 start_in_docker() {
     local agent_file=$(download_otel_agent)
@@ -237,6 +335,12 @@ main() {
         "start")
             start_with_agent $2
             ;;
+        "cds")
+            cds_train $2
+            ;;
+        "start-cds")
+            start_with_cds $2
+            ;;
         "docker")
             start_in_docker
             ;;
@@ -247,10 +351,12 @@ main() {
             download_otel_agent
             ;;
         "help")
-            echo "Usage: $0 [start|docker|k8s|download|help] [jar_file]"
+            echo "Usage: $0 [start|cds|start-cds|docker|k8s|download|help] [jar_file]"
             echo ""
             echo "Commands:"
             echo "  start [jar_file]  - Start application with OpenTelemetry Java Agent"
+            echo "  cds [jar_file]    - Generate an AppCDS archive with a training run (starts until ready, then exits)"
+            echo "  start-cds [jar_file] - Start with the AppCDS archive, generating it first if missing"
             echo "  docker           - Generate Dockerfile for containerized deployment"
             echo "  k8s              - Generate Kubernetes deployment configuration"
             echo "  download         - Download OpenTelemetry Java Agent"
@@ -262,6 +368,12 @@ main() {
             echo "  OTEL_SERVICE_VERSION     - Service version"
             echo "  OTEL_EXPORTER_OTLP_ENDPOINT - OTLP endpoint URL"
             echo "  OTEL_TRACE_SAMPLER_ARG   - Sampling ratio (0.0-1.0)"
+            echo "  OTEL_EXECUTION_MODE      - Request/listener execution mode (platform/virtual, virtual needs JDK 21+)"
+            echo "  OTEL_MODE                - Tracing mode (auto/sdk/agent/off), auto detects the Java agent"
+            echo "  OTEL_EXPORTER_LAZY_INIT  - Create OTLP exporters in the background (sdk mode, default true)"
+            echo "  OTEL_STARTUP_TRACING     - Emit spans for Spring startup phases and slow beans (default false)"
+            echo "  CDS_ARCHIVE              - AppCDS archive path (default target/cds/app.jsa)"
+            echo "  SERVER_PORT              - Port polled for readiness during the AppCDS training run"
             ;;
         *)
             echo "Unknown command: $1"